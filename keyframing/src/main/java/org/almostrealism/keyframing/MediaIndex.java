@@ -0,0 +1,32 @@
+package org.almostrealism.keyframing;
+
+import java.util.TreeSet;
+
+/**
+ * The timestamps, in microseconds, of the video key frames which have been decoded from
+ * a media file. Decoding can begin at any key frame, so seeking to the nearest key frame
+ * before a position and decoding forward from there only decodes part of one group of
+ * pictures, rather than everything from the start of the file.
+ */
+public class MediaIndex {
+	private final TreeSet<Long> keyFrames;
+
+	public MediaIndex() {
+		this.keyFrames = new TreeSet<>();
+	}
+
+	public synchronized void add(long timestamp, boolean keyFrame) {
+		if (keyFrame) keyFrames.add(timestamp);
+	}
+
+	/**
+	 * Returns the timestamp of the last known key frame at or before the specified
+	 * timestamp, or -1 if there is none.
+	 */
+	public synchronized long floor(long timestamp) {
+		Long k = keyFrames.floor(timestamp);
+		return k == null ? -1 : k;
+	}
+
+	public synchronized int size() { return keyFrames.size(); }
+}
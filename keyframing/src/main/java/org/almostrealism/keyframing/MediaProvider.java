@@ -19,6 +19,7 @@ public class MediaProvider implements Supplier<Frame> {
 	private double total;
 	private int inclusion;
 
+	private final MediaIndex keyFrames = new MediaIndex();
 	private Frame current;
 
 	public MediaProvider() { }
@@ -39,6 +40,8 @@ public class MediaProvider implements Supplier<Frame> {
 	public void setTotalDuration(double seconds) { this.total = seconds; }
 	public double getTotalDuration() { return total; }
 
+	public MediaIndex getKeyFrameIndex() { return keyFrames; }
+
 	public void start() {
 		try {
 			media.start();
@@ -62,8 +65,13 @@ public class MediaProvider implements Supplier<Frame> {
 	public void next() {
 		try {
 			current = media.grab();
-			if (current != null)
+
+			if (current != null) {
 				index = current.timestamp * Math.pow(10, -6);
+
+				if (current.getTypes().contains(Frame.Type.VIDEO))
+					keyFrames.add(current.timestamp, current.keyFrame);
+			}
 		} catch (FFmpegFrameGrabber.Exception e) {
 			throw new RuntimeException(e);
 		}
@@ -71,12 +79,32 @@ public class MediaProvider implements Supplier<Frame> {
 
 	public void setPosition(double index) {
 		if (this.index == index) return;
-		if (index < this.index) {
+
+		// Decoding resumes from the nearest known key frame before the position,
+		// if that is ahead of the current frame or the position is behind it
+		long keyFrame = keyFrames.floor(Math.round(index * Math.pow(10, 6)));
+
+		if (keyFrame >= 0 && (index < this.index || keyFrame * Math.pow(10, -6) > this.index)) {
+			seek(keyFrame);
+		} else if (index < this.index) {
 			restart();
 		}
 
-		while (this.index < index) next();
-		while (!get().getTypes().contains(Frame.Type.VIDEO)) next();
+		while (this.index < index) {
+			next();
+			if (get() == null) return;
+		}
+
+		while (get() != null && !get().getTypes().contains(Frame.Type.VIDEO)) next();
+	}
+
+	protected void seek(long timestamp) {
+		try {
+			media.setTimestamp(timestamp);
+			index = -1;
+		} catch (FrameGrabber.Exception e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	public Frame get() { return current; }
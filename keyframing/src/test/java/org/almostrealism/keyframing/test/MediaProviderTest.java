@@ -0,0 +1,86 @@
+package org.almostrealism.keyframing.test;
+
+import org.almostrealism.keyframing.MediaProvider;
+import org.almostrealism.keyframing.VideoImage;
+import org.bytedeco.ffmpeg.global.avcodec;
+import org.bytedeco.ffmpeg.global.avutil;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class MediaProviderTest {
+	public static final int WIDTH = 64;
+	public static final int HEIGHT = 48;
+	public static final int FRAMES = 60;
+
+	@Test
+	public void seekMatchesSequential() throws IOException {
+		File clip = File.createTempFile("clip", ".mp4");
+		clip.deleteOnExit();
+		encode(clip);
+
+		List<VideoImage> sequential = new MediaProvider(clip.getPath(), 1.0, 1)
+				.stream(false).filter(VideoImage::hasImage).collect(Collectors.toList());
+		Assert.assertEquals(FRAMES, sequential.size());
+
+		MediaProvider media = new MediaProvider(clip.getPath(), 1.0, 1);
+		Assert.assertEquals(FRAMES, media.stream(false).filter(VideoImage::hasImage).count());
+		Assert.assertTrue(media.getKeyFrameIndex().size() > 1);
+
+		List<VideoImage> order = new ArrayList<>(sequential);
+		Collections.shuffle(order, new Random(4));
+
+		for (VideoImage expected : order) {
+			media.setPosition(expected.getTimestamp() * Math.pow(10, -6));
+			VideoImage actual = media.getImage(false);
+
+			Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+			Assert.assertArrayEquals("Frame at " + expected.getTimestamp(), pixels(expected), pixels(actual));
+		}
+	}
+
+	protected static void encode(File file) throws IOException {
+		Java2DFrameConverter converter = new Java2DFrameConverter();
+
+		try (FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(file, WIDTH, HEIGHT)) {
+			recorder.setFormat("mp4");
+			recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+			recorder.setPixelFormat(avutil.AV_PIX_FMT_YUV420P);
+			recorder.setFrameRate(25);
+			recorder.setGopSize(10);
+			recorder.setVideoQuality(0);
+			recorder.start();
+
+			for (int i = 0; i < FRAMES; i++) {
+				BufferedImage img = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+				Graphics2D g = img.createGraphics();
+				g.setColor(new Color((i * 37) % 256, (i * 11) % 256, 255 - (i * 4) % 256));
+				g.fillRect(0, 0, WIDTH, HEIGHT);
+				g.setColor(Color.WHITE);
+				g.fillRect(i % WIDTH, 0, 4, HEIGHT);
+				g.dispose();
+
+				recorder.record(converter.convert(img));
+			}
+
+			recorder.stop();
+		}
+	}
+
+	protected static int[] pixels(VideoImage image) {
+		BufferedImage img = image.getImage();
+		return img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth());
+	}
+}
@@ -17,9 +17,11 @@
 package com.almostrealism.geometry;
 
 import org.almostrealism.light.PlanarLight;
+import com.almostrealism.physics.GridAbsorberHashSet;
 import org.almostrealism.raytrace.AbsorberHashSet;
 import org.almostrealism.raytrace.DefaultPhotonField;
 import com.almostrealism.physics.SpecularAbsorber;
+import com.almostrealism.raytracer.RandomContext;
 import io.almostrealism.relation.Producer;
 import org.almostrealism.CodeFeatures;
 import org.almostrealism.Ops;
@@ -35,8 +37,10 @@ import org.almostrealism.physics.Volume;
 
 import javax.swing.*;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * 
@@ -46,6 +50,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 	public static double verbose = Math.pow(10.0, -3.0);
 	
 	private Vector[] coords;
+	private final List<Plane> walls = new ArrayList<>();
 	private double width, height, depth, wallThickness;
 	private double[] orientation, normal;
 	
@@ -91,7 +96,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 		SpecularAbsorber spec = new SpecularAbsorber();
 		spec.setColorRange(450.0, 50.0);
 		
-		AbsorberHashSet a = new AbsorberHashSet();
+		AbsorberHashSet a = new GridAbsorberHashSet();
 		a.setBound(scale * 10.0);
 		a.addAbsorber(spec, ZeroVector.getInstance());
 		a.addAbsorber(plane, Ops.o().vector(0.0, 0.0, scale * 2.2));
@@ -115,7 +120,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 		while (true) {
 			c.tick().get().run();
 			
-			if (Math.random() < Box.verbose) {
+			if (RandomContext.nextDouble() < Box.verbose) {
 				int rate = (int) ((System.currentTimeMillis() - start) /
 									(60 * 60000 * c.getTime()));
 				
@@ -161,6 +166,8 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 		
 		// super.setBound(Math.max(Math.max(this.height, this.width), this.depth));
 		
+		walls.clear();
+
 		if (complex = true){
 			Plane bottom = new Plane();
 			// SpecularAbsorber BT = new SpecularAbsorber();
@@ -173,6 +180,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 			// BT.setColorRange(this.startColor, this.range);
 			// super.addAbsorber(BT,new double[] {0.0, -.5*this.height, 0.0});
 			super.add(bottom);
+			walls.add(bottom);
 
 			Plane top = new Plane();
 			// SpecularAbsorber TP = new SpecularAbsorber();
@@ -185,6 +193,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 			// TP.setColorRange(this.startColor, this.range);
 			// super.addAbsorber(TP, new double[] {0.0, .5*this.height, 0.0});
 			super.add(top);
+			walls.add(top);
 
 			Plane side1 = new Plane();
 			// SpecularAbsorber S1 = new SpecularAbsorber();
@@ -198,6 +207,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 			// S1.setColorRange(this.startColor, this.range);
 			// super.addAbsorber(S1, new double[] {-.5*this.width, 0.0, 0.0});
 			super.add(side1);
+			walls.add(side1);
 			
 			Plane side2 = new Plane();
 //			SpecularAbsorber S2 = new SpecularAbsorber();
@@ -210,6 +220,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 //			S2.setColorRange(this.startColor, this.range);
 //			super.addAbsorber(S2, new double[] {0.0, 0.0, -.5*this.depth});
 			super.add(side2);
+			walls.add(side2);
 
 			Plane side3 = new Plane();
 //			SpecularAbsorber S3 = new SpecularAbsorber();
@@ -222,6 +233,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 //			S3.setColorRange(this.startColor, this.range);
 //			super.addAbsorber(S3, new double[] {.5*this.width, 0.0, 0.0});
 			super.add(side3);
+			walls.add(side3);
 			
 			Plane side4 = new Plane();
 //			SpecularAbsorber S4 = new SpecularAbsorber();
@@ -234,6 +246,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 //			S4.setColorRange(this.startColor, this.range);
 //			super.addAbsorber(S4, new double[] {0.0, 0.0, .5*this.depth});
 			super.add(side4);
+			walls.add(side4);
 		}
 //		else {
 //			Plane TopBottom = new Plane();
@@ -285,6 +298,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 	public double getWidth() { return this.width; }
 	public double getHeight() { return this.height; }
 	public double getDepth() {return this.depth; }
+	public double getWallThickness() { return this.wallThickness; }
 
 	@Override
 	public Producer getValueAt(Producer point) {
@@ -321,7 +335,7 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 
 			}
 
-			if (Math.random() < Box.verbose) {
+			if (RandomContext.nextDouble() < Box.verbose) {
 				System.out.println("Box: Selected " + lowest + " from " + tot + " planes.");
 				System.out.println("Box: Normal is " + lowest.getNormalAt(x).get().evaluate(args));
 			}
@@ -332,35 +346,113 @@ public class Box extends HashSet implements Volume<Object>, CodeFeatures {
 
 	@Override
 	public boolean inside(Producer<PackedCollection> x) {
-		int i = 0;
-
-		Iterator itr = this.iterator();
+		Vector v = new Vector(x.get().evaluate(), 0);
 
-		while (itr.hasNext()){
-			Vector p = new Vector(x.get().evaluate(), 0).subtract(coords[i]);
-			if (((Plane) itr.next()).inside(v(p))) return true;
-			i++;
+		// Each wall is paired with its position by the order in which the walls were made,
+		// as the iteration order of the set is unrelated to it
+		for (int i = 0; i < walls.size(); i++) {
+			if (walls.get(i).inside(v(v.subtract(coords[i])))) return true;
 		}
 
 		return false;
 	}
 
+	/**
+	 * Returns the distance along the ray to the nearest forward crossing of a wall, or
+	 * {@link IntersectionKernels#MISS} if there is none. The walls of a box which is axis
+	 * aligned and has walls of no thickness are its faces, and the ray is tested against
+	 * each face in turn; otherwise the walls are the {@link Plane}s made by
+	 * {@link #makeWalls(boolean)}.
+	 */
 	@Override
 	public double intersect(Vector p, Vector d) {
-		Iterator itr = this.iterator();
-		
-		double l = Double.MAX_VALUE - 1.0;
-		int i = 0;
-		
-		while (itr.hasNext()){
-			double xl = ((Plane) itr.next()).intersect(p.subtract(coords[i]), d);
+		if (wallThickness == 0.0 && isAxisAligned()) {
+			return faces(p.toArray(), d.toArray());
+		}
+
+		double l = IntersectionKernels.MISS;
+
+		// Reuse one vector for the position relative to each wall
+		Vector q = new Vector(0.0, 0.0, 0.0);
+
+		for (int i = 0; i < walls.size(); i++) {
+			q.setX(p.getX() - coords[i].getX());
+			q.setY(p.getY() - coords[i].getY());
+			q.setZ(p.getZ() - coords[i].getZ());
+
+			double xl = walls.get(i).intersect(q, d);
 			if (xl < l) l = xl;
-			i++;
 		}
-		
+
 		return l;
 	}
 
+	/**
+	 * Returns the distance to the nearest face of this (axis aligned) box which the ray
+	 * crosses in the forward direction, or {@link IntersectionKernels#MISS}.
+	 */
+	protected double faces(double[] p, double[] d) {
+		double[] half = { 0.5 * width, 0.5 * height, 0.5 * depth };
+		double l = IntersectionKernels.MISS;
+
+		for (int a = 0; a < 3; a++) {
+			for (int side = -1; side <= 1; side += 2) {
+				double t = (side * half[a] - p[a]) / d[a];
+				if (!(t >= 0.0) || t >= l) continue;
+
+				int b = (a + 1) % 3, c = (a + 2) % 3;
+
+				if (Math.abs(p[b] + t * d[b]) <= half[b] && Math.abs(p[c] + t * d[c]) <= half[c]) {
+					l = t;
+				}
+			}
+		}
+
+		return l;
+	}
+
+	/**
+	 * Computes {@link #intersect(Vector, Vector)} for many rays at once, with the ray
+	 * origins (relative to the center of the box) and directions given as one array per
+	 * component. For a box with axis aligned walls of no thickness the nearest face is
+	 * found with the slab method of {@link IntersectionKernels#box}; other boxes pass
+	 * every ray to {@link #intersect(Vector, Vector)}.
+	 * <p>
+	 * Nothing in the photon field calls this yet, as absorber sets offer photons one at
+	 * a time; it is intended for callers which have many rays against the same box.
+	 */
+	public void intersect(double[] px, double[] py, double[] pz,
+						  double[] dx, double[] dy, double[] dz,
+						  double[] out, int count) {
+		if (wallThickness == 0.0 && isAxisAligned()) {
+			IntersectionKernels.box(0.5 * width, 0.5 * height, 0.5 * depth,
+									px, py, pz, dx, dy, dz, out, count);
+			return;
+		}
+
+		Vector p = new Vector(0.0, 0.0, 0.0);
+		Vector d = new Vector(0.0, 0.0, 0.0);
+
+		for (int i = 0; i < count; i++) {
+			p.setX(px[i]);
+			p.setY(py[i]);
+			p.setZ(pz[i]);
+			d.setX(dx[i]);
+			d.setY(dy[i]);
+			d.setZ(dz[i]);
+			out[i] = intersect(p, d);
+		}
+	}
+
+	/**
+	 * Returns true if the bottom of this box faces along the y axis and its depth is
+	 * along the z axis, so that its walls are parallel to the coordinate planes.
+	 */
+	protected boolean isAxisAligned() {
+		return (normal == null || (normal[0] == 0.0 && normal[2] == 0.0)) &&
+				(orientation == null || (orientation[0] == 0.0 && orientation[1] == 0.0));
+	}
+
 	@Override
 	public double[] getSpatialCoords(double[] uv) {
 		// TODO Auto-generated method stub
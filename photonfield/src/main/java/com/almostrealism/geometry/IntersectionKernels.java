@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.geometry;
+
+/**
+ * {@link IntersectionKernels} provides allocation free intersection routines for
+ * {@link Sphere} and {@link Box} volumes which operate on many rays at once. Ray origins
+ * and directions are given as structure-of-arrays buffers (one array per component),
+ * and the loops are written without branches or object access in their bodies so that
+ * the JIT compiler can vectorize them.
+ * <p>
+ * The single ray sphere routine backs {@link Sphere#intersect}. The batch routines are
+ * not called by the photon field yet, which offers photons to absorbers one at a time.
+ * <p>
+ * A distance of {@link #MISS} indicates that the ray does not intersect the volume in
+ * the forward direction, consistent with {@link Sphere#intersect}.
+ *
+ * @author  Michael Murray
+ */
+public class IntersectionKernels {
+	public static final double MISS = Double.MAX_VALUE - 1.0;
+
+	private IntersectionKernels() { }
+
+	/**
+	 * Computes the distance along each ray to the nearest forward intersection with a
+	 * sphere of the specified radius centered at the origin.
+	 *
+	 * @param count  Number of rays to process.
+	 * @param out  Destination for the distances.
+	 */
+	public static void sphere(double radius,
+							  double[] px, double[] py, double[] pz,
+							  double[] dx, double[] dy, double[] dz,
+							  double[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			out[i] = sphere(radius, px[i], py[i], pz[i], dx[i], dy[i], dz[i]);
+		}
+	}
+
+	/**
+	 * Computes the distance along a single ray to the nearest forward intersection with
+	 * a sphere of the specified radius centered at the origin.
+	 */
+	public static double sphere(double radius,
+								double px, double py, double pz,
+								double dx, double dy, double dz) {
+		px = px / radius; py = py / radius; pz = pz / radius;
+		dx = dx / radius; dy = dy / radius; dz = dz / radius;
+
+		double b = px * dx + py * dy + pz * dz;
+		double c = px * px + py * py + pz * pz;
+		double g = dx * dx + dy * dy + dz * dz;
+
+		double discriminantSqrt = Math.sqrt((b * b) - g * (c - 1));
+
+		double t0 = (-b + discriminantSqrt) / g;
+		double t1 = (-b - discriminantSqrt) / g;
+
+		if (t0 < 0.0) t0 = MISS;
+		if (t1 < 0.0) t1 = MISS;
+
+		return Math.min(t0, t1);
+	}
+
+	/**
+	 * Computes the distance along each ray to the nearest forward crossing of the surface
+	 * of an axis aligned box centered at the origin, using the slab method. For rays which
+	 * start inside the box this is the exit distance, otherwise it is the entry distance.
+	 *
+	 * @param hx  Half of the width of the box.
+	 * @param hy  Half of the height of the box.
+	 * @param hz  Half of the depth of the box.
+	 * @param count  Number of rays to process.
+	 * @param out  Destination for the distances.
+	 */
+	public static void box(double hx, double hy, double hz,
+						   double[] px, double[] py, double[] pz,
+						   double[] dx, double[] dy, double[] dz,
+						   double[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			out[i] = box(hx, hy, hz, px[i], py[i], pz[i], dx[i], dy[i], dz[i]);
+		}
+	}
+
+	/**
+	 * Computes the distance along a single ray to the nearest forward crossing of the
+	 * surface of an axis aligned box centered at the origin.
+	 */
+	public static double box(double hx, double hy, double hz,
+							 double px, double py, double pz,
+							 double dx, double dy, double dz) {
+		double ix = 1.0 / dx, iy = 1.0 / dy, iz = 1.0 / dz;
+
+		double ax = (-hx - px) * ix, bx = (hx - px) * ix;
+		double ay = (-hy - py) * iy, by = (hy - py) * iy;
+		double az = (-hz - pz) * iz, bz = (hz - pz) * iz;
+
+		double near = Math.max(Math.max(Math.min(ax, bx), Math.min(ay, by)), Math.min(az, bz));
+		double far = Math.min(Math.min(Math.max(ax, bx), Math.max(ay, by)), Math.max(az, bz));
+
+		double t = near >= 0.0 ? near : far;
+		return (far < near || t < 0.0 || Double.isNaN(t)) ? MISS : t;
+	}
+}
@@ -74,23 +74,19 @@ public class Sphere implements Volume<Object>, CodeFeatures {
 
 	@Override
 	public double intersect(Vector p, Vector d) {
-		p = p.divide(radius);
-		d = d.divide(radius);
-		double b = p.dotProduct(d);
-		double c = p.dotProduct(p);
-		double g = d.dotProduct(d);
-		
-		double discriminant = (b * b) - (g) * (c - 1);
-		double discriminantSqrt = Math.sqrt(discriminant);
-		
-		double t0 = (-b + discriminantSqrt) / (g);
-		double t1 = (-b - discriminantSqrt) / (g);
-		
-		if (t0 < 0.0) t0 = Double.MAX_VALUE - 1.0;
-		if (t1 < 0.0) t1 = Double.MAX_VALUE - 1.0;
-		
-		double t = Math.min(t0, t1);
-		return t;
+		return IntersectionKernels.sphere(radius, p.getX(), p.getY(), p.getZ(), d.getX(), d.getY(), d.getZ());
+	}
+
+	/**
+	 * Computes {@link #intersect(Vector, Vector)} for many rays at once, with the ray
+	 * origins and directions given as one array per component.
+	 *
+	 * @see  IntersectionKernels#sphere(double, double[], double[], double[], double[], double[], double[], double[], int)
+	 */
+	public void intersect(double[] px, double[] py, double[] pz,
+						  double[] dx, double[] dy, double[] dz,
+						  double[] out, int count) {
+		IntersectionKernels.sphere(radius, px, py, pz, dx, dy, dz, out, count);
 	}
 
 	@Override
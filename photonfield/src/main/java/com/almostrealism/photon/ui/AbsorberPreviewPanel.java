@@ -17,6 +17,7 @@
 package com.almostrealism.photon.ui;
 
 import com.almostrealism.geometry.Sphere;
+import com.almostrealism.raytracer.RandomContext;
 import org.almostrealism.light.LightBulb;
 import org.almostrealism.light.PlanarLight;
 import org.almostrealism.raytrace.AbsorberHashSet;
@@ -214,6 +215,6 @@ public class AbsorberPreviewPanel extends JPanel
 	public double getProbability(double x) { return 1.0; }
 
 	public double getSample(double r) {
-		return this.specStart + Math.random() * (this.specEnd - this.specStart);
+		return this.specStart + RandomContext.nextDouble() * (this.specEnd - this.specStart);
 	}
 }
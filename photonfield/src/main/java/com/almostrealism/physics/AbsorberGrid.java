@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.physics;
+
+import org.almostrealism.algebra.Vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An {@link AbsorberGrid} is a uniform spatial hash over the bounding spheres of a
+ * collection of items (usually absorbers). It is used to limit the number of
+ * {@link org.almostrealism.physics.Volume#inside} and intersect checks performed for a
+ * photon to the items which share a cell with the photon, or with the path it travels.
+ * Items without a known bound are returned as candidates for every query.
+ *
+ * @param <T>  Type of the items stored in the grid.
+ * @author  Michael Murray
+ */
+public class AbsorberGrid<T> {
+	/**
+	 * Items which would occupy more cells than this are treated as unbounded.
+	 */
+	public static long maxCellsPerItem = 4096;
+
+	private final double cellSize;
+
+	private final Map<Long, List<T>> cells;
+	private final Map<T, long[]> bounds;
+	private final List<T> unbounded;
+	private final long[] extent;
+
+	/**
+	 * Constructs an empty {@link AbsorberGrid}.
+	 *
+	 * @param cellSize  Edge length of each grid cell.
+	 */
+	public AbsorberGrid(double cellSize) {
+		if (cellSize <= 0.0) throw new IllegalArgumentException("Cell size must be positive");
+
+		this.cellSize = cellSize;
+		this.cells = new HashMap<>();
+		this.bounds = new HashMap<>();
+		this.unbounded = new ArrayList<>();
+		this.extent = new long[] { Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE,
+									Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+	}
+
+	public double getCellSize() { return cellSize; }
+
+	public int size() { return bounds.size() + unbounded.size(); }
+
+	/**
+	 * Adds an item with no known bound. It will be a candidate for every query.
+	 */
+	public synchronized void add(T item) {
+		remove(item);
+		unbounded.add(item);
+	}
+
+	/**
+	 * Adds an item bounded by the sphere with the specified center and radius.
+	 */
+	public synchronized void add(T item, Vector center, double radius) {
+		remove(item);
+
+		long[] b = {
+				cell(center.getX() - radius), cell(center.getY() - radius), cell(center.getZ() - radius),
+				cell(center.getX() + radius), cell(center.getY() + radius), cell(center.getZ() + radius)
+		};
+
+		double count = (double) (b[3] - b[0] + 1) * (b[4] - b[1] + 1) * (b[5] - b[2] + 1);
+
+		if (count > maxCellsPerItem) {
+			unbounded.add(item);
+			return;
+		}
+
+		for (long i = b[0]; i <= b[3]; i++) {
+			for (long j = b[1]; j <= b[4]; j++) {
+				for (long k = b[2]; k <= b[5]; k++) {
+					cells.computeIfAbsent(key(i, j, k), c -> new ArrayList<>()).add(item);
+				}
+			}
+		}
+
+		for (int i = 0; i < 3; i++) {
+			extent[i] = Math.min(extent[i], b[i]);
+			extent[i + 3] = Math.max(extent[i + 3], b[i + 3]);
+		}
+
+		bounds.put(item, b);
+	}
+
+	public synchronized boolean remove(T item) {
+		if (unbounded.remove(item)) return true;
+
+		long[] b = bounds.remove(item);
+		if (b == null) return false;
+
+		for (long i = b[0]; i <= b[3]; i++) {
+			for (long j = b[1]; j <= b[4]; j++) {
+				for (long k = b[2]; k <= b[5]; k++) {
+					long key = key(i, j, k);
+					List<T> c = cells.get(key);
+					c.remove(item);
+					if (c.isEmpty()) cells.remove(key);
+				}
+			}
+		}
+
+		return true;
+	}
+
+	public synchronized void clear() {
+		cells.clear();
+		bounds.clear();
+		unbounded.clear();
+
+		for (int i = 0; i < 3; i++) {
+			extent[i] = Long.MAX_VALUE;
+			extent[i + 3] = Long.MIN_VALUE;
+		}
+	}
+
+	/**
+	 * Returns the items which may contain the specified point.
+	 */
+	public synchronized Set<T> candidates(Vector x) {
+		Set<T> result = new LinkedHashSet<>(unbounded);
+		List<T> c = cells.get(key(cell(x.getX()), cell(x.getY()), cell(x.getZ())));
+		if (c != null) result.addAll(c);
+		return result;
+	}
+
+	/**
+	 * Returns the items which may be encountered along the segment starting at the
+	 * specified point and extending the specified distance along the direction d.
+	 * The cells crossed by the segment are enumerated with a 3D-DDA traversal.
+	 */
+	public synchronized Set<T> candidates(Vector x, Vector d, double distance) {
+		Set<T> result = new LinkedHashSet<>(unbounded);
+
+		double[] p = x.toArray();
+		double[] dir = d.toArray();
+		double len = Math.sqrt(dir[0] * dir[0] + dir[1] * dir[1] + dir[2] * dir[2]);
+
+		long[] cell = new long[3];
+		long[] step = new long[3];
+		double[] next = new double[3];
+		double[] delta = new double[3];
+
+		for (int i = 0; i < 3; i++) {
+			cell[i] = cell(p[i]);
+			double u = len == 0.0 ? 0.0 : dir[i] / len;
+
+			if (u > 0.0) {
+				step[i] = 1;
+				delta[i] = cellSize / u;
+				next[i] = ((cell[i] + 1) * cellSize - p[i]) / u;
+			} else if (u < 0.0) {
+				step[i] = -1;
+				delta[i] = -cellSize / u;
+				next[i] = (cell[i] * cellSize - p[i]) / u;
+			} else {
+				step[i] = 0;
+				delta[i] = Double.POSITIVE_INFINITY;
+				next[i] = Double.POSITIVE_INFINITY;
+			}
+		}
+
+		w: while (true) {
+			List<T> c = cells.get(key(cell[0], cell[1], cell[2]));
+			if (c != null) result.addAll(c);
+
+			int axis = next[0] < next[1] ? (next[0] < next[2] ? 0 : 2) : (next[1] < next[2] ? 1 : 2);
+			if (next[axis] > distance || next[axis] == Double.POSITIVE_INFINITY) break w;
+
+			cell[axis] += step[axis];
+			next[axis] += delta[axis];
+
+			// Once the path has left the occupied region it can never return
+			if (step[axis] > 0 && cell[axis] > extent[axis + 3]) break w;
+			if (step[axis] < 0 && cell[axis] < extent[axis]) break w;
+		}
+
+		return result;
+	}
+
+	protected long cell(double v) {
+		return (long) Math.floor(v / cellSize);
+	}
+
+	/**
+	 * Packs three cell indices into a single key, using 21 bits per axis.
+	 */
+	protected static long key(long i, long j, long k) {
+		return ((i & 0x1FFFFF) << 42) | ((j & 0x1FFFFF) << 21) | (k & 0x1FFFFF);
+	}
+}
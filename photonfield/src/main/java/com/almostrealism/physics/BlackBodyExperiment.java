@@ -1,6 +1,7 @@
 package com.almostrealism.physics;
 
 import com.almostrealism.geometry.Sphere;
+import com.almostrealism.raytracer.RandomContext;
 import org.almostrealism.algebra.Vector;
 import org.almostrealism.algebra.ZeroVector;
 import org.almostrealism.chem.Alloy;
@@ -45,13 +46,14 @@ public class BlackBodyExperiment {
 			}
 		}
 
+		ExposureWriter writer = new ExposureWriter();
 		long start = System.currentTimeMillis();
 
 		// Run the simulation and print out flux measurements every second
 		while (true) {
 			c.tick().get().run();
 
-			if (Math.random() < BlackBody.verbose) {
+			if (RandomContext.nextDouble() < BlackBody.verbose) {
 //				int rate = (int) ((System.currentTimeMillis() - start) /
 //									(60 * 60000 * c.getTime()));
 //
@@ -61,12 +63,7 @@ public class BlackBodyExperiment {
 //							+ " watts.");
 //				System.out.println("Using t2.large, exposure would require $" + (rate * 0.0928) + " per microsecond.\n");
 
-				try {
-					camera.getAbsorptionPlane().saveImage("black-body-sim.jpg");
-				} catch (IOException ioe) {
-					System.out.println("BlackBody: Could not write image (" +
-							ioe.getMessage() + ")");
-				}
+				writer.submit(camera.getAbsorptionPlane(), "black-body-sim.jpg");
 			}
 		}
 	}
@@ -90,7 +87,7 @@ public class BlackBodyExperiment {
 		l.setPower(LightBulb.wattsToEvMsec * 10);
 
 		// Add black body and light bulb to absorber set
-		AbsorberHashSet a = new AbsorberHashSet();
+		AbsorberHashSet a = new GridAbsorberHashSet(2000.0);
 		a.setBound(100000000);
 		a.addAbsorber(v, o().vector(500000.0, 0.0, 0.0)); a.setColorBufferDimensions(1, 1, 1.0);
 		a.addAbsorber(l, o().vector(0.0, 500000.0, 0.0)); a.setColorBufferDimensions(1, 1, 1.0);
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.physics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An {@link ExposureBuffer} is a float32 RGB accumulation buffer for photon exposure.
+ * Additions are lock-free (compare-and-set on the float bits), so any number of
+ * threads may expose the same pixel without contention on a shared monitor.
+ * <p>
+ * The buffer is laid out exactly like the pixel data of a little-endian PFM file
+ * (rows stored bottom to top). When created with {@link #map(File, int, int)} the
+ * buffer is the mapped file itself, so a viewer can open the PFM and follow
+ * progress without the simulation ever copying or encoding the image.
+ *
+ * @author  Michael Murray
+ */
+public class ExposureBuffer {
+	public static final int CHANNELS = 3;
+
+	private static final VarHandle FLOAT =
+			MethodHandles.byteBufferViewVarHandle(float[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final int width, height;
+	private final ByteBuffer header;
+	private final ByteBuffer data;
+
+	/**
+	 * Constructs an in-memory {@link ExposureBuffer} with the specified dimensions.
+	 */
+	public ExposureBuffer(int width, int height) {
+		this(width, height, ByteBuffer.allocateDirect(pfmHeader(width, height).length + 4 * CHANNELS * width * height));
+	}
+
+	private ExposureBuffer(int width, int height, ByteBuffer buffer) {
+		this.width = width;
+		this.height = height;
+
+		byte[] h = pfmHeader(width, height);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(0, h);
+
+		this.header = buffer.slice(0, h.length);
+		this.data = buffer.slice(h.length, buffer.capacity() - h.length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	public int getWidth() { return width; }
+	public int getHeight() { return height; }
+
+	/**
+	 * Atomically adds the specified RGB energy to the pixel at (x, y), where y
+	 * increases downward. Coordinates outside the buffer are ignored.
+	 *
+	 * @return  True if the pixel was inside the buffer, false otherwise.
+	 */
+	public boolean add(int x, int y, float r, float g, float b) {
+		if (x < 0 || y < 0 || x >= width || y >= height) return false;
+
+		int index = offset(x, y);
+		add(index, r);
+		add(index + 4, g);
+		add(index + 8, b);
+		return true;
+	}
+
+	private void add(int index, float value) {
+		if (value == 0.0f) return;
+
+		float current;
+
+		do {
+			current = (float) FLOAT.getVolatile(data, index);
+		} while (!FLOAT.compareAndSet(data, index, current, current + value));
+	}
+
+	/**
+	 * Returns the accumulated value of the specified channel at (x, y).
+	 */
+	public float get(int x, int y, int channel) {
+		return (float) FLOAT.getVolatile(data, offset(x, y) + 4 * channel);
+	}
+
+	/**
+	 * Copies the current contents of this buffer into a new array, in PFM row order.
+	 * The copy is not synchronized with concurrent additions, so a snapshot taken
+	 * while the simulation is running may include part of an in-progress update.
+	 */
+	public float[] snapshot() {
+		float[] f = new float[CHANNELS * width * height];
+		data.duplicate().order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(f);
+		return f;
+	}
+
+	/**
+	 * Returns a read-only view of the PFM header followed by the pixel data.
+	 */
+	public ByteBuffer[] getPFM() {
+		return new ByteBuffer[] { header.asReadOnlyBuffer(), data.asReadOnlyBuffer() };
+	}
+
+	/**
+	 * Forces any changes to a memory mapped buffer out to the file.
+	 */
+	public void flush() {
+		if (data instanceof MappedByteBuffer) ((MappedByteBuffer) data).force();
+	}
+
+	private int offset(int x, int y) {
+		return 4 * CHANNELS * ((height - 1 - y) * width + x);
+	}
+
+	/**
+	 * Creates an {@link ExposureBuffer} backed by a memory mapped PFM file. Any existing
+	 * content of the file is discarded.
+	 */
+	public static ExposureBuffer map(File file, int width, int height) throws IOException {
+		long size = pfmHeader(width, height).length + 4L * CHANNELS * width * height;
+
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			 FileChannel channel = raf.getChannel()) {
+			raf.setLength(0);
+			raf.setLength(size);
+			return new ExposureBuffer(width, height, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+		}
+	}
+
+	/**
+	 * Produces a PFM header padded so that the pixel data which follows it is four
+	 * byte aligned, which is required for atomic access to the mapped floats.
+	 */
+	protected static byte[] pfmHeader(int width, int height) {
+		String dims = "PF\n" + width + " " + height + "\n";
+		StringBuilder scale = new StringBuilder("-1.0");
+		while ((dims.length() + scale.length() + 1) % 4 != 0) scale.append("0");
+		return (dims + scale + "\n").getBytes(StandardCharsets.US_ASCII);
+	}
+}
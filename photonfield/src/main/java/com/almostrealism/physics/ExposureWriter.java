@@ -0,0 +1,202 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.physics;
+
+import io.almostrealism.relation.Evaluable;
+import org.almostrealism.color.RGB;
+import org.almostrealism.primitives.AbsorptionPlane;
+import org.almostrealism.texture.ImageCanvas;
+
+import javax.imageio.ImageIO;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An {@link ExposureWriter} encodes snapshots of an {@link ExposureBuffer}, or any
+ * other image output, on a background thread so that the simulation tick loop never
+ * waits for image encoding. If a snapshot is requested while the previous one is
+ * still being written, the request is dropped rather than queued.
+ * <p>
+ * The output format is chosen from the file extension: ".pfm" keeps the full float32
+ * dynamic range, ".png" produces a 16-bit per channel image scaled to the brightest
+ * pixel.
+ *
+ * @author  Michael Murray
+ */
+public class ExposureWriter implements AutoCloseable {
+	private final ExecutorService executor;
+	private final AtomicBoolean pending;
+
+	public ExposureWriter() {
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "ExposureWriter");
+			t.setDaemon(true);
+			return t;
+		});
+
+		this.pending = new AtomicBoolean();
+	}
+
+	/**
+	 * Schedules a snapshot of the specified {@link ExposureBuffer} to be written.
+	 *
+	 * @return  True if the snapshot was scheduled, false if a previous write is still pending.
+	 */
+	public boolean submit(ExposureBuffer buffer, String file) {
+		return submit(() -> write(buffer, new File(file)));
+	}
+
+	/**
+	 * Schedules the image of the specified {@link AbsorptionPlane} to be written. The image
+	 * is copied on the calling thread, so the background write never reads the plane while
+	 * the simulation is still exposing it. The encoding is chosen from the file extension:
+	 * ".ppm" produces a PPM image and anything else a JPEG.
+	 *
+	 * @return  True if the write was scheduled, false if a previous write is still pending.
+	 */
+	public boolean submit(AbsorptionPlane plane, String file) {
+		// Avoid copying the image when the write would be dropped anyway
+		if (isPending()) return false;
+
+		RGB[][] image = snapshot(plane.getImage());
+		int encoding = file.toLowerCase().endsWith(".ppm") ? ImageCanvas.PPMEncoding : ImageCanvas.JPEGEncoding;
+		Evaluable<RGB[][]> ev = args -> image;
+		return submit(() -> ImageCanvas.encodeImageFile(ev, new File(file), encoding));
+	}
+
+	/**
+	 * Schedules an arbitrary image write to be performed on the background thread.
+	 * Anything the write reads must not be modified while it is pending.
+	 *
+	 * @return  True if the write was scheduled, false if a previous write is still pending.
+	 */
+	public boolean submit(Output output) {
+		if (!pending.compareAndSet(false, true)) return false;
+
+		executor.submit(() -> {
+			try {
+				output.write();
+			} catch (IOException ioe) {
+				System.out.println("ExposureWriter: Could not write image (" +
+									ioe.getMessage() + ")");
+			} finally {
+				pending.set(false);
+			}
+		});
+
+		return true;
+	}
+
+	public boolean isPending() { return pending.get(); }
+
+	@Override
+	public void close() {
+		executor.shutdown();
+
+		try {
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns a deep copy of the specified image.
+	 */
+	public static RGB[][] snapshot(RGB[][] image) {
+		RGB[][] copy = new RGB[image.length][];
+
+		for (int i = 0; i < image.length; i++) {
+			copy[i] = new RGB[image[i].length];
+
+			for (int j = 0; j < image[i].length; j++) {
+				RGB c = image[i][j];
+				copy[i][j] = c == null ? null : new RGB(c.getRed(), c.getGreen(), c.getBlue());
+			}
+		}
+
+		return copy;
+	}
+
+	public static void write(ExposureBuffer buffer, File file) throws IOException {
+		if (file.getName().toLowerCase().endsWith(".png")) {
+			writePNG(buffer, file);
+		} else {
+			writePFM(buffer, file);
+		}
+	}
+
+	public static void writePFM(ExposureBuffer buffer, File file) throws IOException {
+		try (FileChannel out = new FileOutputStream(file).getChannel()) {
+			ByteBuffer[] pfm = buffer.getPFM();
+			for (ByteBuffer b : pfm) {
+				while (b.hasRemaining()) out.write(b);
+			}
+		}
+	}
+
+	public static void writePNG(ExposureBuffer buffer, File file) throws IOException {
+		int w = buffer.getWidth();
+		int h = buffer.getHeight();
+		float[] data = buffer.snapshot();
+
+		float max = 0.0f;
+		for (float f : data) if (f > max) max = f;
+		double scale = max > 0.0f ? 65535.0 / max : 0.0;
+
+		ComponentColorModel model = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+				false, false, Transparency.OPAQUE, DataBuffer.TYPE_USHORT);
+		WritableRaster raster = model.createCompatibleWritableRaster(w, h);
+
+		int[] pixel = new int[ExposureBuffer.CHANNELS];
+
+		for (int y = 0; y < h; y++) {
+			// PFM rows are stored bottom to top
+			int row = (h - 1 - y) * w;
+
+			for (int x = 0; x < w; x++) {
+				int index = ExposureBuffer.CHANNELS * (row + x);
+
+				for (int c = 0; c < ExposureBuffer.CHANNELS; c++) {
+					pixel[c] = (int) Math.min(65535.0, data[index + c] * scale);
+				}
+
+				raster.setPixel(x, y, pixel);
+			}
+		}
+
+		ImageIO.write(new BufferedImage(model, raster, false, null), "png", file);
+	}
+
+	@FunctionalInterface
+	public interface Output {
+		void write() throws IOException;
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.physics;
+
+import com.almostrealism.geometry.Box;
+import com.almostrealism.geometry.Sphere;
+import io.almostrealism.relation.Producer;
+import org.almostrealism.CodeFeatures;
+import org.almostrealism.algebra.Vector;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.physics.Absorber;
+import org.almostrealism.physics.Volume;
+import org.almostrealism.physics.VolumeAbsorber;
+import org.almostrealism.raytrace.AbsorberHashSet;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A {@link GridAbsorberHashSet} is an {@link AbsorberHashSet} which also maintains an
+ * {@link AbsorberGrid} over the bounding spheres of its absorbers, so that the absorbers
+ * a photon may reach can be found without scanning the entire set. Every absorber which
+ * is added or removed is also added to or removed from the grid. The bound of a
+ * {@link VolumeAbsorber} is derived from its {@link Volume} when it is added (see
+ * {@link #bound(Absorber)}), or may be given explicitly with
+ * {@link #addBoundedAbsorber(Absorber, Vector, double)}. Absorbers without a known bound
+ * are candidates for every query.
+ * <p>
+ * While a photon is offered to the set, iteration over the set only visits the items
+ * whose absorbers are candidates for the position of the photon. The selection of the
+ * absorber is left to {@link AbsorberHashSet#absorb(Vector, Vector, double)}, so the
+ * result is the same as for an {@link AbsorberHashSet} with the same contents; only the
+ * absorbers which cannot contain the photon are skipped.
+ *
+ * @author  Michael Murray
+ */
+public class GridAbsorberHashSet extends AbsorberHashSet implements CodeFeatures {
+	public static double defaultCellSize = 1.0;
+
+	private final AbsorberGrid<Absorber> grid;
+	private final Map<Absorber, Vector> positions;
+	private final Map<Absorber, Double> radii;
+	private final ThreadLocal<Set<Absorber>> filter;
+
+	public GridAbsorberHashSet() {
+		this(defaultCellSize);
+	}
+
+	public GridAbsorberHashSet(double cellSize) {
+		this.grid = new AbsorberGrid<>(cellSize);
+		this.positions = new HashMap<>();
+		this.radii = new HashMap<>();
+		this.filter = new ThreadLocal<>();
+	}
+
+	/**
+	 * Adds the specified {@link Absorber} at the specified position, bounded by a
+	 * sphere of the specified radius around that position.
+	 */
+	public int addBoundedAbsorber(Absorber a, Vector position, double radius) {
+		synchronized (grid) {
+			radii.put(a, radius);
+		}
+
+		return addAbsorber(a, vector(position.getX(), position.getY(), position.getZ()));
+	}
+
+	@Override
+	public int addAbsorber(Absorber a, Producer x) {
+		int count = super.addAbsorber(a, x);
+
+		// The set may be populated by its super constructor,
+		// before the grid has been created
+		if (grid == null) return count;
+
+		Vector position = new Vector((PackedCollection) x.get().evaluate(), 0);
+
+		synchronized (grid) {
+			positions.put(a, position);
+
+			Double radius = radii.get(a);
+			if (radius == null) radius = bound(a);
+
+			if (radius == null) {
+				grid.add(a);
+			} else {
+				grid.add(a, position, radius);
+			}
+		}
+
+		return count;
+	}
+
+	@Override
+	public int removeAbsorber(Absorber a) {
+		int count = super.removeAbsorber(a);
+		if (grid == null) return count;
+
+		synchronized (grid) {
+			grid.remove(a);
+			positions.remove(a);
+			radii.remove(a);
+		}
+
+		return count;
+	}
+
+	/**
+	 * Returns the radius of a sphere around the position of the specified {@link Absorber}
+	 * which contains every point it may absorb at, or null if no bound is known. Only
+	 * {@link VolumeAbsorber}s with a {@link Sphere} or {@link Box} volume are bounded, and
+	 * the bound is taken from the dimensions of the volume at the time it is added.
+	 */
+	protected Double bound(Absorber a) {
+		if (!(a instanceof VolumeAbsorber)) return null;
+
+		Volume<?> v = ((VolumeAbsorber) a).getVolume();
+
+		if (v instanceof Sphere) {
+			return ((Sphere) v).getRadius();
+		} else if (v instanceof Box) {
+			Box b = (Box) v;
+			double w = b.getWidth(), h = b.getHeight(), d = b.getDepth();
+			return 0.5 * Math.sqrt(w * w + h * h + d * d) + b.getWallThickness();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Offers the photon to the set, with iteration restricted to the absorbers which
+	 * share a cell with it.
+	 */
+	@Override
+	public boolean absorb(Vector x, Vector p, double energy) {
+		Set<Absorber> previous = filter.get();
+		filter.set(grid.candidates(x));
+
+		try {
+			return super.absorb(x, p, energy);
+		} finally {
+			filter.set(previous);
+		}
+	}
+
+	@Override
+	public Iterator<StoredItem> iterator() {
+		return filter(super.iterator());
+	}
+
+	@Override
+	public Iterator iterator(boolean fast) {
+		return filter(super.iterator(fast));
+	}
+
+	/**
+	 * Returns an {@link Iterator} which skips the items whose absorbers are not candidates
+	 * for the photon currently being absorbed on this thread, if there is one.
+	 */
+	protected Iterator<StoredItem> filter(Iterator<StoredItem> items) {
+		Set<Absorber> candidates = filter == null ? null : filter.get();
+		if (candidates == null) return items;
+
+		return new Iterator<>() {
+			private StoredItem next = advance();
+
+			private StoredItem advance() {
+				while (items.hasNext()) {
+					StoredItem s = items.next();
+					if (candidates.contains(s.absorber)) return s;
+				}
+
+				return null;
+			}
+
+			@Override
+			public boolean hasNext() { return next != null; }
+
+			@Override
+			public StoredItem next() {
+				if (next == null) throw new NoSuchElementException();
+				StoredItem s = next;
+				next = advance();
+				return s;
+			}
+		};
+	}
+
+	/**
+	 * Returns the {@link VolumeAbsorber} whose volume is crossed first by a photon at x
+	 * travelling the specified distance in the direction d, or null if there is none.
+	 * Only the absorbers in the cells crossed by the path are checked.
+	 */
+	public Absorber nearest(Vector x, Vector d, double distance) {
+		Absorber nearest = null;
+		double min = distance;
+
+		for (Absorber a : grid.candidates(x, d, distance)) {
+			if (!(a instanceof VolumeAbsorber)) continue;
+
+			Volume<?> v = ((VolumeAbsorber) a).getVolume();
+			Vector position = getPosition(a);
+			if (v == null || position == null) continue;
+
+			double t = v.intersect(x.subtract(position), d);
+
+			if (t >= 0.0 && t <= min) {
+				min = t;
+				nearest = a;
+			}
+		}
+
+		return nearest;
+	}
+
+	/**
+	 * Returns the absorbers which may contain the specified point.
+	 */
+	public Set<Absorber> candidates(Vector x) {
+		return grid.candidates(x);
+	}
+
+	/**
+	 * Returns the absorbers which may be reached by a photon at x travelling
+	 * the specified distance in the direction d.
+	 */
+	public Set<Absorber> candidates(Vector x, Vector d, double distance) {
+		return grid.candidates(x, d, distance);
+	}
+
+	protected Vector getPosition(Absorber a) {
+		synchronized (grid) {
+			return positions.get(a);
+		}
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		if (grid == null) return;
+
+		synchronized (grid) {
+			grid.clear();
+			positions.clear();
+			radii.clear();
+		}
+	}
+
+	public AbsorberGrid<Absorber> getGrid() { return grid; }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.physics;
+
+import org.almostrealism.CodeFeatures;
+import org.almostrealism.algebra.Vector;
+import org.almostrealism.physics.PhysicalConstants;
+import org.almostrealism.primitives.AbsorptionPlane;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * An {@link HDRAbsorptionPlane} is an {@link AbsorptionPlane} which, in addition to the
+ * usual image, accumulates the energy of every absorbed photon into a float32
+ * {@link ExposureBuffer}. The accumulated exposure keeps the full dynamic range of the
+ * simulation and can be written asynchronously with an {@link ExposureWriter}, or
+ * followed directly through a memory mapped PFM file (see {@link #mapExposure(File)}).
+ *
+ * @author  Michael Murray
+ */
+public class HDRAbsorptionPlane extends AbsorptionPlane implements PhysicalConstants, CodeFeatures {
+	private final int width, height;
+	private final double pixelSize;
+	private final Vector normal, up, across;
+
+	private ExposureBuffer exposure;
+
+	/**
+	 * Constructs a new {@link HDRAbsorptionPlane}.
+	 *
+	 * @param width  Width of the plane, in pixels.
+	 * @param height  Height of the plane, in pixels.
+	 * @param pixelSize  Size of one pixel, in micrometers.
+	 * @param thickness  Thickness of the plane, in micrometers.
+	 * @param normal  Unit vector normal to the plane.
+	 * @param up  Unit vector indicating the "upward" direction of the image.
+	 */
+	public HDRAbsorptionPlane(int width, int height, double pixelSize, double thickness,
+							  Vector normal, Vector up) {
+		this.width = width;
+		this.height = height;
+		this.pixelSize = pixelSize;
+		this.normal = normal;
+		this.up = up;
+		this.across = up.crossProduct(normal);
+
+		setPixelSize(pixelSize);
+		setWidth(width);
+		setHeight(height);
+		setThickness(thickness);
+		setSurfaceNormal(value(normal));
+		setOrientation(up.toArray());
+
+		this.exposure = new ExposureBuffer(width, height);
+	}
+
+	/**
+	 * Replaces the exposure buffer with one that is backed by the specified PFM file.
+	 * Any exposure accumulated so far is discarded.
+	 */
+	public ExposureBuffer mapExposure(File file) throws IOException {
+		this.exposure = ExposureBuffer.map(file, width, height);
+		return this.exposure;
+	}
+
+	public ExposureBuffer getExposure() { return exposure; }
+
+	@Override
+	public boolean absorb(Vector x, Vector p, double energy) {
+		if (!super.absorb(x, p, energy)) return false;
+
+		int px = (int) Math.floor(x.dotProduct(across) / pixelSize + width / 2.0);
+		int py = (int) Math.floor(height / 2.0 - x.dotProduct(up) / pixelSize);
+
+		float[] rgb = wavelengthToRGB(1000.0 * HC / energy);
+		float e = (float) energy;
+		exposure.add(px, py, e * rgb[0], e * rgb[1], e * rgb[2]);
+		return true;
+	}
+
+	/**
+	 * Schedules a snapshot of the exposure on the specified {@link ExposureWriter}.
+	 * This never blocks the caller.
+	 */
+	public boolean saveExposure(ExposureWriter writer, String file) {
+		return writer.submit(exposure, file);
+	}
+
+	/**
+	 * Piecewise linear approximation of the visible spectrum.
+	 *
+	 * @param nm  Wavelength, in nanometers.
+	 */
+	protected static float[] wavelengthToRGB(double nm) {
+		double r, g, b;
+
+		if (nm < 380 || nm > 780) {
+			return new float[3];
+		} else if (nm < 440) {
+			r = (440 - nm) / 60; g = 0.0; b = 1.0;
+		} else if (nm < 490) {
+			r = 0.0; g = (nm - 440) / 50; b = 1.0;
+		} else if (nm < 510) {
+			r = 0.0; g = 1.0; b = (510 - nm) / 20;
+		} else if (nm < 580) {
+			r = (nm - 510) / 70; g = 1.0; b = 0.0;
+		} else if (nm < 645) {
+			r = 1.0; g = (645 - nm) / 65; b = 0.0;
+		} else {
+			r = 1.0; g = 0.0; b = 0.0;
+		}
+
+		return new float[] { (float) r, (float) g, (float) b };
+	}
+}
@@ -1,5 +1,6 @@
 package com.almostrealism.physics;
 
+import com.almostrealism.raytracer.RandomContext;
 import org.almostrealism.light.LightBulb;
 import org.almostrealism.algebra.VectorFeatures;
 import org.almostrealism.physics.Clock;
@@ -43,7 +44,7 @@ public class HarmonicAbsorberExperiment {
 		l.setPower(LightBulb.wattsToEvMsec * 0.01);
 
 		// Add black body and light bulb to absorber set
-		AbsorberHashSet a = new AbsorberHashSet();
+		AbsorberHashSet a = new GridAbsorberHashSet();
 		a.setBound(3.0 * Math.pow(10.0, 1.0));
 		a.addAbsorber(b, o.vector(0.5, 0.0, 0.0));
 		a.addAbsorber(l, o.vector(-1.0, 0.0, 0.0));
@@ -70,7 +71,7 @@ public class HarmonicAbsorberExperiment {
 		while (true) {
 			c.tick().get().run();
 
-			if (Math.random() < verbose) {
+			if (RandomContext.nextDouble() < verbose) {
 				int rate = (int) ((System.currentTimeMillis() - start) /
 						(60 * 60000 * c.getTime()));
 
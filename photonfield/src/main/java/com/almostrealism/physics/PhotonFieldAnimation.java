@@ -16,7 +16,7 @@ public class PhotonFieldAnimation<T extends ShadableSurface> extends RayTracedAn
 	private final AbsorberHashSet absorber;
 
 	public PhotonFieldAnimation() {
-		absorber = new AbsorberHashSet();
+		absorber = new GridAbsorberHashSet();
 
 		// Create photon field and set absorber to the absorber set
 		// containing the black body and the light bulb
@@ -19,6 +19,7 @@ package com.almostrealism.physics;
 
 import com.almostrealism.geometry.Sphere;
 import org.almostrealism.light.PlanarLight;
+import com.almostrealism.raytracer.RandomContext;
 import com.almostrealism.stats.UniformHemisphericalDistribution;
 import io.almostrealism.relation.Producer;
 import org.almostrealism.CodeFeatures;
@@ -34,7 +35,6 @@ import org.almostrealism.physics.Fast;
 import org.almostrealism.physics.PhotonField;
 import org.almostrealism.physics.PhysicalConstants;
 import org.almostrealism.physics.VolumeAbsorber;
-import org.almostrealism.primitives.AbsorptionPlane;
 import org.almostrealism.primitives.Pinhole;
 import org.almostrealism.primitives.Plane;
 import org.almostrealism.raytrace.AbsorberHashSet;
@@ -44,7 +44,6 @@ import org.almostrealism.stats.SphericalProbabilityDistribution;
 import org.almostrealism.utils.PriorityQueue;
 
 import javax.swing.*;
-import java.io.IOException;
 
 /**
  * A {@link SpecularAbsorber} is an {@link Absorber} implementation that absorbs photons
@@ -88,13 +87,8 @@ public class SpecularAbsorber extends VolumeAbsorber
 		
 		VolumeAbsorber bl = new VolumeAbsorber(new Sphere(x / 8.0), new BlackBody());
 		
-		AbsorptionPlane plane = new AbsorptionPlane();
-		plane.setPixelSize(x / 300.0);
-		plane.setWidth(300);
-		plane.setHeight(300);
-		plane.setThickness(0.05);
-		plane.setSurfaceNormal(Ops.o().vector(0.0, 0.0, -1.0));
-		plane.setOrientation(new double[] {0.0, 1.0, 0.0});
+		HDRAbsorptionPlane plane = new HDRAbsorptionPlane(300, 300, x / 300.0, 0.05,
+								new Vector(0.0, 0.0, -1.0), new Vector(0.0, 1.0, 0.0));
 
 		Pinhole pinhole = new Pinhole();
 		pinhole.setRadius(x / 8.0);
@@ -112,7 +106,7 @@ public class SpecularAbsorber extends VolumeAbsorber
 		l.setLightPropagation(false);
 		
 		// Add SpecularAbsorber and light bulb to absorber set
-		AbsorberHashSet a = new AbsorberHashSet();
+		AbsorberHashSet a = new GridAbsorberHashSet();
 		a.setBound(2.0 * x);
 		a.addAbsorber(b, Ops.o().vector(0.0, -x, 0.0));
 		// a.addAbsorber(bl, new double[] {0.0, 0.0, 0.0});
@@ -136,25 +130,21 @@ public class SpecularAbsorber extends VolumeAbsorber
 		frame.setVisible(true);
 		
 		
+		ExposureWriter writer = new ExposureWriter();
 		long start = System.currentTimeMillis();
 		
 		// Run the simulation and print out flux measurements every second
 		while (true) {
 			c.tick().get().run();
 			
-			if (Math.random() < SpecularAbsorber.verbose) {
+			if (RandomContext.nextDouble() < SpecularAbsorber.verbose) {
 				int rate = (int) ((System.currentTimeMillis() - start) /
 									(60 * 60000 * c.getTime()));
 				
 				System.out.println("[" + c.getTime() + "]: " + rate +
 									" hours per microsecond.");
 				
-				try {
-					plane.saveImage("specular-sim.jpg");
-				} catch (IOException ioe) {
-					System.out.println("SpecularAbsorber: Could not write image (" +
-										ioe.getMessage() + ")");
-				}
+				plane.saveExposure(writer, "specular-sim.pfm");
 			}
 		}
 	}
@@ -181,7 +171,7 @@ public class SpecularAbsorber extends VolumeAbsorber
 			}
 		}
 		
-		double r = Math.random();
+		double r = RandomContext.nextDouble();
 		double tempwave = (HC) / Energy;
 		
 		if (r < SpecularAbsorber.verbose)
@@ -194,7 +184,7 @@ public class SpecularAbsorber extends VolumeAbsorber
 		}
 		
 		if (this.spectra != null) {
-			if (Math.random() < (1 - this.spectra.getProbability(tempwave))) {
+			if (RandomContext.nextDouble() < (1 - this.spectra.getProbability(tempwave))) {
 				return true;
 			}
 		}
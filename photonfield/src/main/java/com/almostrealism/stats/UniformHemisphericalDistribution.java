@@ -16,20 +16,27 @@
 
 package com.almostrealism.stats;
 
+import com.almostrealism.raytracer.RandomContext;
 import io.almostrealism.relation.Producer;
 import org.almostrealism.CodeFeatures;
 import org.almostrealism.algebra.Vector;
 import org.almostrealism.collect.PackedCollection;
-import org.almostrealism.geometry.UniformSphericalRandom;
 import org.almostrealism.space.Length;
 import org.almostrealism.stats.SphericalProbabilityDistribution;
 
+import java.util.SplittableRandom;
+
 public class UniformHemisphericalDistribution implements SphericalProbabilityDistribution, Length, CodeFeatures {
 	private double m = 1.0;
 
 	@Override
 	public Producer<PackedCollection> getSample(double[] in, double[] orient) {
-		Vector r = UniformSphericalRandom.getInstance().evaluate(new Object[0]);
+		SplittableRandom random = RandomContext.current();
+		double z = 2.0 * random.nextDouble() - 1.0;
+		double phi = 2.0 * Math.PI * random.nextDouble();
+		double s = Math.sqrt(1.0 - z * z);
+
+		Vector r = new Vector(s * Math.cos(phi), s * Math.sin(phi), z);
 		if (new Vector(orient).dotProduct(r) < 0) r.multiplyBy(-1.0);
 		if (m != 1.0) r.multiplyBy(m);
 		return v(r);
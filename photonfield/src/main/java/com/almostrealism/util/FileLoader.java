@@ -16,6 +16,9 @@
 
 package com.almostrealism.util;
 
+import com.almostrealism.raytracer.RandomContext;
+import com.almostrealism.physics.ExposureWriter;
+import com.almostrealism.physics.GridAbsorberHashSet;
 import org.almostrealism.raytrace.AbsorberHashSet;
 import org.almostrealism.physics.AbsorberSet;
 import org.almostrealism.raytrace.DefaultPhotonField;
@@ -174,6 +177,8 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 			f.setLogFrequency(500);
 		}
 		
+		ExposureWriter writer = new ExposureWriter();
+		
 		long start = System.currentTimeMillis();
 		String uri = "PhotonField/" + start + ".xml";
 //		PhotonFieldSceneLoader.putCache(uri, ((AbsorberHashSet) a).getRayTracer().getScene());
@@ -197,7 +202,7 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 				System.out.println("FileLoader: Added ray tracing task.");
 			}
 			
-			if (Math.random() < FileLoader.verbose) {
+			if (RandomContext.nextDouble() < FileLoader.verbose) {
 				int rate = (int) ((System.currentTimeMillis() - start) /
 									(60 * 60000 * c.getTime()));
 				
@@ -206,12 +211,7 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 				
 				if (noFile) continue c;
 				
-				try {
-					plane.saveImage("photon-field-sim.ppm");
-				} catch (IOException ioe) {
-					System.out.println("FileLoader: Could not write image (" +
-										ioe.getMessage() + ")");
-				}
+				writer.submit(plane, "photon-field-sim.ppm");
 			}
 		}
 	}
@@ -340,7 +340,7 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 			String type = attr.getValue("classname");
 			
 			if (type == null) {
-				s = new AbsorberHashSet();
+				s = new GridAbsorberHashSet();
 			} else {
 				try {
 					s = (AbsorberSet) Class.forName(type).newInstance();
@@ -357,8 +357,8 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 				}
 				
 				if (s == null) {
-					System.out.println("FileLoader: Using AbsorberHashSet.");
-					s = new AbsorberHashSet();
+					System.out.println("FileLoader: Using GridAbsorberHashSet.");
+					s = new GridAbsorberHashSet();
 				}
 			}
 			
@@ -396,7 +396,7 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 				this.pdesc = null;
 				
 				if (this.set == null) {
-					this.set = new AbsorberHashSet();
+					this.set = new GridAbsorberHashSet();
 					System.out.println("FileLoader: Created top level set.");
 				}
 				
@@ -506,7 +506,7 @@ public class FileLoader extends DefaultHandler implements CodeFeatures {
 			}
 			
 			if (s == null) {
-				this.lset = new AbsorberHashSet();
+				this.lset = new GridAbsorberHashSet();
 				this.lset.addAbsorber(this.set, ZeroVector.getInstance());
 				this.lset = s;
 			} else {
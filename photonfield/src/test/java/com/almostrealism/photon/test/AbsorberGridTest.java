@@ -0,0 +1,240 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.photon.test;
+
+import com.almostrealism.geometry.Sphere;
+import com.almostrealism.physics.AbsorberGrid;
+import com.almostrealism.physics.GridAbsorberHashSet;
+import org.almostrealism.algebra.Vector;
+import org.almostrealism.physics.BlackBody;
+import org.almostrealism.physics.VolumeAbsorber;
+import org.almostrealism.raytrace.AbsorberHashSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class AbsorberGridTest {
+	private static class Ball {
+		private final double[] center;
+		private final double radius;
+
+		Ball(double[] center, double radius) {
+			this.center = center;
+			this.radius = radius;
+		}
+
+		boolean inside(double[] x) {
+			return distance(x, center) <= radius;
+		}
+
+		boolean crosses(double[] x, double[] d, double distance) {
+			double len = Math.sqrt(dot(d, d));
+			double t = 0.0;
+			for (int i = 0; i < 3; i++) t += (center[i] - x[i]) * d[i] / len;
+			t = Math.max(0.0, Math.min(distance, t));
+
+			double[] p = new double[3];
+			for (int i = 0; i < 3; i++) p[i] = x[i] + t * d[i] / len;
+			return distance(p, center) <= radius;
+		}
+
+		Vector getCenter() { return vector(center); }
+	}
+
+	private static double dot(double[] a, double[] b) {
+		return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+	}
+
+	private static double distance(double[] a, double[] b) {
+		double[] d = { a[0] - b[0], a[1] - b[1], a[2] - b[2] };
+		return Math.sqrt(dot(d, d));
+	}
+
+	private static Vector vector(double[] v) {
+		return new Vector(v[0], v[1], v[2]);
+	}
+
+	private List<Ball> balls(Random r, int count) {
+		List<Ball> balls = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			balls.add(new Ball(random(r, 50.0), 0.5 + r.nextDouble() * 3.0));
+		}
+
+		return balls;
+	}
+
+	private double[] random(Random r, double scale) {
+		return new double[] { scale * (r.nextDouble() - 0.5),
+							scale * (r.nextDouble() - 0.5),
+							scale * (r.nextDouble() - 0.5) };
+	}
+
+	@Test
+	public void insideMatchesLinearScan() {
+		Random r = new Random(1);
+		List<Ball> balls = balls(r, 300);
+
+		AbsorberGrid<Ball> grid = new AbsorberGrid<>(4.0);
+		balls.forEach(b -> grid.add(b, b.getCenter(), b.radius));
+
+		for (int i = 0; i < 2000; i++) {
+			double[] x = random(r, 50.0);
+
+			Set<Ball> expected = balls.stream().filter(b -> b.inside(x)).collect(Collectors.toSet());
+			Set<Ball> actual = grid.candidates(vector(x)).stream().filter(b -> b.inside(x)).collect(Collectors.toSet());
+			Assert.assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void pathMatchesLinearScan() {
+		Random r = new Random(2);
+		List<Ball> balls = balls(r, 300);
+
+		AbsorberGrid<Ball> grid = new AbsorberGrid<>(4.0);
+		balls.forEach(b -> grid.add(b, b.getCenter(), b.radius));
+
+		for (int i = 0; i < 2000; i++) {
+			double[] x = random(r, 50.0);
+			double[] d = random(r, 1.0);
+			double distance = r.nextDouble() * 20.0;
+
+			Set<Ball> expected = balls.stream().filter(b -> b.crosses(x, d, distance)).collect(Collectors.toSet());
+			Set<Ball> actual = grid.candidates(vector(x), vector(d), distance).stream()
+					.filter(b -> b.crosses(x, d, distance)).collect(Collectors.toSet());
+			Assert.assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void removal() {
+		Random r = new Random(3);
+		List<Ball> balls = balls(r, 100);
+
+		AbsorberGrid<Ball> grid = new AbsorberGrid<>(4.0);
+		balls.forEach(b -> grid.add(b, b.getCenter(), b.radius));
+
+		for (int i = 0; i < 50; i++) {
+			Assert.assertTrue(grid.remove(balls.get(i)));
+		}
+
+		List<Ball> remaining = balls.subList(50, 100);
+		Assert.assertEquals(remaining.size(), grid.size());
+
+		for (int i = 0; i < 1000; i++) {
+			double[] x = random(r, 50.0);
+
+			Set<Ball> expected = remaining.stream().filter(b -> b.inside(x)).collect(Collectors.toSet());
+			Set<Ball> actual = grid.candidates(vector(x)).stream().filter(b -> b.inside(x)).collect(Collectors.toSet());
+			Assert.assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void setKeepsGridInSync() {
+		GridAbsorberHashSet set = new GridAbsorberHashSet(4.0);
+
+		VolumeAbsorber near = new VolumeAbsorber(new Sphere(1.0), new BlackBody());
+		VolumeAbsorber far = new VolumeAbsorber(new Sphere(1.0), new BlackBody());
+		AbsorberHashSet unbounded = new AbsorberHashSet();
+
+		set.addBoundedAbsorber(near, new Vector(0.0, 0.0, 0.0), 1.0);
+		set.addAbsorber(far, set.vector(20.0, 0.0, 0.0));
+		set.addAbsorber(unbounded, set.vector(-20.0, 0.0, 0.0));
+		Assert.assertEquals(3, set.getGrid().size());
+
+		Set<?> candidates = set.candidates(new Vector(0.5, 0.0, 0.0));
+		Assert.assertTrue(candidates.contains(near));
+		Assert.assertTrue(candidates.contains(unbounded));
+		Assert.assertFalse(candidates.contains(far));
+
+		Assert.assertSame(far, set.nearest(new Vector(10.0, 0.0, 0.0), new Vector(1.0, 0.0, 0.0), 15.0));
+		Assert.assertSame(near, set.nearest(new Vector(10.0, 0.0, 0.0), new Vector(-1.0, 0.0, 0.0), 15.0));
+
+		set.removeAbsorber(near);
+		Assert.assertEquals(2, set.getGrid().size());
+		Assert.assertFalse(set.candidates(new Vector(0.5, 0.0, 0.0)).contains(near));
+		Assert.assertNull(set.nearest(new Vector(10.0, 0.0, 0.0), new Vector(-1.0, 0.0, 0.0), 15.0));
+	}
+
+	@Test
+	public void absorbMatchesAbsorberHashSet() {
+		Random r = new Random(4);
+		List<Vector> absorbed = new ArrayList<>();
+
+		AbsorberHashSet expected = new AbsorberHashSet();
+		GridAbsorberHashSet actual = new GridAbsorberHashSet(2.0);
+
+		// Spheres on a lattice with a spacing of 4 never overlap,
+		// so at most one of them can take any photon
+		for (int i = 0; i < 5; i++) {
+			for (int j = 0; j < 5; j++) {
+				for (int k = 0; k < 5; k++) {
+					double radius = 0.5 + r.nextDouble() * 1.4;
+					Vector position = new Vector(4.0 * i, 4.0 * j, 4.0 * k);
+					expected.addAbsorber(new Recording(radius, position, absorbed), expected.vector(position));
+					actual.addAbsorber(new Recording(radius, position, absorbed), actual.vector(position));
+				}
+			}
+		}
+
+		int hits = 0;
+
+		for (int i = 0; i < 2000; i++) {
+			Vector x = new Vector(20.0 * r.nextDouble() - 2.0, 20.0 * r.nextDouble() - 2.0, 20.0 * r.nextDouble() - 2.0);
+			Vector p = new Vector(0.0, 0.0, 1.0);
+
+			absorbed.clear();
+			boolean e = expected.absorb(x, p, 1.0);
+			List<Vector> e1 = new ArrayList<>(absorbed);
+
+			absorbed.clear();
+			boolean a = actual.absorb(x, p, 1.0);
+			List<Vector> a1 = new ArrayList<>(absorbed);
+
+			Assert.assertEquals(e, a);
+			Assert.assertEquals(e1, a1);
+			if (e) hits++;
+		}
+
+		Assert.assertTrue(hits > 0);
+	}
+
+	private static class Recording extends VolumeAbsorber {
+		private final Vector position;
+		private final List<Vector> absorbed;
+
+		Recording(double radius, Vector position, List<Vector> absorbed) {
+			super(new Sphere(radius), new BlackBody());
+			this.position = position;
+			this.absorbed = absorbed;
+		}
+
+		@Override
+		public boolean absorb(Vector x, Vector p, double energy) {
+			boolean result = super.absorb(x, p, energy);
+			if (result) absorbed.add(position);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.photon.test;
+
+import com.almostrealism.geometry.Box;
+import com.almostrealism.geometry.IntersectionKernels;
+import com.almostrealism.geometry.Sphere;
+import org.almostrealism.algebra.Vector;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class IntersectionKernelsTest {
+	private static final int COUNT = 4096;
+
+	private final double[] px = new double[COUNT], py = new double[COUNT], pz = new double[COUNT];
+	private final double[] dx = new double[COUNT], dy = new double[COUNT], dz = new double[COUNT];
+	private final double[] out = new double[COUNT];
+
+	private void rays(long seed, double scale) {
+		Random r = new Random(seed);
+
+		for (int i = 0; i < COUNT; i++) {
+			px[i] = scale * (r.nextDouble() - 0.5);
+			py[i] = scale * (r.nextDouble() - 0.5);
+			pz[i] = scale * (r.nextDouble() - 0.5);
+			dx[i] = r.nextGaussian();
+			dy[i] = r.nextGaussian();
+			dz[i] = r.nextGaussian();
+		}
+	}
+
+	/**
+	 * The original object based intersection, using {@link Vector} division.
+	 */
+	private static double sphere(double radius, Vector p, Vector d) {
+		p = p.divide(radius);
+		d = d.divide(radius);
+		double b = p.dotProduct(d);
+		double c = p.dotProduct(p);
+		double g = d.dotProduct(d);
+
+		double discriminantSqrt = Math.sqrt((b * b) - (g) * (c - 1));
+
+		double t0 = (-b + discriminantSqrt) / (g);
+		double t1 = (-b - discriminantSqrt) / (g);
+
+		if (t0 < 0.0) t0 = Double.MAX_VALUE - 1.0;
+		if (t1 < 0.0) t1 = Double.MAX_VALUE - 1.0;
+
+		return Math.min(t0, t1);
+	}
+
+	@Test
+	public void sphereMatchesObjectPath() {
+		rays(1, 6.0);
+
+		Sphere s = new Sphere(2.0);
+		s.intersect(px, py, pz, dx, dy, dz, out, COUNT);
+
+		for (int i = 0; i < COUNT; i++) {
+			double expected = sphere(2.0, new Vector(px[i], py[i], pz[i]), new Vector(dx[i], dy[i], dz[i]));
+
+			if (Double.isNaN(expected)) {
+				Assert.assertTrue(Double.isNaN(out[i]));
+			} else {
+				Assert.assertEquals(expected, out[i], 1e-9 * Math.max(1.0, Math.abs(expected)));
+			}
+		}
+	}
+
+	@Test
+	public void boxMatchesMarching() {
+		rays(2, 6.0);
+
+		double hx = 1.0, hy = 1.5, hz = 2.0;
+		IntersectionKernels.box(hx, hy, hz, px, py, pz, dx, dy, dz, out, COUNT);
+
+		double step = 1e-3;
+
+		for (int i = 0; i < 512; i++) {
+			double len = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i]);
+			boolean start = inside(hx, hy, hz, px[i], py[i], pz[i]);
+			double expected = IntersectionKernels.MISS;
+
+			for (double t = step; t * len < 20.0; t += step) {
+				if (inside(hx, hy, hz, px[i] + t * dx[i], py[i] + t * dy[i], pz[i] + t * dz[i]) != start) {
+					expected = t;
+					break;
+				}
+			}
+
+			if (expected == IntersectionKernels.MISS) {
+				Assert.assertTrue(out[i] == IntersectionKernels.MISS || out[i] * len >= 20.0 - step);
+			} else {
+				Assert.assertEquals(expected, out[i], step);
+			}
+		}
+	}
+
+	@Test
+	public void sphereScalarMatchesBatch() {
+		rays(3, 6.0);
+
+		Sphere s = new Sphere(2.0);
+		s.intersect(px, py, pz, dx, dy, dz, out, COUNT);
+
+		for (int i = 0; i < COUNT; i++) {
+			double expected = s.intersect(new Vector(px[i], py[i], pz[i]), new Vector(dx[i], dy[i], dz[i]));
+			Assert.assertEquals(0, Double.compare(expected, out[i]));
+		}
+	}
+
+	@Test
+	public void boxBatchMatchesScalar() {
+		rays(4, 6.0);
+
+		Box box = new Box();
+		box.setWidth(2.0);
+		box.setHeight(3.0);
+		box.setDepth(4.0);
+		box.setOrientation(new double[] { 0.0, 0.0, 1.0 });
+		box.setSurfaceNormal(new double[] { 0.0, -1.0, 0.0 });
+		box.makeWalls(true);
+
+		box.intersect(px, py, pz, dx, dy, dz, out, COUNT);
+
+		int misses = 0, inside = 0, hits = 0;
+
+		for (int i = 0; i < COUNT; i++) {
+			double expected = box.intersect(new Vector(px[i], py[i], pz[i]), new Vector(dx[i], dy[i], dz[i]));
+
+			if (expected == IntersectionKernels.MISS) {
+				Assert.assertEquals(IntersectionKernels.MISS, out[i], 0.0);
+				misses++;
+			} else {
+				Assert.assertEquals(expected, out[i], 1e-9 * Math.max(1.0, expected));
+
+				if (inside(1.0, 1.5, 2.0, px[i], py[i], pz[i])) {
+					inside++;
+				} else {
+					hits++;
+				}
+			}
+		}
+
+		Assert.assertTrue(misses > 0);
+		Assert.assertTrue(inside > 0);
+		Assert.assertTrue(hits > 0);
+	}
+
+	private static boolean inside(double hx, double hy, double hz, double x, double y, double z) {
+		return Math.abs(x) <= hx && Math.abs(y) <= hy && Math.abs(z) <= hz;
+	}
+}
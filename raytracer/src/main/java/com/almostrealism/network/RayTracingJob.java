@@ -16,6 +16,7 @@
 
 package com.almostrealism.network;
 
+import com.almostrealism.raytracer.RandomContext;
 import com.almostrealism.raytracer.Settings;
 import io.almostrealism.relation.Producer;
 import io.flowtree.job.Job;
@@ -101,6 +102,7 @@ public class RayTracingJob implements Job, CodeFeatures {
 	private int outputPort = 7788;
 
 	private String jobId;
+	private long seed = RandomContext.getSeed();
 
 	private double pw = -1.0, ph = -1.0;
 	private double fl = -1.0;
@@ -354,6 +356,15 @@ public class RayTracingJob implements Job, CodeFeatures {
 
 	public void setOutputPort(int port) { this.outputPort = port; }
 
+	/**
+	 * Sets the seed of the random streams used to render this job. It defaults to the
+	 * seed of the {@link RandomContext} where the job is created, and is included in
+	 * {@link #encode()} so that every node renders its tiles with the same seed.
+	 */
+	public void setSeed(long seed) { this.seed = seed; }
+
+	public long getSeed() { return this.seed; }
+
 	public int getOutputPort() { return this.outputPort; }
 	
 	/**
@@ -390,6 +401,8 @@ public class RayTracingJob implements Job, CodeFeatures {
 		s.append(this.ssh);
 		s.append(":id=");
 		s.append(this.jobId);
+		s.append(":seed=");
+		s.append(this.seed);
 
 		if (this.outputHost != null) {
 			s.append(":oh=");
@@ -474,6 +487,8 @@ public class RayTracingJob implements Job, CodeFeatures {
 			this.ssh = Integer.parseInt(value);
 		else if (key.equals("id"))
 			this.jobId = value;
+		else if (key.equals("seed"))
+			this.seed = Long.parseLong(value);
 		else if (key.equals("oh"))
 			this.outputHost = value;
 		else if (key.equals("op"))
@@ -521,6 +536,16 @@ public class RayTracingJob implements Job, CodeFeatures {
 	 */
 	@Override
 	public void run() {
+		RandomContext.bind(RandomContext.seeded(this.seed, this.x, this.y));
+
+		try {
+			render();
+		} finally {
+			RandomContext.unbind();
+		}
+	}
+
+	protected void render() {
 		Scene<ShadableSurface> s = this.getScene();
 		
 		if (RayTracingJob.verboseRender)
@@ -16,6 +16,7 @@
 
 package com.almostrealism.network;
 
+import com.almostrealism.raytracer.RandomContext;
 import io.flowtree.job.Job;
 import io.flowtree.job.JobFactory;
 import org.almostrealism.io.OutputHandler;
@@ -39,6 +40,7 @@ public class RayTracingJobFactory implements JobFactory {
 	private double clx, cly, clz;
 	private double cdx, cdy, cdz;
 	private String taskId;
+	private long seed = RandomContext.getSeed();
 	private int totalJobs, nullCount;
 
 	private String outputHost;
@@ -92,6 +94,9 @@ public class RayTracingJobFactory implements JobFactory {
 	public void setOutputPort(int port) { this.outputPort = port; }
 	public int getOutputPort() { return this.outputPort; }
 
+	public void setSeed(long seed) { this.seed = seed; }
+	public long getSeed() { return this.seed; }
+
 	public void setProjectionWidth(double pw) { this.pw = pw; }
 	public void setProjectionHeight(double ph) { this.ph = ph; }
 	public void setFocalLength(double fl) { this.fl = fl; }
@@ -181,6 +186,7 @@ public class RayTracingJobFactory implements JobFactory {
 		if (this.sLoader != null) j.setSceneLoader(this.sLoader);
 		j.setOutputHost(outputHost);
 		j.setOutputPort(outputPort);
+		j.setSeed(seed);
 		
 		j.set("pw", String.valueOf(this.pw));
 		j.set("ph", String.valueOf(this.ph));
@@ -244,6 +250,8 @@ public class RayTracingJobFactory implements JobFactory {
 		buf.append(this.jobSize);
 		buf.append(":id=");
 		buf.append(this.taskId);
+		buf.append(":seed=");
+		buf.append(this.seed);
 		
 		if (this.pw != -1) {
 			buf.append(":pw=");
@@ -312,6 +320,8 @@ public class RayTracingJobFactory implements JobFactory {
 			this.ssWidth = Integer.parseInt(value);
 		} else if (key.equals("sh")) {
 			this.ssHeight = Integer.parseInt(value);
+		} else if (key.equals("seed")) {
+			this.seed = Long.parseLong(value);
 		} else if (key.equals("pw")) {
 			this.pw = Double.parseDouble(value);
 		} else if (key.equals("ph")) {
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.raytracer;
+
+import java.util.SplittableRandom;
+
+/**
+ * The {@link RandomContext} provides seeded, splittable random number streams for the
+ * ray tracing and photon field code, in place of {@link Math#random()}. Every thread
+ * draws from its own stream, so sampling never contends on a shared generator, and
+ * streams requested with {@link #stream(long...)} depend only on the seed and the ids
+ * given (for example a tile's coordinates), so a distributed re-render of one tile
+ * reproduces exactly the same samples.
+ * <p>
+ * The seed is read from the "ar.random.seed" system property, if present, and can be
+ * changed with {@link #setSeed(long)} before any sampling begins.
+ *
+ * @author  Michael Murray
+ */
+public class RandomContext {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private static volatile long seed = Long.getLong("ar.random.seed", System.nanoTime());
+	private static volatile int generation;
+
+	private static final ThreadLocal<Local> local = ThreadLocal.withInitial(Local::new);
+
+	private RandomContext() { }
+
+	public static long getSeed() { return seed; }
+
+	/**
+	 * Sets the seed for all streams. Per-thread streams are recreated the next time each
+	 * thread requests a random number.
+	 */
+	public static synchronized void setSeed(long s) {
+		seed = s;
+		generation++;
+	}
+
+	/**
+	 * Returns the stream for the current thread. Threads are numbered in the order in which
+	 * they first request a stream, so the per-thread streams are only reproducible when the
+	 * threads start in a deterministic order; use {@link #stream(long...)} where that is not
+	 * the case.
+	 */
+	public static SplittableRandom current() {
+		Local l = local.get();
+		if (l.generation != generation) l.reset();
+		return l.random;
+	}
+
+	/**
+	 * Returns a new stream which depends only on the seed and the specified ids.
+	 */
+	public static SplittableRandom stream(long... ids) {
+		return seeded(seed, ids);
+	}
+
+	/**
+	 * Returns a new stream which depends only on the specified seed and ids, rather than
+	 * on the seed of this JVM. This is used for work which carries its own seed, such as
+	 * a job received from another node.
+	 */
+	public static SplittableRandom seeded(long seed, long... ids) {
+		long s = mix(seed);
+		for (long id : ids) s = mix(s + GOLDEN_GAMMA * (id + 1));
+		return new SplittableRandom(s);
+	}
+
+	/**
+	 * Makes the specified stream the current thread's stream, until the seed is changed,
+	 * another stream is bound or {@link #unbind()} is called. This is used to give each
+	 * unit of work (such as a tile of a render) its own reproducible stream regardless of
+	 * which thread performs it.
+	 */
+	public static void bind(SplittableRandom random) {
+		Local l = local.get();
+		l.generation = generation;
+		l.random = random;
+	}
+
+	/**
+	 * Returns the current thread to its own stream, so that a stream bound for one unit
+	 * of work is not used by later work on the same (pooled) thread.
+	 */
+	public static void unbind() {
+		local.get().reset();
+	}
+
+	/**
+	 * Returns a uniformly distributed value in [0, 1) from the current thread's stream.
+	 */
+	public static double nextDouble() {
+		return current().nextDouble();
+	}
+
+	/**
+	 * SplitMix64 finalizer.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static int threads;
+
+	private static synchronized int nextThread() { return threads++; }
+
+	private static class Local {
+		private final int thread = nextThread();
+		private int generation = -1;
+		private SplittableRandom random;
+
+		void reset() {
+			generation = RandomContext.generation;
+			random = stream(-1, thread);
+		}
+	}
+}
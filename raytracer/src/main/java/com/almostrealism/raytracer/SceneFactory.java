@@ -35,6 +35,7 @@ import org.almostrealism.space.Scene;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * The {@link SceneFactory} class provides static utility methods for getting commonly
@@ -45,30 +46,41 @@ import java.util.List;
  */
 public class SceneFactory implements Factory<Scene<ShadableSurface>> {
 	private final ProbabilisticFactory<ShadableSurface> surfaces;
+	private final SplittableRandom random;
 	
 	public SceneFactory() {
 		this(new ProjectedChromosome(new PackedCollection().randFill()));
 	}
 	
 	public SceneFactory(Chromosome<PackedCollection> c) {
+		this(c, RandomContext.current().split());
+	}
+	
+	/**
+	 * Constructs a {@link SceneFactory} which draws locations, sizes and colors
+	 * from the specified stream, so that the scenes it produces are reproducible.
+	 */
+	public SceneFactory(Chromosome<PackedCollection> c, SplittableRandom random) {
+		this.random = random;
+		
 		List<Factory<ShadableSurface>> f =
 				List.of(
-						() -> new Sphere(location(), Math.random(), color())
+						() -> new Sphere(location(), random.nextDouble(), color())
 				);
 		
 		surfaces = new ProbabilisticFactory<>(f, c.valueAt(0));
 	}
 	
-	private int count() { return (int) (2 + Math.random() * 4); }
+	private int count() { return (int) (2 + random.nextDouble() * 4); }
 	
 	private Vector location() {
-		return new Vector((Math.random() * 10) - 5,
-							(Math.random() * 5),
-							(Math.random() * 10) - 5);
+		return new Vector((random.nextDouble() * 10) - 5,
+							(random.nextDouble() * 5),
+							(random.nextDouble() * 10) - 5);
 	}
 	
 	/** TODO  Use {@link RandomColorGenerator}. */
-	private RGB color() { return new RGB(Math.random(), Math.random(), Math.random()); }
+	private RGB color() { return new RGB(random.nextDouble(), random.nextDouble(), random.nextDouble()); }
 	
 	/**
 	 * @see io.almostrealism.relation.Factory#construct()
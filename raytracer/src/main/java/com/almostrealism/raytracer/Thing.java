@@ -30,7 +30,7 @@ public class Thing extends AbstractSurface implements ScalarFeatures {
 
 	@Override
 	public ContinuousField intersectAt(Producer ray) {
-		if (Math.random() > 0.5) {
+		if (RandomContext.nextDouble() > 0.5) {
 			return this.p.intersectAt(ray);
 		} else {
 			return new ShadableIntersection(this, ray, c(-1));
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.almostrealism.raytracer.test;
+
+import com.almostrealism.raytracer.RandomContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RandomContextTest {
+	private final long initialSeed = RandomContext.getSeed();
+
+	@After
+	public void restoreSeed() {
+		RandomContext.setSeed(initialSeed);
+	}
+
+	@Test
+	public void seededStreamsAreDeterministic() {
+		RandomContext.setSeed(42);
+		double[] first = draw(RandomContext.stream(3, 7), 16);
+
+		RandomContext.setSeed(7);
+		RandomContext.setSeed(42);
+		Assert.assertArrayEquals(first, draw(RandomContext.stream(3, 7), 16), 0.0);
+
+		RandomContext.setSeed(43);
+		Assert.assertFalse(equal(first, draw(RandomContext.stream(3, 7), 16)));
+	}
+
+	@Test
+	public void currentStreamIsResetBySeed() {
+		RandomContext.setSeed(42);
+		double[] first = new double[16];
+		for (int i = 0; i < first.length; i++) first[i] = RandomContext.nextDouble();
+
+		RandomContext.setSeed(42);
+		double[] second = new double[16];
+		for (int i = 0; i < second.length; i++) second[i] = RandomContext.nextDouble();
+
+		Assert.assertArrayEquals(first, second, 0.0);
+	}
+
+	@Test
+	public void streamsAreIndependent() {
+		RandomContext.setSeed(42);
+		double[] a = draw(RandomContext.stream(0, 1), 16);
+		double[] b = draw(RandomContext.stream(1, 0), 16);
+		Assert.assertFalse(equal(a, b));
+
+		// Drawing from another context does not change what a stream produces
+		RandomContext.stream(0, 1).nextDouble();
+		for (int i = 0; i < 100; i++) RandomContext.nextDouble();
+		Assert.assertArrayEquals(a, draw(RandomContext.stream(0, 1), 16), 0.0);
+	}
+
+	@Test
+	public void boundStreamIsPerThread() throws InterruptedException {
+		RandomContext.setSeed(42);
+		double[] expected = draw(RandomContext.stream(5), 16);
+
+		RandomContext.bind(RandomContext.stream(5));
+
+		AtomicReference<double[]> other = new AtomicReference<>();
+		Thread t = new Thread(() -> {
+			RandomContext.bind(RandomContext.stream(6));
+			double[] d = new double[16];
+			for (int i = 0; i < d.length; i++) d[i] = RandomContext.nextDouble();
+			other.set(d);
+		});
+		t.start();
+		t.join();
+
+		double[] actual = new double[16];
+		for (int i = 0; i < actual.length; i++) actual[i] = RandomContext.nextDouble();
+
+		Assert.assertArrayEquals(expected, actual, 0.0);
+		Assert.assertArrayEquals(draw(RandomContext.stream(6), 16), other.get(), 0.0);
+	}
+
+	@Test
+	public void seededStreamIgnoresContextSeed() {
+		RandomContext.setSeed(42);
+		double[] expected = draw(RandomContext.stream(3, 7), 16);
+
+		RandomContext.setSeed(43);
+		Assert.assertArrayEquals(expected, draw(RandomContext.seeded(42, 3, 7), 16), 0.0);
+	}
+
+	@Test
+	public void unbindRestoresThreadStream() {
+		RandomContext.setSeed(42);
+		double[] expected = new double[16];
+		for (int i = 0; i < expected.length; i++) expected[i] = RandomContext.nextDouble();
+
+		RandomContext.setSeed(42);
+		RandomContext.bind(RandomContext.stream(5));
+		RandomContext.nextDouble();
+		RandomContext.unbind();
+
+		double[] actual = new double[16];
+		for (int i = 0; i < actual.length; i++) actual[i] = RandomContext.nextDouble();
+		Assert.assertArrayEquals(expected, actual, 0.0);
+	}
+
+	private static double[] draw(SplittableRandom random, int count) {
+		double[] d = new double[count];
+		for (int i = 0; i < count; i++) d[i] = random.nextDouble();
+		return d;
+	}
+
+	private static boolean equal(double[] a, double[] b) {
+		return Arrays.equals(a, b);
+	}
+}
@@ -24,4 +24,10 @@ public interface AccessManager {
 	}
 
 	boolean authorize(String userId, String token, String key, String requestId);
+
+	/**
+	 * Returns a value which changes whenever the credentials the manager accepts may have
+	 * changed. The result of authorizing a key can be reused only while this is unchanged.
+	 */
+	default long getGeneration() { return 0; }
 }
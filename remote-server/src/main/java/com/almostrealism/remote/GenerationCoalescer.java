@@ -0,0 +1,374 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote;
+
+import com.almostrealism.remote.ops.CancellationToken;
+import com.almostrealism.remote.ops.Operation;
+import com.almostrealism.remote.ops.RemoteGenerate;
+import com.almostrealism.remote.ops.RemoteGenerate.GenerationOperation;
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.studio.generative.GenerationProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link GenerationCoalescer} merges {@link GenerationOperation}s for the same generator
+ * which are waiting in the {@link GenerationProviderQueue} into a single batch, so that the
+ * provider generates the results for all of them with one call. The provider is given the
+ * ID of every request in the batch, so that it can record each result under the ID of the
+ * request it belongs to and recognize a request it has already completed if that request
+ * is retried, alone or in another batch. Each operation receives
+ * only its own share of the results, with indices starting from zero, as they become
+ * available. An operation joins the batch which is waiting for its generator, if there is
+ * one and the batch has room for it, and otherwise starts a new one.
+ * <p>
+ * An operation with the same request ID as one which is waiting or running does not
+ * generate anything; it receives the same results as the original operation, including
+ * any which were delivered before it was submitted. An operation which is cancelled before
+ * its batch starts leaves the batch and ends immediately, without success. Once the batch
+ * has started, a cancelled operation receives no more results but only ends with the batch.
+ * A batch whose operations have all been cancelled is cancelled.
+ *
+ * @author  Michael Murray
+ */
+public class GenerationCoalescer {
+	public static int defaultMaxBatch = RemoteGenerate.MAX_GENERATION_COUNT;
+
+	private final GenerationProviderQueue queue;
+	private final int maxBatch;
+
+	private final Map<String, Batch> pending;
+	private final Map<String, Slot> current;
+
+	private final AtomicLong submitted;
+	private final AtomicLong attached;
+	private final AtomicLong invocations;
+
+	public GenerationCoalescer(GenerationProviderQueue queue) {
+		this(queue, defaultMaxBatch);
+	}
+
+	public GenerationCoalescer(GenerationProviderQueue queue, int maxBatch) {
+		this.queue = queue;
+		this.maxBatch = maxBatch;
+		this.pending = new HashMap<>();
+		this.current = new HashMap<>();
+		this.submitted = new AtomicLong();
+		this.attached = new AtomicLong();
+		this.invocations = new AtomicLong();
+	}
+
+	public GenerationProviderQueue getQueue() { return queue; }
+
+	/** Number of operations which have been accepted. */
+	public long getSubmitted() { return submitted.get(); }
+
+	/** Number of accepted operations which duplicated a request that was already waiting or running. */
+	public long getAttached() { return attached.get(); }
+
+	/** Number of batches passed to the provider. */
+	public long getInvocations() { return invocations.get(); }
+
+	/**
+	 * Submits the specified {@link GenerationOperation}, adding it to a waiting batch or
+	 * submitting a new batch to the {@link GenerationProviderQueue}.
+	 *
+	 * @return  True if the operation was accepted, false if it was already cancelled, if it
+	 *          reuses the request ID of a different operation or if the queue rejected it.
+	 */
+	public synchronized boolean submit(GenerationOperation op) {
+		if (op.getCancellationToken().isCancelled()) {
+			System.out.println("GenerationCoalescer: Request \"" + op.getRequestId() + "\" was cancelled before submission");
+			return false;
+		}
+
+		Slot slot = current.get(op.getRequestId());
+
+		if (slot != null) {
+			if (!slot.generatorId.equals(op.getGeneratorId()) || slot.count != op.getCount()) {
+				System.out.println("GenerationCoalescer: Request \"" + op.getRequestId() +
+						"\" does not match the request which is already being processed");
+				return false;
+			}
+
+			System.out.println("GenerationCoalescer: Attaching to request \"" + op.getRequestId() + "\"");
+			slot.attach(op);
+			attached.incrementAndGet();
+		} else {
+			Batch batch = pending.get(op.getGeneratorId());
+
+			if (batch == null || batch.getCount() + op.getCount() > maxBatch) {
+				batch = new Batch(op.getRequestId(), op.getGeneratorId(), op.getUserId());
+				slot = batch.add(op);
+
+				if (!queue.submit(batch)) return false;
+				pending.put(op.getGeneratorId(), batch);
+			} else {
+				System.out.println("GenerationCoalescer: Adding request \"" + op.getRequestId() +
+						"\" to batch \"" + batch.getRequestId() + "\"");
+				slot = batch.add(op);
+			}
+
+			current.put(op.getRequestId(), slot);
+		}
+
+		Slot s = slot;
+		s.unregister(op.getCancellationToken().onCancel(() -> cancel(s, op)));
+		submitted.incrementAndGet();
+		return true;
+	}
+
+	protected void cancel(Slot slot, GenerationOperation op) {
+		Batch batch = slot.batch;
+		boolean removed, empty;
+
+		synchronized (this) {
+			if (batch.started) {
+				removed = false;
+				empty = batch.isCancelled();
+			} else {
+				if (!slot.remove(op)) return;
+
+				removed = true;
+				current.remove(slot.requestId, slot);
+				empty = batch.remove(slot);
+				if (empty) pending.remove(batch.generatorId, batch);
+			}
+		}
+
+		if (removed) {
+			try {
+				op.getEnd().accept(false);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+
+		if (empty) {
+			System.out.println("GenerationCoalescer: Cancelling batch \"" + batch.getRequestId() + "\"");
+			batch.cancellation.cancel();
+		}
+	}
+
+	/**
+	 * A single call to the provider on behalf of one or more {@link Slot}s.
+	 */
+	private class Batch implements Operation {
+		private final String requestId;
+		private final String generatorId;
+		private final String userId;
+		private final CancellationToken cancellation;
+		private final List<Slot> slots;
+		private boolean started;
+
+		Batch(String requestId, String generatorId, String userId) {
+			this.requestId = requestId;
+			this.generatorId = generatorId;
+			this.userId = userId;
+			this.cancellation = new CancellationToken();
+			this.slots = new ArrayList<>();
+		}
+
+		@Override
+		public String getRequestId() { return requestId; }
+
+		@Override
+		public CancellationToken getCancellationToken() { return cancellation; }
+
+		/** The batch is scheduled on behalf of the user who started it. */
+		@Override
+		public String getUserId() { return userId; }
+
+		/** Called while holding the lock of the {@link GenerationCoalescer}. */
+		int getCount() {
+			return slots.stream().mapToInt(s -> s.count).sum();
+		}
+
+		/** Called while holding the lock of the {@link GenerationCoalescer}. */
+		Slot add(GenerationOperation op) {
+			Slot slot = new Slot(this, op.getRequestId(), op.getGeneratorId(), op.getCount());
+			slot.attach(op);
+			slots.add(slot);
+			return slot;
+		}
+
+		/**
+		 * Removes the specified {@link Slot}, if it has no operations left and the batch has
+		 * not started, and returns true if none of the batch's slots have operations left.
+		 * Called while holding the lock of the {@link GenerationCoalescer}.
+		 */
+		boolean remove(Slot slot) {
+			if (!started && slot.isEmpty()) slots.remove(slot);
+			return slots.stream().allMatch(Slot::isEmpty);
+		}
+
+		/**
+		 * Returns true if every operation of the batch has been cancelled.
+		 * Called while holding the lock of the {@link GenerationCoalescer}.
+		 */
+		boolean isCancelled() {
+			return slots.stream().allMatch(Slot::isCancelled);
+		}
+
+		@Override
+		public void accept(GenerationProvider provider) {
+			List<Slot> slots;
+
+			synchronized (GenerationCoalescer.this) {
+				pending.remove(generatorId, this);
+				started = true;
+				slots = new ArrayList<>(this.slots);
+			}
+
+			if (slots.isEmpty()) return;
+
+			int[] offsets = new int[slots.size() + 1];
+			for (int i = 0; i < slots.size(); i++) {
+				offsets[i + 1] = offsets[i] + slots.get(i).count;
+			}
+
+			// Every request keeps its own ID, so that the provider can recognize a
+			// request it has already completed, whether or not it was merged
+			List<String> ids = slots.stream().map(s -> s.requestId).toList();
+			int[] counts = slots.stream().mapToInt(s -> s.count).toArray();
+			if (slots.size() > 1) {
+				System.out.println("GenerationCoalescer: Generating " + offsets[slots.size()] + " results for " +
+						slots.size() + " requests to " + generatorId);
+			}
+
+			boolean success = false;
+			invocations.incrementAndGet();
+
+			try {
+				success = GenerationOperation.generate(provider, ids, counts, generatorId, (index, audio) -> {
+					for (int i = 0; i < slots.size(); i++) {
+						if (index < offsets[i + 1]) {
+							slots.get(i).deliver(index - offsets[i], audio);
+							return;
+						}
+					}
+				});
+			} finally {
+				synchronized (GenerationCoalescer.this) {
+					slots.forEach(s -> current.remove(s.requestId, s));
+				}
+
+				for (Slot s : slots) {
+					s.end(success);
+				}
+			}
+		}
+
+		@Override
+		public void discard() {
+			List<Slot> slots;
+
+			synchronized (GenerationCoalescer.this) {
+				pending.remove(generatorId, this);
+				started = true;
+				slots = new ArrayList<>(this.slots);
+				slots.forEach(s -> current.remove(s.requestId, s));
+			}
+
+			slots.forEach(s -> s.end(false));
+		}
+	}
+
+	/**
+	 * The share of a {@link Batch} for one request ID, which is delivered to every
+	 * operation with that ID.
+	 */
+	private static class Slot {
+		private final Batch batch;
+		private final String requestId;
+		private final String generatorId;
+		private final int count;
+
+		private final List<GenerationOperation> operations;
+		private final List<Runnable> unregister;
+		private final NoteAudio[] delivered;
+
+		Slot(Batch batch, String requestId, String generatorId, int count) {
+			this.batch = batch;
+			this.requestId = requestId;
+			this.generatorId = generatorId;
+			this.count = count;
+			this.operations = new ArrayList<>();
+			this.unregister = new ArrayList<>();
+			this.delivered = new NoteAudio[count];
+		}
+
+		synchronized boolean isEmpty() { return operations.isEmpty(); }
+
+		synchronized boolean isCancelled() {
+			return operations.stream().allMatch(op -> op.getCancellationToken().isCancelled());
+		}
+
+		/**
+		 * Adds an operation, first passing it any results which were already delivered.
+		 */
+		synchronized void attach(GenerationOperation op) {
+			for (int i = 0; i < delivered.length; i++) {
+				if (delivered[i] != null) receive(op, i, delivered[i]);
+			}
+
+			operations.add(op);
+		}
+
+		/**
+		 * Adds a cancellation listener to remove once the results have been delivered.
+		 */
+		synchronized void unregister(Runnable listener) {
+			unregister.add(listener);
+		}
+
+		synchronized boolean remove(GenerationOperation op) {
+			return operations.remove(op);
+		}
+
+		synchronized void deliver(int index, NoteAudio audio) {
+			delivered[index] = audio;
+			operations.forEach(op -> receive(op, index, audio));
+		}
+
+		synchronized void end(boolean success) {
+			unregister.forEach(Runnable::run);
+
+			for (GenerationOperation op : operations) {
+				try {
+					op.getEnd().accept(success);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		private static void receive(GenerationOperation op, int index, NoteAudio audio) {
+			if (op.getCancellationToken().isCancelled()) return;
+
+			try {
+				op.getOutput().receive(index, audio);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -16,48 +16,357 @@
 
 package com.almostrealism.remote;
 
+import com.almostrealism.remote.ops.CancellationToken;
 import com.almostrealism.remote.ops.Operation;
 import org.almostrealism.studio.generative.GenerationProvider;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * {@link GenerationProviderQueue} schedules {@link Operation}s against a {@link GenerationProvider}.
+ * Refresh (training) and generate operations are queued in separate {@link Lane}s, each with its
+ * own workers, so that a backlog of training jobs does not hold up interactive generation and a
+ * concurrent provider can generate while it trains. Within a lane,
+ * operations with a higher {@link Operation#getPriority() priority} run first and operations of
+ * equal priority are ordered fairly between {@link Operation#getUserId() users}: an operation is
+ * placed behind those of other users who had fewer operations outstanding in the lane when it
+ * was submitted, so one user submitting many operations does not delay everyone else, and
+ * otherwise operations run in the order they were submitted. Each lane accepts a bounded number
+ * of waiting operations and rejects any beyond that, rather than queueing without limit.
+ * <p>
+ * When an operation's {@link CancellationToken} is cancelled, the operation is removed from its
+ * lane if it has not started. If it is running, the worker thread is interrupted, which gives
+ * the {@link GenerationProvider} the chance to stop early (for example, by terminating a
+ * training process) and the worker is then returned to the lane.
+ * <p>
+ * By default the queue is concurrent: each lane is limited only by its own workers, so a
+ * long refresh never holds up a generate. Providers which give every job its own working
+ * directory are safe for this. A queue constructed as exclusive instead shares a single
+ * permit for the provider between the lanes, so only one operation runs against it at a
+ * time regardless of how many workers each lane has. The lanes still keep their own
+ * ordering, capacity and metrics, and the time a worker spends waiting for the permit is
+ * included in its lane's wait time.
+ *
+ * @author  Michael Murray
+ */
 public class GenerationProviderQueue {
-	private final ExecutorService executor;
+	public static int defaultRefreshWorkers = 1;
+	public static int defaultGenerateWorkers = 1;
+	public static int defaultCapacity = 64;
+	public static boolean defaultConcurrent = true;
+
+	public enum Lane {
+		REFRESH, GENERATE
+	}
+
 	private final GenerationProvider provider;
-	private final List<String> currentRequests;
+	private final Map<Lane, LaneExecutor> lanes;
+	private final Set<String> currentRequests;
+	private final AtomicLong sequence;
+	private final Semaphore exclusive;
 
 	public GenerationProviderQueue(GenerationProvider provider) {
-		this.executor = Executors.newSingleThreadExecutor();
+		this(provider, defaultRefreshWorkers, defaultGenerateWorkers, defaultCapacity);
+	}
+
+	public GenerationProviderQueue(GenerationProvider provider, int refreshWorkers, int generateWorkers, int capacity) {
+		this(provider, refreshWorkers, generateWorkers, capacity, defaultConcurrent);
+	}
+
+	/**
+	 * @param concurrent  True if the workers of both lanes may run operations against the
+	 *                    provider at the same time, false if they must take turns.
+	 */
+	public GenerationProviderQueue(GenerationProvider provider, int refreshWorkers, int generateWorkers,
+								   int capacity, boolean concurrent) {
 		this.provider = provider;
-		this.currentRequests = new ArrayList<>();
+		this.exclusive = concurrent ? null : new Semaphore(1, true);
+		this.lanes = new EnumMap<>(Lane.class);
+		this.lanes.put(Lane.REFRESH, new LaneExecutor(Lane.REFRESH, refreshWorkers, capacity));
+		this.lanes.put(Lane.GENERATE, new LaneExecutor(Lane.GENERATE, generateWorkers, capacity));
+		this.currentRequests = ConcurrentHashMap.newKeySet();
+		this.sequence = new AtomicLong();
 	}
 
 	public GenerationProvider getProvider() {
 		return provider;
 	}
 
-	public synchronized void submit(Operation op) {
+	public boolean isConcurrent() {
+		return exclusive == null;
+	}
+
+	/**
+	 * Submits the specified {@link Operation} to its {@link Lane}.
+	 *
+	 * @return  True if the operation was accepted, false if it duplicates a request which is
+	 *          already queued or running or if its lane is full.
+	 */
+	public boolean submit(Operation op) {
 		if (op.getRequestId() == null || "".equals(op.getRequestId())) {
 			throw new IllegalArgumentException("Request must have a non-empty ID");
 		}
 
-		if (currentRequests.contains(op.getRequestId())) {
+		if (op.getCancellationToken().isCancelled()) {
+			System.out.println("GenerationProviderQueue: Request \"" + op.getRequestId() + "\" was cancelled before submission");
+			return false;
+		}
+
+		if (!currentRequests.add(op.getRequestId())) {
 			System.out.println("GenerationProviderQueue: Request \"" + op.getRequestId() + "\" already being processed");
-			return;
+			return false;
 		}
 
-		currentRequests.add(op.getRequestId());
-		executor.submit(() -> {
+		LaneExecutor lane = lanes.get(op.getLane());
+		if (!lane.offer(new Task(op))) {
+			currentRequests.remove(op.getRequestId());
+			System.out.println("GenerationProviderQueue: Rejected request \"" + op.getRequestId() +
+					"\" (" + op.getLane() + " lane is full)");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns true if an operation with the specified request ID is queued or running.
+	 */
+	public boolean isCurrent(String requestId) {
+		return currentRequests.contains(requestId);
+	}
+
+	public LaneMetrics getMetrics(Lane lane) {
+		return lanes.get(lane).metrics;
+	}
+
+	/**
+	 * Stops accepting operations and discards any which have not started.
+	 */
+	public void shutdown() {
+		lanes.values().forEach(l -> l.executor.shutdownNow().forEach(task -> ((Task) task).discard()));
+	}
+
+	/**
+	 * Counters for one {@link Lane}. Wait times are measured from submission until
+	 * the operation begins running.
+	 */
+	public static class LaneMetrics {
+		private final AtomicInteger depth = new AtomicInteger();
+		private final AtomicInteger active = new AtomicInteger();
+		private final AtomicLong submitted = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong completed = new AtomicLong();
+		private final AtomicLong cancelled = new AtomicLong();
+		private final AtomicLong started = new AtomicLong();
+		private final AtomicLong totalWait = new AtomicLong();
+		private final AtomicLong maxWait = new AtomicLong();
+
+		/** Number of operations waiting to run. */
+		public int getDepth() { return depth.get(); }
+
+		/** Number of operations currently running. */
+		public int getActive() { return active.get(); }
+
+		public long getSubmitted() { return submitted.get(); }
+
+		public long getRejected() { return rejected.get(); }
+
+		public long getCompleted() { return completed.get(); }
+
+		/** Number of operations which were cancelled, whether they were waiting or running. */
+		public long getCancelled() { return cancelled.get(); }
+
+		/** Average time, in milliseconds, that started operations spent waiting. */
+		public double getAverageWait() {
+			long n = started.get();
+			return n <= 0 ? 0.0 : totalWait.get() / (n * 1e6);
+		}
+
+		/** Longest time, in milliseconds, that an operation spent waiting. */
+		public double getMaxWait() { return maxWait.get() / 1e6; }
+
+		protected void waited(long nanos) {
+			started.incrementAndGet();
+			totalWait.addAndGet(nanos);
+			maxWait.accumulateAndGet(nanos, Math::max);
+		}
+
+		@Override
+		public String toString() {
+			return "depth=" + getDepth() + ", active=" + getActive() +
+					", completed=" + getCompleted() + ", cancelled=" + getCancelled() + ", rejected=" + getRejected() +
+					", avgWait=" + (long) getAverageWait() + "ms, maxWait=" + (long) getMaxWait() + "ms";
+		}
+	}
+
+	private class Task implements Runnable, Comparable<Task> {
+		private static final int QUEUED = 0, RUNNING = 1, DONE = 2, CANCELLED = 3;
+
+		private final Operation op;
+		private final long order;
+		private final long submitted;
+		private LaneExecutor lane;
+		private AtomicInteger outstanding;
+		private int slot;
+		private Runnable unregister = () -> { };
+
+		private int state;
+		private Thread runner;
+
+		Task(Operation op) {
+			this.op = op;
+			this.order = sequence.getAndIncrement();
+			this.submitted = System.nanoTime();
+		}
+
+		synchronized void cancel() {
+			if (state == QUEUED) {
+				lane.executor.remove(this);
+				drop();
+			} else if (state == RUNNING) {
+				System.out.println("GenerationProviderQueue: Interrupting cancelled request \"" + op.getRequestId() + "\"");
+				runner.interrupt();
+			}
+		}
+
+		private void drop() {
+			state = CANCELLED;
+			lane.metrics.depth.decrementAndGet();
+			lane.metrics.cancelled.incrementAndGet();
+			unregister.run();
+			outstanding.decrementAndGet();
+			currentRequests.remove(op.getRequestId());
+			System.out.println("GenerationProviderQueue: Dropped cancelled request \"" + op.getRequestId() + "\"");
+			discard();
+		}
+
+		void discard() {
+			try {
+				op.discard();
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		}
+
+		@Override
+		public void run() {
+			LaneMetrics metrics = lane.metrics;
+
+			synchronized (this) {
+				if (state != QUEUED) return;
+
+				// The token may have been cancelled, with this task's
+				// listener not yet run, when a worker picks it up
+				if (op.getCancellationToken().isCancelled()) {
+					drop();
+					return;
+				}
+
+				state = RUNNING;
+				runner = Thread.currentThread();
+				metrics.depth.decrementAndGet();
+			}
+
+			boolean acquired = false;
+
 			try {
+				if (exclusive != null) exclusive.acquire();
+				acquired = true;
+
+				metrics.waited(System.nanoTime() - submitted);
+				metrics.active.incrementAndGet();
 				op.accept(provider);
+			} catch (InterruptedException e) {
+				// Cancelled while waiting for the provider
+				discard();
 			} catch (Throwable e) {
 				e.printStackTrace();
 			} finally {
+				if (acquired) {
+					metrics.active.decrementAndGet();
+					if (exclusive != null) exclusive.release();
+				}
+
+				synchronized (this) {
+					state = DONE;
+					runner = null;
+
+					// Clear any interrupt caused by cancellation, so that it
+					// does not affect the next operation run by this worker
+					Thread.interrupted();
+				}
+
+				unregister.run();
+				outstanding.decrementAndGet();
+
+				if (op.getCancellationToken().isCancelled()) {
+					metrics.cancelled.incrementAndGet();
+				} else {
+					metrics.completed.incrementAndGet();
+				}
+
 				currentRequests.remove(op.getRequestId());
+				System.out.println("GenerationProviderQueue: " + op.getLane() + " " + metrics);
+			}
+		}
+
+		@Override
+		public int compareTo(Task o) {
+			int p = Integer.compare(o.op.getPriority(), op.getPriority());
+			if (p != 0) return p;
+
+			int s = Integer.compare(slot, o.slot);
+			return s != 0 ? s : Long.compare(order, o.order);
+		}
+	}
+
+	private static class LaneExecutor {
+		private final int capacity;
+		private final ThreadPoolExecutor executor;
+		private final LaneMetrics metrics;
+		private final Map<String, AtomicInteger> outstanding;
+
+		LaneExecutor(Lane lane, int workers, int capacity) {
+			this.capacity = capacity;
+			this.metrics = new LaneMetrics();
+			this.outstanding = new ConcurrentHashMap<>();
+
+			AtomicInteger count = new AtomicInteger();
+			this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+					new PriorityBlockingQueue<>(),
+					r -> new Thread(r, "GenerationProviderQueue-" + lane + "-" + count.getAndIncrement()));
+
+			// Without idle workers waiting on the queue, the executor would hand
+			// new tasks directly to new threads and bypass the priority ordering
+			this.executor.prestartAllCoreThreads();
+		}
+
+		synchronized boolean offer(Task task) {
+			if (metrics.depth.get() >= capacity) {
+				metrics.rejected.incrementAndGet();
+				return false;
 			}
-		});
+
+			task.lane = this;
+			task.outstanding = outstanding.computeIfAbsent(String.valueOf(task.op.getUserId()), u -> new AtomicInteger());
+			task.slot = task.outstanding.getAndIncrement();
+			metrics.depth.incrementAndGet();
+			metrics.submitted.incrementAndGet();
+
+			// If the token is already cancelled, this cancels the task
+			// immediately and the executor will simply discard it
+			task.unregister = task.op.getCancellationToken().onCancel(task::cancel);
+			executor.execute(task);
+			return true;
+		}
 	}
 }
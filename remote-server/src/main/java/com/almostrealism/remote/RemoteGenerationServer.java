@@ -17,7 +17,6 @@
 package com.almostrealism.remote;
 
 import com.almostrealism.remote.mgr.DefaultAccessManager;
-import com.almostrealism.remote.mgr.ManagerDatabase;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
 import org.almostrealism.studio.generative.GenerationProvider;
@@ -30,6 +29,7 @@ import java.io.IOException;
 public class RemoteGenerationServer {
 	public static final int DEFAULT_PORT = 6565;
 
+	private final RemoteGenerationService service;
 	private final Server server;
 
 	public RemoteGenerationServer(AccessManager accessManager, GenerationProvider provider) {
@@ -41,9 +41,22 @@ public class RemoteGenerationServer {
 	}
 
 	public RemoteGenerationServer(AccessManager accessManager, GenerationProvider provider, ServerBuilder<?> serverBuilder) {
-		this.server = serverBuilder.addService(new RemoteGenerationService(accessManager, provider)).build();
+		this(accessManager, provider, new SourceStore(), serverBuilder);
 	}
 
+	public RemoteGenerationServer(AccessManager accessManager, GenerationProvider provider,
+								  SourceStore sources, ServerBuilder<?> serverBuilder) {
+		this(accessManager, provider, sources, UserQuotas.UNLIMITED, serverBuilder);
+	}
+
+	public RemoteGenerationServer(AccessManager accessManager, GenerationProvider provider,
+								  SourceStore sources, UserQuotas quotas, ServerBuilder<?> serverBuilder) {
+		this.service = new RemoteGenerationService(accessManager, provider, sources, quotas);
+		this.server = serverBuilder.addService(service).build();
+	}
+
+	public RemoteGenerationService getService() { return service; }
+
 	public void start() throws IOException {
 		server.start();
 		System.out.println("RemoteGenerationServer: Started");
@@ -53,17 +66,23 @@ public class RemoteGenerationServer {
 		server.awaitTermination();
 	}
 
+	public void shutdown() {
+		server.shutdown();
+		service.getQueue().shutdown();
+	}
+
 	public static void main(String[] args) {
 		String root = args[0];
 
-		DefaultAccessManager accessManager = new DefaultAccessManager(ManagerDatabase.load(new File(root, "rings-db.json")));
+		DefaultAccessManager accessManager = new DefaultAccessManager(new File(root, "rings-db.json"));
 		System.out.println("RemoteGenerationServer: Loaded user database");
 
-		GenerationProvider provider = new DiffusionGenerationProvider(
-				new LocalResourceManager(
-							new File(root + "remote-models"),
-							new File(root + "remote-audio")));
-		RemoteGenerationServer server = new RemoteGenerationServer(accessManager, provider);
+		LocalResourceManager resources = new LocalResourceManager(
+				new File(root + "remote-models"),
+				new File(root + "remote-audio"));
+		GenerationProvider provider = new DiffusionGenerationProvider(resources);
+		RemoteGenerationServer server = new RemoteGenerationServer(accessManager, provider,
+				new SourceStore(resources), new UserQuotas(), ServerBuilder.forPort(DEFAULT_PORT));
 
 		try {
 			server.start();
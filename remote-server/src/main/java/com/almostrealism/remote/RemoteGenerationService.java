@@ -16,37 +16,99 @@
 
 package com.almostrealism.remote;
 
+import com.almostrealism.remote.ops.CancellationToken;
 import com.almostrealism.remote.ops.RemoteGenerate;
 import com.almostrealism.remote.ops.RemoteRefresh;
+import io.grpc.Status;
 import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.almostrealism.studio.generative.GenerationProvider;
 import org.almostrealism.remote.api.Generation;
 import org.almostrealism.remote.api.GeneratorGrpc;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
 
 public class RemoteGenerationService extends GeneratorGrpc.GeneratorImplBase {
 	private final AccessManager accessManager;
 	private final GenerationProviderQueue queue;
+	private final GenerationCoalescer generations;
+	private final SourceStore sources;
+	private final UserQuotas quotas;
 
 	public RemoteGenerationService(AccessManager accessManager,
 								   GenerationProvider provider) {
+		this(accessManager, provider, new SourceStore());
+	}
+
+	public RemoteGenerationService(AccessManager accessManager,
+								   GenerationProvider provider,
+								   SourceStore sources) {
+		this(accessManager, provider, sources, UserQuotas.UNLIMITED);
+	}
+
+	public RemoteGenerationService(AccessManager accessManager,
+								   GenerationProvider provider,
+								   SourceStore sources,
+								   UserQuotas quotas) {
 		this.accessManager = accessManager;
 		this.queue = new GenerationProviderQueue(provider);
+		this.generations = new GenerationCoalescer(queue);
+		this.sources = sources;
+		this.quotas = quotas;
 	}
 
 	@Override
 	public StreamObserver<Generation.RefreshRequest> refresh(StreamObserver<Generation.Status> responseObserver) {
+		return new RemoteRefresh(accessManager, queue, responseObserver, sources, quotas, cancellation(responseObserver));
+	}
+
+	@Override
+	public StreamObserver<Generation.GeneratorRequest> generate(StreamObserver<Generation.Output> responseObserver) {
+		return new RemoteGenerate(accessManager, generations, quotas, responseObserver, cancellation(responseObserver));
+	}
+
+	/**
+	 * Reports which of the queried source hashes are already stored, so that
+	 * the client only needs to upload the others.
+	 */
+	@Override
+	public void availableSources(Generation.SourceQuery request,
+								 StreamObserver<Generation.SourceAvailability> responseObserver) {
+		if (!accessManager.authorize(request.getAccessKey(), "availableSources")) {
+			System.out.println("Access denied for user \"" + request.getAccessKey().getUserId() + "\"");
+			responseObserver.onError(Status.PERMISSION_DENIED.asRuntimeException());
+			return;
+		}
+
+		responseObserver.onNext(Generation.SourceAvailability.newBuilder()
+				.addAllAvailable(request.getHashList().stream().distinct().filter(sources::contains).toList())
+				.addAllAcceptEncoding(AudioSegmentCodec.SUPPORTED)
+				.setAcceptMultichannel(true)
+				.build());
+		responseObserver.onCompleted();
+	}
+
+	public GenerationProviderQueue getQueue() { return queue; }
+
+	public GenerationCoalescer getGenerations() { return generations; }
+
+	public UserQuotas getQuotas() { return quotas; }
+
+	/**
+	 * Creates a {@link CancellationToken} for the operations requested over one stream,
+	 * which is cancelled if the client cancels the call or disconnects.
+	 */
+	protected CancellationToken cancellation(StreamObserver<?> responseObserver) {
+		CancellationToken token = new CancellationToken();
+
 		if (responseObserver instanceof ServerCallStreamObserver) {
-			((ServerCallStreamObserver) responseObserver).setOnCancelHandler(() -> {});
+			((ServerCallStreamObserver<?>) responseObserver).setOnCancelHandler(() -> {
+				System.out.println("RemoteGenerationService: Stream cancelled by client");
+				token.cancel();
+			});
 		} else {
 			System.out.println("WARN: Unable to set onCancelHandler on " + responseObserver.getClass().getName());
 		}
 
-		return new RemoteRefresh(accessManager, queue, responseObserver);
-	}
-
-	@Override
-	public StreamObserver<Generation.GeneratorRequest> generate(StreamObserver<Generation.Output> responseObserver) {
-		return new RemoteGenerate(accessManager, queue, responseObserver);
+		return token;
 	}
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote;
+
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.audio.notes.NoteAudioProvider;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.remote.ops.WaveDataAccumulator;
+import org.almostrealism.studio.generative.GenerationResourceManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SourceStore} keeps the source audio uploaded for refresh requests, keyed by
+ * its content hash (see {@link org.almostrealism.remote.ops.AudioHash}), so that
+ * clients can refer to audio the server already has instead of uploading it again.
+ * Sources are kept in a {@link GenerationResourceManager} if one is provided, and
+ * otherwise in memory for the life of the server (which is only suitable for tests
+ * and short-lived servers).
+ *
+ * @author  Michael Murray
+ */
+public class SourceStore {
+	private static final String PREFIX = "source:";
+
+	private final GenerationResourceManager resources;
+	private final Map<String, NoteAudio> memory;
+
+	public SourceStore() {
+		this(null);
+	}
+
+	public SourceStore(GenerationResourceManager resources) {
+		this.resources = resources;
+		this.memory = new ConcurrentHashMap<>();
+	}
+
+	public boolean contains(String hash) {
+		return get(hash) != null;
+	}
+
+	/**
+	 * Returns the source with the specified hash, or null if it is not available.
+	 */
+	public NoteAudio get(String hash) {
+		if (resources == null) return memory.get(hash);
+		return resources.getAudio(PREFIX + hash);
+	}
+
+	/**
+	 * Stores the specified source and returns the {@link NoteAudio} for it.
+	 */
+	public NoteAudio put(String hash, WaveData data) {
+		NoteAudio existing = get(hash);
+		if (existing != null) return existing;
+
+		if (resources != null) {
+			return resources.storeAudio(PREFIX + hash, data);
+		}
+
+		PackedCollection samples = samples(data);
+		NoteAudio audio = NoteAudioProvider.create(() -> samples);
+		memory.put(hash, audio);
+		return audio;
+	}
+
+	/**
+	 * Returns the samples of every channel of the specified {@link WaveData}, in the shape
+	 * used for uploaded sources (see {@link WaveDataAccumulator#allocate(int, int)}).
+	 */
+	protected static PackedCollection samples(WaveData data) {
+		if (data.getChannelCount() == 1) return data.getChannelData(0);
+
+		int frames = data.getChannelData(0).getMemLength();
+		PackedCollection samples = WaveDataAccumulator.allocate(data.getChannelCount(), frames);
+
+		for (int c = 0; c < data.getChannelCount(); c++) {
+			samples.setMem(c * frames, data.getChannelData(c).toArray(0, frames));
+		}
+
+		return samples;
+	}
+}
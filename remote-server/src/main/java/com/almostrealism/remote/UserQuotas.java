@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link UserQuotas} limits how much of the server each user can occupy. Every user has a
+ * token bucket which limits the rate at which they can submit operations, allowing short
+ * bursts, and a limit on the number of their operations which can be outstanding (waiting
+ * or running) at once. An operation must acquire a permit before it is submitted and the
+ * permit must be released once the operation is finished or abandoned.
+ *
+ * @author  Michael Murray
+ */
+public class UserQuotas {
+	public static double defaultRate = 2.0;
+	public static int defaultBurst = 20;
+	public static int defaultMaxOutstanding = 16;
+
+	/** Quotas which never refuse an operation. */
+	public static final UserQuotas UNLIMITED = new UserQuotas(Double.POSITIVE_INFINITY, Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+	private final double rate;
+	private final int burst;
+	private final int maxOutstanding;
+	private final Map<String, Bucket> users;
+
+	public UserQuotas() {
+		this(defaultRate, defaultBurst, defaultMaxOutstanding);
+	}
+
+	/**
+	 * @param  rate  Operations per second which each user can sustain.
+	 * @param  burst  Operations which each user can submit at once after being idle.
+	 * @param  maxOutstanding  Operations which each user can have waiting or running.
+	 */
+	public UserQuotas(double rate, int burst, int maxOutstanding) {
+		this.rate = rate;
+		this.burst = burst;
+		this.maxOutstanding = maxOutstanding;
+		this.users = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Attempts to acquire a permit for an operation by the specified user.
+	 *
+	 * @return  A {@link Runnable} which releases the permit, and which does nothing if it
+	 *          is run more than once, or null if the user has exceeded their quota.
+	 */
+	public Runnable acquire(String userId) {
+		Bucket bucket = users.computeIfAbsent(String.valueOf(userId), id -> new Bucket());
+		if (!bucket.acquire()) {
+			System.out.println("UserQuotas: Quota exceeded for user \"" + userId + "\"");
+			return null;
+		}
+
+		AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			if (released.compareAndSet(false, true)) bucket.release();
+		};
+	}
+
+	/**
+	 * Returns the number of operations which the specified user has outstanding.
+	 */
+	public int getOutstanding(String userId) {
+		Bucket bucket = users.get(String.valueOf(userId));
+		return bucket == null ? 0 : bucket.outstanding();
+	}
+
+	private class Bucket {
+		private double tokens = burst;
+		private long updated = System.nanoTime();
+		private int outstanding;
+
+		synchronized boolean acquire() {
+			long now = System.nanoTime();
+			if (now > updated) {
+				tokens = Math.min(burst, tokens + rate * (now - updated) / 1e9);
+				updated = now;
+			}
+
+			if (tokens < 1.0 || outstanding >= maxOutstanding) return false;
+
+			tokens -= 1.0;
+			outstanding++;
+			return true;
+		}
+
+		synchronized void release() {
+			outstanding--;
+		}
+
+		synchronized int outstanding() { return outstanding; }
+	}
+}
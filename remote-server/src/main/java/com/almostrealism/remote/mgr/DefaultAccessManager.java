@@ -18,22 +18,127 @@ package com.almostrealism.remote.mgr;
 
 import com.almostrealism.remote.AccessManager;
 
-import java.util.Objects;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * {@link DefaultAccessManager} authorizes users listed in a {@link ManagerDatabase}. Users
+ * are indexed by ID and tokens are compared by their SHA-256 digests, so that the time
+ * taken does not depend on how much of a token is correct. If the database is loaded
+ * from a file, the file is checked periodically and reloaded when it changes, so users
+ * can be added or removed without restarting the server.
+ */
 public class DefaultAccessManager implements AccessManager {
-	private final ManagerDatabase db;
+	public static long reloadInterval = 5000;
+
+	private static final byte[] NONE = digest("");
+
+	private final File source;
+	private volatile Index index;
+	private volatile long generation;
+	private long lastModified;
+	private ScheduledExecutorService reload;
 
 	public DefaultAccessManager(ManagerDatabase db) {
-		this.db = db;
+		this.source = null;
+		this.index = new Index(db);
+	}
+
+	/**
+	 * Creates a {@link DefaultAccessManager} for the database in the specified file,
+	 * which is reloaded whenever it is modified.
+	 */
+	public DefaultAccessManager(File source) {
+		this.source = source;
+		this.lastModified = source.lastModified();
+		this.index = new Index(ManagerDatabase.load(source));
+
+		this.reload = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "DefaultAccessManager Reload");
+			t.setDaemon(true);
+			return t;
+		});
+		this.reload.scheduleWithFixedDelay(this::reload, reloadInterval, reloadInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reloads the database if its file has been modified since it was last loaded.
+	 * If the file cannot be read, the current users remain in effect.
+	 *
+	 * @return  True if the database was reloaded.
+	 */
+	public synchronized boolean reload() {
+		if (source == null || source.lastModified() == lastModified) return false;
+
+		try {
+			long modified = source.lastModified();
+			index = new Index(ManagerDatabase.load(source));
+			lastModified = modified;
+			generation++;
+			System.out.println("DefaultAccessManager: Reloaded " + index.tokens.size() + " users from " + source);
+			return true;
+		} catch (RuntimeException e) {
+			System.out.println("DefaultAccessManager: Unable to reload " + source + " (" + e.getMessage() + ")");
+			return false;
+		}
 	}
 
 	@Override
 	public boolean authorize(String userId, String token, String key, String requestId) {
-		if (!Objects.equals(db.getKey(), key)) return false;
-		return db.getUsers().stream()
-				.filter(u -> Objects.equals(u.getId(), userId))
-				.filter(u -> Objects.equals(u.getToken(), token)).
-				findFirst()
-				.isPresent();
+		Index index = this.index;
+		if (userId == null || token == null || key == null) return false;
+
+		byte[] expected = index.tokens.get(userId);
+
+		// Both comparisons are always made, so that the response time
+		// does not indicate which part of the credentials was wrong
+		boolean validKey = MessageDigest.isEqual(index.key == null ? NONE : index.key, digest(key));
+		boolean validToken = MessageDigest.isEqual(expected == null ? NONE : expected, digest(token));
+		return validKey & validToken & index.key != null & expected != null;
+	}
+
+	/**
+	 * Returns the number of times the database has been reloaded.
+	 */
+	@Override
+	public long getGeneration() { return generation; }
+
+	public void destroy() {
+		if (reload != null) reload.shutdownNow();
+	}
+
+	private static byte[] digest(String value) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * The credentials from one version of the database, which is replaced
+	 * as a whole when the database is reloaded.
+	 */
+	private static class Index {
+		private final byte[] key;
+		private final Map<String, byte[]> tokens;
+
+		Index(ManagerDatabase db) {
+			this.key = db.getKey() == null ? null : digest(db.getKey());
+			this.tokens = new ConcurrentHashMap<>();
+
+			for (User u : db.getUsers()) {
+				if (u.getId() != null && u.getToken() != null) {
+					tokens.put(u.getId(), digest(u.getToken()));
+				}
+			}
+		}
 	}
 }
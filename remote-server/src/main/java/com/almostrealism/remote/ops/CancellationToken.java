@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.ops;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link CancellationToken} signals that the results of one or more {@link Operation}s are
+ * no longer wanted, typically because the client stream which requested them was cancelled
+ * or closed. Listeners registered with {@link #onCancel(Runnable)} run once, on the thread
+ * which calls {@link #cancel()}.
+ *
+ * @author  Michael Murray
+ */
+public class CancellationToken {
+	/**
+	 * A token which is never cancelled.
+	 */
+	public static final CancellationToken NONE = new CancellationToken() {
+		@Override
+		public void cancel() { }
+
+		@Override
+		public Runnable onCancel(Runnable listener) { return () -> { }; }
+	};
+
+	private final List<Runnable> listeners;
+	private volatile boolean cancelled;
+
+	public CancellationToken() {
+		this.listeners = new ArrayList<>();
+	}
+
+	public boolean isCancelled() { return cancelled; }
+
+	public void cancel() {
+		List<Runnable> run;
+
+		synchronized (this) {
+			if (cancelled) return;
+			cancelled = true;
+			run = new ArrayList<>(listeners);
+			listeners.clear();
+		}
+
+		for (Runnable r : run) {
+			try {
+				r.run();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Registers a listener to run when this token is cancelled, or runs it immediately
+	 * if the token has already been cancelled.
+	 *
+	 * @return  A {@link Runnable} which removes the listener.
+	 */
+	public Runnable onCancel(Runnable listener) {
+		synchronized (this) {
+			if (!cancelled) {
+				listeners.add(listener);
+				return () -> {
+					synchronized (this) {
+						listeners.remove(listener);
+					}
+				};
+			}
+		}
+
+		listener.run();
+		return () -> { };
+	}
+}
@@ -16,10 +16,41 @@
 
 package com.almostrealism.remote.ops;
 
+import com.almostrealism.remote.GenerationProviderQueue;
 import org.almostrealism.studio.generative.GenerationProvider;
 
 public interface Operation {
 	String getRequestId();
 
+	/**
+	 * The {@link GenerationProviderQueue.Lane} in which this operation should run.
+	 */
+	default GenerationProviderQueue.Lane getLane() { return GenerationProviderQueue.Lane.GENERATE; }
+
+	/**
+	 * Operations with a higher priority run before others waiting in the same lane.
+	 */
+	default int getPriority() { return 0; }
+
+	/**
+	 * The user who requested this operation, if known. Waiting operations of users
+	 * with fewer operations outstanding run before those of users with more.
+	 */
+	default String getUserId() { return null; }
+
+	/**
+	 * The {@link CancellationToken} which signals that the result of this operation is no
+	 * longer wanted. A cancelled operation is dropped if it has not started, and the thread
+	 * running it is interrupted if it has.
+	 */
+	default CancellationToken getCancellationToken() { return CancellationToken.NONE; }
+
 	void accept(GenerationProvider provider);
+
+	/**
+	 * Called instead of {@link #accept(GenerationProvider)} when this operation will not be
+	 * run. The {@link GenerationProviderQueue} calls this for an operation it accepted and
+	 * then removed, because it was cancelled before it started or the queue was shut down.
+	 */
+	default void discard() { }
 }
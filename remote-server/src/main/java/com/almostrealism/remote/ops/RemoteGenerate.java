@@ -17,15 +17,24 @@
 package com.almostrealism.remote.ops;
 
 import com.almostrealism.remote.AccessManager;
+import com.almostrealism.remote.GenerationCoalescer;
 import com.almostrealism.remote.GenerationProviderQueue;
+import com.almostrealism.remote.UserQuotas;
 import io.grpc.stub.StreamObserver;
 import org.almostrealism.studio.generative.GenerationProvider;
+import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.audioml.IncrementalGenerationProvider;
 import org.almostrealism.music.notes.NoteAudioSource;
 import org.almostrealism.remote.api.Generation;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
+import org.almostrealism.remote.ops.FlowControlledSender;
 import org.almostrealism.remote.ops.WaveDataPublisher;
 
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
@@ -33,86 +42,203 @@ public class RemoteGenerate implements StreamObserver<Generation.GeneratorReques
 	public static final int MAX_GENERATION_COUNT = 40;
 
 	private final AccessManager accessManager;
-	private final GenerationProviderQueue queue;
-	private final StreamObserver<Generation.Output> reply;
-	private final WaveDataPublisher publisher;
+	private final GenerationCoalescer generations;
+	private final UserQuotas quotas;
+	private final FlowControlledSender<Generation.Output> reply;
+	private final CancellationToken cancellation;
+
+	private Generation.AccessKey authorized;
+	private long authorizedGeneration;
 
 	public RemoteGenerate(AccessManager accessManager,
 						  GenerationProviderQueue queue,
 						  StreamObserver<Generation.Output> reply) {
+		this(accessManager, queue, reply, new CancellationToken());
+	}
+
+	public RemoteGenerate(AccessManager accessManager,
+						  GenerationProviderQueue queue,
+						  StreamObserver<Generation.Output> reply,
+						  CancellationToken cancellation) {
+		this(accessManager, new GenerationCoalescer(queue), reply, cancellation);
+	}
+
+	public RemoteGenerate(AccessManager accessManager,
+						  GenerationCoalescer generations,
+						  StreamObserver<Generation.Output> reply,
+						  CancellationToken cancellation) {
+		this(accessManager, generations, UserQuotas.UNLIMITED, reply, cancellation);
+	}
+
+	public RemoteGenerate(AccessManager accessManager,
+						  GenerationCoalescer generations,
+						  UserQuotas quotas,
+						  StreamObserver<Generation.Output> reply,
+						  CancellationToken cancellation) {
 		this.accessManager = accessManager;
-		this.queue = queue;
-		this.reply = reply;
-		this.publisher = new WaveDataPublisher();
+		this.generations = generations;
+		this.quotas = quotas;
+		this.reply = new FlowControlledSender<>(reply);
+		this.cancellation = cancellation;
 	}
 
 	@Override
 	public void onNext(Generation.GeneratorRequest value) {
 		System.out.println("Received generator request: " + value.getRequestId() + " for generator " + value.getGeneratorId());
-		if (accessManager.authorize(value.getAccessKey(), value.getRequestId())) {
-			queue.submit(new GenerationOperation(value.getRequestId(), value.getGeneratorId(),
-					value.getCount() < MAX_GENERATION_COUNT ? value.getCount() : MAX_GENERATION_COUNT,
-					results -> output(value.getRequestId(), value.getGeneratorId(), results)));
+		if (authorize(value.getAccessKey(), value.getRequestId())) {
+			String userId = value.getAccessKey().getUserId();
+			String requestId = value.getRequestId();
+			String generatorId = value.getGeneratorId();
+			int count = value.getCount() < MAX_GENERATION_COUNT ? value.getCount() : MAX_GENERATION_COUNT;
+			boolean status = value.getAcceptStatus();
+
+			Runnable release = quotas.acquire(userId);
+			if (release == null) {
+				System.out.println("RemoteGenerate: Request " + requestId + " exceeds the quota for user \"" + userId + "\"");
+				if (status) status(requestId, generatorId, Generation.State.FAILED, 0, count);
+				return;
+			}
+
+			WaveDataPublisher publisher = new WaveDataPublisher(AudioSegmentCodec.negotiate(value.getAcceptEncodingList()));
+			publisher.setMultichannel(value.getAcceptMultichannel());
+			AtomicInteger completed = new AtomicInteger();
+
+			GenerationOperation op = new GenerationOperation(requestId, generatorId, count, cancellation,
+					(index, note) -> {
+						output(publisher, requestId, generatorId, index, note);
+						if (status) status(requestId, generatorId, Generation.State.IN_PROGRESS, completed.incrementAndGet(), count);
+					},
+					success -> {
+						release.run();
+
+						if (!success) System.out.println("RemoteGenerate: Generation failed");
+						if (status) status(requestId, generatorId,
+								success ? Generation.State.FINISHED : Generation.State.FAILED, completed.get(), count);
+					});
+			op.setUserId(userId);
+
+			if (!generations.submit(op)) {
+				release.run();
+
+				System.out.println("RemoteGenerate: Request " + requestId + " was not accepted");
+				if (status) status(requestId, generatorId, Generation.State.FAILED, 0, count);
+			}
 		} else {
 			System.out.println("Access denied for user \"" + value.getAccessKey().getUserId() + "\"");
 		}
 	}
 
-	protected void output(String requestId, String generatorId, List<NoteAudio> results) {
-		if (results == null) {
-			System.out.println("RemoteGenerate: Generation failed");
-			// TODO  Send back status info to client
+	/**
+	 * Authorizes the specified key, unless it is the key which was last authorized on this
+	 * stream and the {@link AccessManager#getGeneration() credentials} have not changed
+	 * since. Messages on one stream are delivered sequentially, so the key does not need
+	 * to be guarded.
+	 */
+	protected boolean authorize(Generation.AccessKey key, String requestId) {
+		long generation = accessManager.getGeneration();
+		if (key.equals(authorized) && generation == authorizedGeneration) return true;
+		if (!accessManager.authorize(key, requestId)) return false;
+
+		authorized = key;
+		authorizedGeneration = generation;
+		return true;
+	}
+
+	/**
+	 * Queues the segments of the specified result for sending, as soon as it is available.
+	 * The result is only read and encoded once the stream is ready for it, rather than
+	 * buffering every segment of every result.
+	 */
+	protected void output(WaveDataPublisher publisher, String requestId, String generatorId, int index, NoteAudio note) {
+		if (cancellation.isCancelled()) {
+			System.out.println("RemoteGenerate: Stream was cancelled, result " + index + " for " + requestId + " will not be sent");
 			return;
 		}
 
-		System.out.println("RemoteGenerate: Sending " + results.size() + " results");
-		IntStream.range(0, results.size()).forEach(i -> output(requestId, generatorId, i, results.get(i)));
+		reply.send(FlowControlledSender.concat(1, i -> segments(publisher, requestId, generatorId, index, note)));
 	}
 
-	protected void output(String requestId, String generatorId, int index, NoteAudioSource result) {
+	/**
+	 * Sends the progress of the specified request, for clients which accept status messages.
+	 */
+	protected void status(String requestId, String generatorId, Generation.State state, int completed, int total) {
+		if (cancellation.isCancelled()) return;
+
+		reply.send(Generation.Output.newBuilder()
+				.setRequestId(requestId)
+				.setGeneratorId(generatorId)
+				.setStatus(Generation.Status.newBuilder()
+						.setRequestId(requestId)
+						.setGeneratorId(generatorId)
+						.setState(state)
+						.setCompleted(completed)
+						.setTotal(total))
+				.build());
+	}
+
+	protected Iterator<Generation.Output> segments(WaveDataPublisher publisher, String requestId, String generatorId, int index, NoteAudioSource result) {
 		if (result.getNotes().size() != 1) throw new UnsupportedOperationException();
-		output(requestId, generatorId, index, result.getNotes().get(0));
+		return segments(publisher, requestId, generatorId, index, result.getNotes().get(0));
 	}
 
-	protected void output(String requestId, String generatorId, int index, NoteAudio note) {
-		if (note.getWaveData() == null) {
+	protected Iterator<Generation.Output> segments(WaveDataPublisher publisher, String requestId, String generatorId, int index, NoteAudio note) {
+		WaveData data = note.getWaveData();
+
+		if (data == null) {
 			System.out.println("RemoteGenerate: Empty result will not be published");
-			return;
+			return Collections.emptyIterator();
 		}
 
-		publisher.publish(note.getWaveData(), audio -> {
+		return publisher.segments(data, audio -> {
 			Generation.Output.Builder builder = Generation.Output.newBuilder();
 			builder.setRequestId(requestId);
 			builder.setGeneratorId(generatorId);
 			builder.setIndex(index);
 			builder.setSegment(audio);
-			reply.onNext(builder.build());
+			return builder.build();
 		});
 	}
 
 	@Override
 	public void onError(Throwable t) {
 		t.printStackTrace();
+		cancellation.cancel();
 	}
 
 	@Override
 	public void onCompleted() {
 		System.out.println("RemoteGenerate: Stream completed");
-		reply.onCompleted();
+
+		// Results for outstanding requests can no longer be delivered
+		cancellation.cancel();
+		reply.complete();
 	}
 
 	public static class GenerationOperation implements Operation {
 		private final String requestId;
 		private final String generatorId;
 		private final int count;
-		private final Consumer<List<NoteAudio>> results;
+		private final CancellationToken cancellation;
+		private final IncrementalGenerationProvider.Receiver output;
+		private final Consumer<Boolean> end;
+		private String userId;
 
 		public GenerationOperation(String requestId, String generatorId, int count,
-								   Consumer<List<NoteAudio>> results) {
+								   IncrementalGenerationProvider.Receiver output,
+								   Consumer<Boolean> end) {
+			this(requestId, generatorId, count, CancellationToken.NONE, output, end);
+		}
+
+		public GenerationOperation(String requestId, String generatorId, int count,
+								   CancellationToken cancellation,
+								   IncrementalGenerationProvider.Receiver output,
+								   Consumer<Boolean> end) {
 			this.requestId = requestId;
 			this.generatorId = generatorId;
 			this.count = count;
-			this.results = results;
+			this.cancellation = cancellation;
+			this.output = output;
+			this.end = end;
 		}
 
 		@Override
@@ -120,9 +246,82 @@ public class RemoteGenerate implements StreamObserver<Generation.GeneratorReques
 			return requestId;
 		}
 
+		public String getGeneratorId() { return generatorId; }
+
+		public int getCount() { return count; }
+
+		public IncrementalGenerationProvider.Receiver getOutput() { return output; }
+
+		public Consumer<Boolean> getEnd() { return end; }
+
+		@Override
+		public String getUserId() { return userId; }
+
+		public void setUserId(String userId) { this.userId = userId; }
+
+		@Override
+		public CancellationToken getCancellationToken() { return cancellation; }
+
 		@Override
 		public void accept(GenerationProvider provider) {
-			results.accept(provider.generate(requestId, generatorId, count));
+			boolean success = false;
+
+			try {
+				success = generate(provider, requestId, generatorId, count, output);
+			} finally {
+				end.accept(success);
+			}
+		}
+
+		@Override
+		public void discard() {
+			end.accept(false);
+		}
+
+		/**
+		 * Generates the results, delivering each one as soon as it is available if the
+		 * provider is an {@link IncrementalGenerationProvider} or once they are all
+		 * available otherwise.
+		 */
+		public static boolean generate(GenerationProvider provider, String requestId, String generatorId,
+									   int count, IncrementalGenerationProvider.Receiver output) {
+			if (provider instanceof IncrementalGenerationProvider) {
+				return ((IncrementalGenerationProvider) provider).generate(requestId, generatorId, count, output);
+			}
+
+			List<NoteAudio> results = provider.generate(requestId, generatorId, count);
+			if (results == null) return false;
+
+			IntStream.range(0, results.size()).forEach(i -> output.receive(i, results.get(i)));
+			return true;
+		}
+
+		/**
+		 * Generates the results for several requests, passing the results for each request
+		 * to the {@link IncrementalGenerationProvider.Receiver} with indices following those
+		 * of the requests before it. An {@link IncrementalGenerationProvider} generates them
+		 * with one call, but any other provider is called once for each request, so that it
+		 * sees the ID of every request.
+		 */
+		public static boolean generate(GenerationProvider provider, List<String> requestIds, int[] counts,
+									   String generatorId, IncrementalGenerationProvider.Receiver output) {
+			if (provider instanceof IncrementalGenerationProvider) {
+				return ((IncrementalGenerationProvider) provider).generate(requestIds, counts, generatorId, output);
+			}
+
+			int offset = 0;
+
+			for (int r = 0; r < requestIds.size(); r++) {
+				int start = offset;
+				if (!generate(provider, requestIds.get(r), generatorId, counts[r],
+						(index, audio) -> output.receive(start + index, audio))) {
+					return false;
+				}
+
+				offset += counts[r];
+			}
+
+			return true;
 		}
 	}
 }
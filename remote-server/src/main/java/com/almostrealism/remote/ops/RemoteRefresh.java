@@ -18,57 +18,159 @@ package com.almostrealism.remote.ops;
 
 import com.almostrealism.remote.AccessManager;
 import com.almostrealism.remote.GenerationProviderQueue;
+import com.almostrealism.remote.SourceStore;
+import com.almostrealism.remote.UserQuotas;
 import io.grpc.stub.StreamObserver;
 import org.almostrealism.studio.generative.GenerationProvider;
+import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.line.OutputLine;
 import org.almostrealism.audio.notes.NoteAudio;
-import org.almostrealism.audio.notes.NoteAudioProvider;
 import org.almostrealism.collect.PackedCollection;
 import org.almostrealism.io.ConsoleFeatures;
 import org.almostrealism.remote.api.Generation;
+import org.almostrealism.remote.ops.AudioHash;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
+import org.almostrealism.remote.ops.FlowControlledSender;
+import org.almostrealism.remote.ops.WaveDataAccumulator;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.function.Consumer;
 
 public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>, ConsoleFeatures {
 	private final AccessManager accessManager;
 	private final GenerationProviderQueue queue;
-	private final StreamObserver<Generation.Status> reply;
+	private final FlowControlledSender<Generation.Status> reply;
+	private final SourceStore store;
+	private final UserQuotas quotas;
+	private final CancellationToken cancellation;
 
 	private final Map<String, RefreshOperation> operations;
+	private final Set<String> rejected;
+	private Generation.AccessKey authorized;
+	private long authorizedGeneration;
 
 	public RemoteRefresh(AccessManager accessManager,
 						 GenerationProviderQueue queue,
 						 StreamObserver<Generation.Status> reply) {
+		this(accessManager, queue, reply, new SourceStore(), new CancellationToken());
+	}
+
+	public RemoteRefresh(AccessManager accessManager,
+						 GenerationProviderQueue queue,
+						 StreamObserver<Generation.Status> reply,
+						 SourceStore store,
+						 CancellationToken cancellation) {
+		this(accessManager, queue, reply, store, UserQuotas.UNLIMITED, cancellation);
+	}
+
+	public RemoteRefresh(AccessManager accessManager,
+						 GenerationProviderQueue queue,
+						 StreamObserver<Generation.Status> reply,
+						 SourceStore store,
+						 UserQuotas quotas,
+						 CancellationToken cancellation) {
 		this.accessManager = accessManager;
 		this.queue = queue;
-		this.reply = reply;
+		this.store = store;
+		this.quotas = quotas;
+		this.reply = new FlowControlledSender<>(reply);
+		this.cancellation = cancellation;
 		this.operations = new HashMap<>();
+		this.rejected = new HashSet<>();
 	}
 
 	@Override
 	public void onNext(Generation.RefreshRequest value) {
-		if (accessManager.authorize(value.getAccessKey(), value.getRequestId())) {
-			operations.computeIfAbsent(value.getRequestId(),
-					(key) -> new RefreshOperation(value.getRequestId(), value.getGeneratorId(),
-							success -> respond(value.getRequestId(), value.getGeneratorId(), success))).append(value);
+		if (authorize(value.getAccessKey(), value.getRequestId())) {
+			String requestId = value.getRequestId();
+			RefreshOperation op = operations.get(requestId);
+
+			if (op == null) {
+				op = start(value);
+
+				if (op == null) {
+					if (value.getIsFinal()) rejected.remove(requestId);
+					return;
+				}
+			}
+
+			op.append(value);
 
 			if (value.getIsFinal()) {
+				operations.remove(requestId);
+
+				if (!op.isValid()) {
+					op.discard();
+					return;
+				}
+
 				System.out.println("RemoteRefresh: Submitting refresh operation to queue...");
-				queue.submit(operations.remove(value.getRequestId()));
+				if (!queue.submit(op)) {
+					op.discard();
+				}
 			}
 		} else {
 			System.out.println("Access denied for user \"" + value.getAccessKey().getUserId() + "\"");
 		}
 	}
 
+	/**
+	 * Creates the operation for the first message of a request, acquiring the permit for
+	 * it so that a user over their quota is refused before any audio is accepted. The
+	 * permit is released once the operation has finished or is discarded. Returns null,
+	 * and ignores the rest of the request, if the user has exceeded their quota.
+	 */
+	protected RefreshOperation start(Generation.RefreshRequest value) {
+		String requestId = value.getRequestId();
+		String generatorId = value.getGeneratorId();
+		if (rejected.contains(requestId)) return null;
+
+		String userId = value.getAccessKey().getUserId();
+		Runnable release = quotas.acquire(userId);
+		if (release == null) {
+			System.out.println("RemoteRefresh: Request " + requestId + " exceeds the quota for user \"" + userId + "\"");
+			rejected.add(requestId);
+			respond(requestId, generatorId, false);
+			return null;
+		}
+
+		RefreshOperation op = new RefreshOperation(requestId, generatorId, store, cancellation,
+				success -> respond(requestId, generatorId, success));
+		op.setUserId(userId);
+		op.onFinished(release);
+		operations.put(requestId, op);
+		return op;
+	}
+
+	/**
+	 * Authorizes the specified key, unless it is the key which was last authorized on this
+	 * stream and the {@link AccessManager#getGeneration() credentials} have not changed
+	 * since, so that the chunks of a refresh request do not each need to be authorized.
+	 */
+	protected boolean authorize(Generation.AccessKey key, String requestId) {
+		long generation = accessManager.getGeneration();
+		if (key.equals(authorized) && generation == authorizedGeneration) return true;
+		if (!accessManager.authorize(key, requestId)) return false;
+
+		authorized = key;
+		authorizedGeneration = generation;
+		return true;
+	}
+
 	protected void respond(String requestId, String generatorId, boolean success) {
+		if (cancellation.isCancelled()) {
+			System.out.println("RemoteRefresh: Stream was cancelled, status for request " + requestId + " will not be sent");
+			return;
+		}
+
 		System.out.println("RemoteRefresh: Sending status for request " + requestId + "...");
-		reply.onNext(Generation.Status.newBuilder()
+		reply.send(Generation.Status.newBuilder()
 				.setRequestId(requestId)
 				.setGeneratorId(generatorId)
 				.setState(success ? Generation.State.FINISHED : Generation.State.FAILED)
@@ -78,13 +180,24 @@ public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>,
 	@Override
 	public void onError(Throwable t) {
 		t.printStackTrace();
-		reply.onCompleted();
+		cancellation.cancel();
+		discardIncomplete();
 	}
 
 	@Override
 	public void onCompleted() {
 		System.out.println("Completed");
-		reply.onCompleted();
+		discardIncomplete();
+		reply.complete();
+	}
+
+	/**
+	 * Discards the requests whose final message has not been received, releasing their permits.
+	 */
+	protected void discardIncomplete() {
+		operations.values().forEach(RefreshOperation::discard);
+		operations.clear();
+		rejected.clear();
 	}
 
 	public static class RefreshOperation implements Operation, ConsoleFeatures {
@@ -94,12 +207,24 @@ public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>,
 		private final List<NoteAudio> sources;
 		private PackedCollection currentSource;
 		private int currentIndex;
+		private boolean missingSources;
 
+		private final SourceStore store;
+		private final CancellationToken cancellation;
 		private final Consumer<Boolean> success;
+		private String userId;
+		private Runnable finished = () -> { };
 
 		public RefreshOperation(String requestId, String generatorId, Consumer<Boolean> success) {
+			this(requestId, generatorId, new SourceStore(), CancellationToken.NONE, success);
+		}
+
+		public RefreshOperation(String requestId, String generatorId, SourceStore store,
+								CancellationToken cancellation, Consumer<Boolean> success) {
 			this.requestId = requestId;
 			this.generatorId = generatorId;
+			this.store = store;
+			this.cancellation = cancellation;
 			this.sources = new ArrayList<>();
 			this.success = success;
 		}
@@ -113,6 +238,28 @@ public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>,
 
 		public List<NoteAudio> getSources() { return sources; }
 
+		/**
+		 * Returns false if the request referred to a source which is not in the {@link SourceStore}.
+		 */
+		public boolean isValid() { return !missingSources; }
+
+		@Override
+		public String getUserId() { return userId; }
+
+		public void setUserId(String userId) { this.userId = userId; }
+
+		/**
+		 * Sets a callback to run once the refresh has finished, whether or not it succeeded,
+		 * or once it has been discarded without running.
+		 */
+		public void onFinished(Runnable finished) { this.finished = finished; }
+
+		@Override
+		public GenerationProviderQueue.Lane getLane() { return GenerationProviderQueue.Lane.REFRESH; }
+
+		@Override
+		public CancellationToken getCancellationToken() { return cancellation; }
+
 		public void append(Generation.RefreshRequest request) {
 			if (!Objects.equals(request.getRequestId(), requestId))
 				throw new IllegalArgumentException();
@@ -120,20 +267,44 @@ public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>,
 			if (!Objects.equals(request.getGeneratorId(), generatorId))
 				throw new IllegalArgumentException();
 
-			if (request.getSource().getSegment().getSampleRate() != OutputLine.sampleRate)
+			Generation.SourceData source = request.getSource();
+
+			if (!source.hasSegment()) {
+				NoteAudio stored = store.get(source.getHash());
+
+				if (stored == null) {
+					warn("Source " + source.getHash() + " is not available");
+					missingSources = true;
+				} else {
+					log("Reusing stored source " + source.getHash());
+					sources.add(stored);
+				}
+
+				return;
+			}
+
+			if (source.getSegment().getSampleRate() != OutputLine.sampleRate)
 				throw new IllegalArgumentException();
 
 			if (currentSource == null) {
-				currentSource = new PackedCollection(request.getSource().getSegment().getTotalSamples());
+				currentSource = WaveDataAccumulator.allocate(AudioSegmentCodec.channels(source.getSegment()),
+						source.getSegment().getTotalSamples());
 			}
 
-			currentSource.setMem(currentIndex,
-					request.getSource().getSegment().getDataList().stream().mapToDouble(d -> d).toArray());
-			currentIndex += request.getSource().getSegment().getDataList().size();
+			currentIndex += AudioSegmentCodec.decode(source.getSegment(), currentSource,
+					source.getSegment().getTotalSamples(), currentIndex);
+
+			if (source.getSegment().getIsFinal()) {
+				PackedCollection data = currentSource;
+				String hash = AudioHash.sha256(data);
 
-			if (request.getSource().getSegment().getIsFinal()) {
-				log("Adding source (" + currentSource.getMemLength() + " samples)");
-				sources.add(NoteAudioProvider.create(() -> currentSource));
+				if (!source.getHash().isEmpty() && !source.getHash().equals(hash)) {
+					// Expected for the lossy integer encodings
+					log("Source hash " + hash + " differs from the hash given by the client");
+				}
+
+				log("Adding source " + hash + " (" + data.getMemLength() + " samples)");
+				sources.add(store.put(hash, new WaveData(data, OutputLine.sampleRate)));
 				currentSource = null;
 				currentIndex = 0;
 			}
@@ -141,7 +312,20 @@ public class RemoteRefresh implements StreamObserver<Generation.RefreshRequest>,
 
 		@Override
 		public void accept(GenerationProvider provider) {
-			success.accept(provider.refresh(requestId, generatorId, sources));
+			try {
+				success.accept(provider.refresh(requestId, generatorId, sources));
+			} finally {
+				finished.run();
+			}
+		}
+
+		@Override
+		public void discard() {
+			try {
+				success.accept(false);
+			} finally {
+				finished.run();
+			}
 		}
 	}
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package com.almostrealism.remote.test;
+
+import com.almostrealism.remote.SourceStore;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audioml.DatasetIndex;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.remote.ops.AudioHash;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class DatasetIndexTest {
+	private static WaveData wave(int channels, int frames, double scale) {
+		PackedCollection data = channels == 1 ? new PackedCollection(frames) : new PackedCollection(channels, frames);
+
+		for (int c = 0; c < channels; c++) {
+			double[] samples = new double[frames];
+			for (int i = 0; i < frames; i++) samples[i] = scale * (c + 1) * Math.sin(0.01 * i);
+			data.setMem(c * frames, samples);
+		}
+
+		return new WaveData(data, 44100);
+	}
+
+	@Test
+	public void matchesAudioHash() {
+		for (int channels = 1; channels <= 2; channels++) {
+			WaveData wave = wave(channels, 20000, 0.5);
+			Assert.assertEquals(AudioHash.sha256(wave), DatasetIndex.hash(wave));
+		}
+
+		List<String> hashes = List.of(DatasetIndex.hash(wave(1, 100, 0.1)), DatasetIndex.hash(wave(2, 100, 0.2)));
+		Assert.assertEquals(AudioHash.sha256(hashes), DatasetIndex.combine(hashes));
+	}
+
+	@Test
+	public void laterChannelsChangeHash() {
+		WaveData a = wave(2, 1000, 0.5);
+		WaveData b = wave(2, 1000, 0.5);
+		b.getChannelData(1).setMem(10, new double[] { 0.9 });
+
+		Assert.assertEquals(a.getChannelData(0).toArray(0, 1000)[10], b.getChannelData(0).toArray(0, 1000)[10], 0.0);
+		Assert.assertNotEquals(DatasetIndex.hash(a), DatasetIndex.hash(b));
+	}
+
+	@Test
+	public void storeKeepsEveryChannel() {
+		WaveData wave = wave(2, 1000, 0.5);
+		String hash = AudioHash.sha256(wave);
+
+		SourceStore store = new SourceStore();
+		Assert.assertEquals(hash, AudioHash.sha256(store.put(hash, wave).getWaveData()));
+	}
+}
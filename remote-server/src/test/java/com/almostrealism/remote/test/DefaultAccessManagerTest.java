@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import com.almostrealism.remote.UserQuotas;
+import com.almostrealism.remote.mgr.DefaultAccessManager;
+import com.almostrealism.remote.mgr.ManagerDatabase;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class DefaultAccessManagerTest {
+	@Test
+	public void authorize() {
+		ManagerDatabase db = new ManagerDatabase();
+		db.addUser("alice", "secret");
+		DefaultAccessManager access = new DefaultAccessManager(db);
+
+		Assert.assertTrue(access.authorize("alice", "secret", db.getKey(), "req"));
+		Assert.assertFalse(access.authorize("alice", "secreT", db.getKey(), "req"));
+		Assert.assertFalse(access.authorize("alice", "secret", "wrong", "req"));
+		Assert.assertFalse(access.authorize("bob", "secret", db.getKey(), "req"));
+		Assert.assertFalse(access.authorize(null, "secret", db.getKey(), "req"));
+	}
+
+	@Test
+	public void reload() throws IOException {
+		File file = File.createTempFile("rings-db", ".json");
+		file.deleteOnExit();
+
+		ManagerDatabase db = new ManagerDatabase();
+		db.addUser("alice", "secret");
+		db.save(file);
+
+		DefaultAccessManager access = new DefaultAccessManager(file);
+
+		try {
+			Assert.assertFalse(access.authorize("bob", "token", db.getKey(), "req"));
+			long generation = access.getGeneration();
+
+			db.addUser("bob", "token");
+			db.save(file);
+			Assert.assertTrue(file.setLastModified(file.lastModified() + 10000));
+
+			Assert.assertTrue(access.reload());
+			Assert.assertFalse(access.reload());
+			Assert.assertEquals(generation + 1, access.getGeneration());
+			Assert.assertTrue(access.authorize("bob", "token", db.getKey(), "req"));
+			Assert.assertTrue(access.authorize("alice", "secret", db.getKey(), "req"));
+		} finally {
+			access.destroy();
+		}
+	}
+
+	@Test
+	public void quotas() {
+		UserQuotas quotas = new UserQuotas(0.0, 3, 2);
+
+		Runnable first = quotas.acquire("alice");
+		Runnable second = quotas.acquire("alice");
+		Assert.assertNotNull(first);
+		Assert.assertNotNull(second);
+
+		// Too many outstanding operations
+		Assert.assertNull(quotas.acquire("alice"));
+		Assert.assertNotNull(quotas.acquire("bob"));
+
+		first.run();
+		first.run();
+		Assert.assertEquals(1, quotas.getOutstanding("alice"));
+
+		// One token left in the bucket, which never refills
+		Assert.assertNotNull(quotas.acquire("alice"));
+		second.run();
+		Assert.assertNull(quotas.acquire("alice"));
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import com.almostrealism.remote.GenerationCoalescer;
+import com.almostrealism.remote.GenerationProviderQueue;
+import com.almostrealism.remote.ops.CancellationToken;
+import com.almostrealism.remote.ops.RemoteGenerate.GenerationOperation;
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.audio.notes.NoteAudioProvider;
+import org.almostrealism.audioml.IncrementalGenerationProvider;
+import org.almostrealism.studio.generative.GeneratorStatus;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class GenerationCoalescerTest {
+	/**
+	 * Records each call and blocks calls for the generator "blocked" until released.
+	 */
+	private static class TestProvider implements IncrementalGenerationProvider {
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final List<String> calls = new CopyOnWriteArrayList<>();
+		private final List<NoteAudio> results = new CopyOnWriteArrayList<>();
+		private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+		@Override
+		public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources) { return true; }
+
+		@Override
+		public GeneratorStatus getStatus(String id) { return GeneratorStatus.READY; }
+
+		@Override
+		public int getSampleRate() { return 44100; }
+
+		@Override
+		public boolean generate(List<String> requestIds, int[] counts, String generatorId, Receiver output) {
+			batches.add(requestIds);
+			return IncrementalGenerationProvider.super.generate(requestIds, counts, generatorId, output);
+		}
+
+		@Override
+		public boolean generate(String requestId, String generatorId, int count, Receiver output) {
+			calls.add(generatorId + ":" + count);
+
+			if ("blocked".equals(generatorId)) {
+				try {
+					release.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					return false;
+				}
+			}
+
+			for (int i = 0; i < count; i++) {
+				NoteAudio audio = NoteAudioProvider.create(() -> null);
+				results.add(audio);
+				output.receive(i, audio);
+			}
+
+			return true;
+		}
+	}
+
+	private static class Results {
+		private final List<Integer> indices = new CopyOnWriteArrayList<>();
+		private final List<NoteAudio> audio = new CopyOnWriteArrayList<>();
+		private final CountDownLatch end = new CountDownLatch(1);
+		private volatile boolean success;
+
+		GenerationOperation operation(String requestId, String generatorId, int count, CancellationToken cancellation) {
+			return new GenerationOperation(requestId, generatorId, count, cancellation,
+					(index, note) -> { indices.add(index); audio.add(note); },
+					s -> { success = s; end.countDown(); });
+		}
+
+		void await() throws InterruptedException {
+			Assert.assertTrue(end.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	public void coalesce() throws InterruptedException {
+		TestProvider provider = new TestProvider();
+		GenerationProviderQueue queue = new GenerationProviderQueue(provider, 1, 1, 8);
+		GenerationCoalescer generations = new GenerationCoalescer(queue, 10);
+
+		Results blocked = new Results();
+		Results a = new Results(), b = new Results(), duplicate = new Results(), c = new Results();
+
+		Assert.assertTrue(generations.submit(blocked.operation("blocked", "blocked", 1, CancellationToken.NONE)));
+		Assert.assertTrue(generations.submit(a.operation("a", "g", 2, CancellationToken.NONE)));
+		Assert.assertTrue(generations.submit(b.operation("b", "g", 3, CancellationToken.NONE)));
+		Assert.assertTrue(generations.submit(duplicate.operation("a", "g", 2, CancellationToken.NONE)));
+		Assert.assertFalse(generations.submit(new Results().operation("a", "g", 4, CancellationToken.NONE)));
+
+		// Does not fit in the waiting batch
+		Assert.assertTrue(generations.submit(c.operation("c", "g", 6, CancellationToken.NONE)));
+
+		provider.release.countDown();
+		a.await();
+		b.await();
+		duplicate.await();
+		c.await();
+
+		Assert.assertEquals(List.of("blocked:1", "g:5", "g:6"), provider.calls);
+		Assert.assertEquals(List.of(List.of("blocked"), List.of("a", "b"), List.of("c")), provider.batches);
+		Assert.assertEquals(3, generations.getInvocations());
+		Assert.assertEquals(1, generations.getAttached());
+
+		Assert.assertEquals(List.of(0, 1), a.indices);
+		Assert.assertEquals(List.of(0, 1, 2), b.indices);
+		Assert.assertEquals(a.audio, duplicate.audio);
+		Assert.assertEquals(provider.results.subList(1, 3), a.audio);
+		Assert.assertEquals(provider.results.subList(3, 6), b.audio);
+		Assert.assertTrue(a.success && b.success && duplicate.success && c.success);
+		queue.shutdown();
+	}
+
+	@Test
+	public void cancellation() throws InterruptedException {
+		TestProvider provider = new TestProvider();
+		GenerationProviderQueue queue = new GenerationProviderQueue(provider, 1, 1, 8);
+		GenerationCoalescer generations = new GenerationCoalescer(queue, 10);
+
+		CancellationToken first = new CancellationToken();
+		CancellationToken second = new CancellationToken();
+		Results blocked = new Results(), a = new Results(), b = new Results(), c = new Results();
+
+		Assert.assertTrue(generations.submit(blocked.operation("blocked", "blocked", 1, CancellationToken.NONE)));
+		Assert.assertTrue(generations.submit(a.operation("a", "g", 2, first)));
+		Assert.assertTrue(generations.submit(b.operation("b", "g", 3, CancellationToken.NONE)));
+		first.cancel();
+
+		// A batch with every request cancelled is never run
+		Assert.assertTrue(generations.submit(c.operation("c", "h", 3, second)));
+		second.cancel();
+
+		provider.release.countDown();
+		b.await();
+
+		Assert.assertEquals(List.of("blocked:1", "g:3"), provider.calls);
+		Assert.assertTrue(a.indices.isEmpty());
+		Assert.assertEquals(List.of(0, 1, 2), b.indices);
+
+		// Operations cancelled before their batch started end without success
+		a.await();
+		c.await();
+		Assert.assertFalse(a.success);
+		Assert.assertFalse(c.success);
+		queue.shutdown();
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import com.almostrealism.remote.GenerationProviderQueue;
+import com.almostrealism.remote.ops.CancellationToken;
+import com.almostrealism.remote.ops.Operation;
+import org.almostrealism.studio.generative.GenerationProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class GenerationProviderQueueTest {
+	private static class TestOperation implements Operation {
+		private final String requestId;
+		private final GenerationProviderQueue.Lane lane;
+		private final int priority;
+		private final Runnable body;
+		private final CancellationToken cancellation;
+		private String userId;
+		private volatile boolean discarded;
+
+		TestOperation(String requestId, GenerationProviderQueue.Lane lane, int priority, Runnable body) {
+			this(requestId, lane, priority, body, CancellationToken.NONE);
+		}
+
+		TestOperation(String requestId, GenerationProviderQueue.Lane lane, int priority,
+					  Runnable body, CancellationToken cancellation) {
+			this.requestId = requestId;
+			this.lane = lane;
+			this.priority = priority;
+			this.body = body;
+			this.cancellation = cancellation;
+		}
+
+		@Override
+		public String getRequestId() { return requestId; }
+
+		@Override
+		public GenerationProviderQueue.Lane getLane() { return lane; }
+
+		@Override
+		public int getPriority() { return priority; }
+
+		@Override
+		public String getUserId() { return userId; }
+
+		@Override
+		public CancellationToken getCancellationToken() { return cancellation; }
+
+		TestOperation user(String userId) {
+			this.userId = userId;
+			return this;
+		}
+
+		@Override
+		public void accept(GenerationProvider provider) { body.run(); }
+
+		@Override
+		public void discard() { discarded = true; }
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void generateIsNotBlockedByRefresh() {
+		GenerationProviderQueue queue = new GenerationProviderQueue(null);
+		Assert.assertTrue(queue.isConcurrent());
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch training = new CountDownLatch(1);
+		CountDownLatch generated = new CountDownLatch(1);
+
+		// A slow refresh holds the only refresh worker until the generate is done
+		queue.submit(new TestOperation("train", GenerationProviderQueue.Lane.REFRESH, 0, () -> {
+			started.countDown();
+			await(training);
+		}));
+		await(started);
+
+		queue.submit(new TestOperation("gen", GenerationProviderQueue.Lane.GENERATE, 0, generated::countDown));
+
+		await(generated);
+		Assert.assertTrue(queue.isCurrent("train"));
+
+		training.countDown();
+		while (queue.isCurrent("train")) Thread.onSpinWait();
+		queue.shutdown();
+	}
+
+	@Test
+	public void lanesShareProviderWhenExclusive() {
+		GenerationProviderQueue queue = new GenerationProviderQueue(null, 1, 1, 8, false);
+		Assert.assertFalse(queue.isConcurrent());
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch training = new CountDownLatch(1);
+		CountDownLatch generated = new CountDownLatch(1);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		queue.submit(new TestOperation("train", GenerationProviderQueue.Lane.REFRESH, 0, () -> {
+			started.countDown();
+			await(training);
+			order.add("train");
+		}));
+		await(started);
+
+		queue.submit(new TestOperation("gen", GenerationProviderQueue.Lane.GENERATE, 0, () -> {
+			order.add("gen");
+			generated.countDown();
+		}));
+
+		while (queue.getMetrics(GenerationProviderQueue.Lane.GENERATE).getDepth() > 0) Thread.onSpinWait();
+		Assert.assertEquals(0, queue.getMetrics(GenerationProviderQueue.Lane.GENERATE).getActive());
+
+		training.countDown();
+		await(generated);
+
+		Assert.assertEquals(List.of("train", "gen"), order);
+		queue.shutdown();
+	}
+
+	@Test
+	public void priorityAndRejection() {
+		GenerationProviderQueue queue = new GenerationProviderQueue(null, 1, 1, 3);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(3);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		GenerationProviderQueue.Lane lane = GenerationProviderQueue.Lane.GENERATE;
+		queue.submit(new TestOperation("first", lane, 0, () -> { started.countDown(); await(blocked); }));
+		await(started);
+
+		Assert.assertTrue(queue.submit(new TestOperation("low", lane, 0, () -> { order.add("low"); done.countDown(); })));
+		Assert.assertTrue(queue.submit(new TestOperation("high", lane, 5, () -> { order.add("high"); done.countDown(); })));
+		Assert.assertTrue(queue.submit(new TestOperation("mid", lane, 2, () -> { order.add("mid"); done.countDown(); })));
+		Assert.assertFalse(queue.submit(new TestOperation("low", lane, 0, () -> { })));
+		Assert.assertFalse(queue.submit(new TestOperation("overflow", lane, 0, () -> { })));
+
+		Assert.assertEquals(3, queue.getMetrics(lane).getDepth());
+		Assert.assertEquals(1, queue.getMetrics(lane).getRejected());
+
+		blocked.countDown();
+		await(done);
+
+		Assert.assertEquals(List.of("high", "mid", "low"), order);
+		queue.shutdown();
+	}
+
+	@Test
+	public void fairness() {
+		GenerationProviderQueue queue = new GenerationProviderQueue(null, 1, 1, 8);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(5);
+		List<String> order = new CopyOnWriteArrayList<>();
+
+		GenerationProviderQueue.Lane lane = GenerationProviderQueue.Lane.GENERATE;
+		queue.submit(new TestOperation("first", lane, 0, () -> { started.countDown(); await(blocked); }).user("heavy"));
+		await(started);
+
+		for (String id : List.of("heavy1", "heavy2", "heavy3")) {
+			queue.submit(new TestOperation(id, lane, 0, () -> { order.add(id); done.countDown(); }).user("heavy"));
+		}
+
+		for (String id : List.of("light1", "light2")) {
+			queue.submit(new TestOperation(id, lane, 0, () -> { order.add(id); done.countDown(); }).user("light"));
+		}
+
+		blocked.countDown();
+		await(done);
+
+		Assert.assertEquals(List.of("light1", "heavy1", "light2", "heavy2", "heavy3"), order);
+		queue.shutdown();
+	}
+
+	@Test
+	public void cancellation() {
+		GenerationProviderQueue queue = new GenerationProviderQueue(null, 1, 1, 8);
+		GenerationProviderQueue.Lane lane = GenerationProviderQueue.Lane.GENERATE;
+		CancellationToken token = new CancellationToken();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch interrupted = new CountDownLatch(1);
+		List<String> ran = new CopyOnWriteArrayList<>();
+
+		queue.submit(new TestOperation("running", lane, 0, () -> {
+			started.countDown();
+
+			try {
+				Thread.sleep(10000);
+			} catch (InterruptedException e) {
+				interrupted.countDown();
+			}
+		}, token));
+		await(started);
+
+		TestOperation queued = new TestOperation("queued", lane, 0, () -> ran.add("queued"), token);
+		queue.submit(queued);
+		Assert.assertEquals(1, queue.getMetrics(lane).getDepth());
+
+		token.cancel();
+		await(interrupted);
+
+		while (queue.isCurrent("running")) Thread.onSpinWait();
+		Assert.assertFalse(queue.isCurrent("queued"));
+		Assert.assertEquals(0, queue.getMetrics(lane).getDepth());
+		Assert.assertEquals(2, queue.getMetrics(lane).getCancelled());
+
+		CountDownLatch after = new CountDownLatch(1);
+		queue.submit(new TestOperation("after", lane, 0, after::countDown));
+		await(after);
+
+		Assert.assertTrue(ran.isEmpty());
+		Assert.assertTrue(queued.discarded);
+		Assert.assertFalse(queue.submit(new TestOperation("late", lane, 0, () -> { }, token)));
+		queue.shutdown();
+	}
+}
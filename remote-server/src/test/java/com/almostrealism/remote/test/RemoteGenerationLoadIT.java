@@ -0,0 +1,192 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import com.almostrealism.remote.GenerationProviderQueue;
+import com.almostrealism.remote.RemoteGenerationServer;
+import com.almostrealism.remote.SourceStore;
+import com.google.protobuf.MessageLite;
+import io.grpc.ForwardingServerCall;
+import io.grpc.ForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.remote.RemoteAccessKey;
+import org.almostrealism.remote.RemoteGeneratorClient;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Drives a {@link RemoteGenerationServer}, running on the in-process transport with a
+ * {@link SyntheticGenerationProvider}, with several concurrent clients and reports the
+ * latency, traffic, allocation and queueing which resulted. This is run by the failsafe
+ * plugin in the perf profile ({@code mvn -Pperf verify}) and can be configured with the
+ * system properties {@code perf.clients}, {@code perf.requests}, {@code perf.count},
+ * {@code perf.seconds} and {@code perf.latency}.
+ */
+public class RemoteGenerationLoadIT {
+	private static final int clients = Integer.getInteger("perf.clients", 8);
+	private static final int requests = Integer.getInteger("perf.requests", 10);
+	private static final int count = Integer.getInteger("perf.count", 4);
+	private static final double seconds = Double.parseDouble(System.getProperty("perf.seconds", "1.0"));
+	private static final long latency = Long.getLong("perf.latency", 5);
+
+	/**
+	 * Counts the serialized size of every message the server sends and receives.
+	 */
+	private static class TrafficInterceptor implements ServerInterceptor {
+		private final AtomicLong sent = new AtomicLong();
+		private final AtomicLong received = new AtomicLong();
+
+		@Override
+		public <Q, R> ServerCall.Listener<Q> interceptCall(ServerCall<Q, R> call, Metadata headers, ServerCallHandler<Q, R> next) {
+			ServerCall<Q, R> counted = new ForwardingServerCall.SimpleForwardingServerCall<>(call) {
+				@Override
+				public void sendMessage(R message) {
+					sent.addAndGet(((MessageLite) message).getSerializedSize());
+					super.sendMessage(message);
+				}
+			};
+
+			return new ForwardingServerCallListener.SimpleForwardingServerCallListener<>(next.startCall(counted, headers)) {
+				@Override
+				public void onMessage(Q message) {
+					received.addAndGet(((MessageLite) message).getSerializedSize());
+					super.onMessage(message);
+				}
+			};
+		}
+	}
+
+	@Test
+	public void load() throws Exception {
+		String name = InProcessServerBuilder.generateName();
+		TrafficInterceptor traffic = new TrafficInterceptor();
+		SyntheticGenerationProvider provider = new SyntheticGenerationProvider(seconds, 10 * latency, latency, false);
+
+		RemoteGenerationServer server = new RemoteGenerationServer((userId, token, key, requestId) -> true, provider,
+				new SourceStore(), InProcessServerBuilder.forName(name).intercept(traffic));
+		server.start();
+
+		RemoteAccessKey key = new RemoteAccessKey(null, 0, "perf", "token", "key");
+		List<RemoteGeneratorClient> remotes = new ArrayList<>();
+		IntStream.range(0, clients).forEach(i -> remotes.add(new RemoteGeneratorClient(InProcessChannelBuilder.forName(name), key)));
+
+		List<Long> generateLatency = Collections.synchronizedList(new ArrayList<>());
+		List<Long> refreshLatency = Collections.synchronizedList(new ArrayList<>());
+		AtomicLong results = new AtomicLong();
+
+		long allocated = allocatedBytes();
+		long start = System.nanoTime();
+
+		try {
+			List<CompletableFuture<?>> all = new ArrayList<>();
+
+			for (int c = 0; c < clients; c++) {
+				RemoteGeneratorClient client = remotes.get(c);
+				String generatorId = "generator-" + c;
+				List<NoteAudio> sources = List.of(provider.audio(330), provider.audio(440));
+
+				long refreshStart = System.nanoTime();
+				CompletableFuture<?> session = client.refresh("refresh-" + c, generatorId, sources)
+						.thenAccept(success -> {
+							Assert.assertTrue(success);
+							refreshLatency.add(System.nanoTime() - refreshStart);
+						});
+
+				for (int r = 0; r < requests; r++) {
+					String requestId = "generate-" + c + "-" + r;
+
+					session = session.thenCompose(v -> {
+						long requestStart = System.nanoTime();
+
+						return client.generate(requestId, generatorId, count, (WaveData w) -> results.incrementAndGet())
+								.thenAccept(waves -> {
+									Assert.assertEquals(count, waves.size());
+									generateLatency.add(System.nanoTime() - requestStart);
+								});
+					});
+				}
+
+				all.add(session);
+			}
+
+			CompletableFuture.allOf(all.toArray(CompletableFuture[]::new)).get(10, TimeUnit.MINUTES);
+		} finally {
+			remotes.forEach(RemoteGeneratorClient::destroy);
+			server.shutdown();
+		}
+
+		double elapsed = (System.nanoTime() - start) / 1e9;
+		long allocation = allocatedBytes() - allocated;
+		GenerationProviderQueue.LaneMetrics queue = server.getService().getQueue().getMetrics(GenerationProviderQueue.Lane.GENERATE);
+
+		System.out.println("RemoteGenerationLoadIT: " + clients + " clients, " + requests + " requests of " + count +
+				" results each (" + seconds + "s audio, " + latency + "ms per result)");
+		System.out.println("RemoteGenerationLoadIT: Completed in " + String.format("%.2f", elapsed) + "s, " +
+				String.format("%.1f", results.get() / elapsed) + " results/s");
+		System.out.println("RemoteGenerationLoadIT: Generate latency p50=" + percentile(generateLatency, 0.5) +
+				"ms p99=" + percentile(generateLatency, 0.99) + "ms");
+		System.out.println("RemoteGenerationLoadIT: Refresh latency p50=" + percentile(refreshLatency, 0.5) +
+				"ms p99=" + percentile(refreshLatency, 0.99) + "ms");
+		System.out.println("RemoteGenerationLoadIT: Sent " + traffic.sent.get() / 1024 + "KB, received " +
+				traffic.received.get() / 1024 + "KB");
+		System.out.println("RemoteGenerationLoadIT: Allocated " + (allocation < 0 ? "unknown" :
+				String.format("%.1f", allocation / elapsed / (1024 * 1024)) + "MB/s"));
+		System.out.println("RemoteGenerationLoadIT: Generate queue " + queue);
+
+		Assert.assertEquals((long) clients * requests * count, results.get());
+	}
+
+	private static long percentile(List<Long> nanos, double p) {
+		List<Long> sorted = new ArrayList<>(nanos);
+		if (sorted.isEmpty()) return 0;
+
+		Collections.sort(sorted);
+		int index = (int) Math.ceil(p * sorted.size()) - 1;
+		return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1))) / 1000000;
+	}
+
+	/**
+	 * Returns the number of bytes allocated by all threads so far, or -1 if the
+	 * JVM does not report it.
+	 */
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getTotalThreadAllocatedBytes();
+			}
+		}
+
+		return -1;
+	}
+}
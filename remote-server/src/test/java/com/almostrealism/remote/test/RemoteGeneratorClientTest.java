@@ -0,0 +1,168 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.remote.RemoteAccessKey;
+import org.almostrealism.remote.RemoteGeneratorClient;
+import org.almostrealism.remote.api.Generation;
+import org.almostrealism.remote.api.GeneratorGrpc;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteGeneratorClientTest {
+	/**
+	 * Responds to each generate request with short results. The first stream fails after
+	 * its first result has been sent, and requests for the generator "silent" are ignored.
+	 */
+	private static class TestGenerator extends GeneratorGrpc.GeneratorImplBase {
+		private final AtomicInteger streams = new AtomicInteger();
+
+		@Override
+		public StreamObserver<Generation.GeneratorRequest> generate(StreamObserver<Generation.Output> reply) {
+			boolean fail = streams.getAndIncrement() == 0;
+
+			return new StreamObserver<>() {
+				private boolean failed;
+
+				@Override
+				public synchronized void onNext(Generation.GeneratorRequest request) {
+					if (failed || "silent".equals(request.getGeneratorId())) return;
+
+					for (int i = 0; i < request.getCount(); i++) {
+						reply.onNext(output(request, i));
+
+						if (fail) {
+							failed = true;
+							reply.onError(Status.UNAVAILABLE.asRuntimeException());
+							return;
+						}
+					}
+				}
+
+				@Override
+				public void onError(Throwable t) { }
+
+				@Override
+				public synchronized void onCompleted() {
+					if (!failed) reply.onCompleted();
+				}
+			};
+		}
+
+		private static Generation.Output output(Generation.GeneratorRequest request, int index) {
+			double[] samples = new double[16];
+			for (int i = 0; i < samples.length; i++) samples[i] = index;
+
+			Generation.AudioSegment.Builder segment = Generation.AudioSegment.newBuilder()
+					.setIndex(0)
+					.setTotalSamples(samples.length)
+					.setSampleRate(44100)
+					.setIsFinal(true);
+			AudioSegmentCodec.encode(segment, samples, 0, samples.length, Generation.Encoding.DOUBLE);
+
+			return Generation.Output.newBuilder()
+					.setRequestId(request.getRequestId())
+					.setGeneratorId(request.getGeneratorId())
+					.setIndex(index)
+					.setSegment(segment)
+					.build();
+		}
+	}
+
+	private static RemoteAccessKey key() {
+		return new RemoteAccessKey(null, 0, "user", "token", "key");
+	}
+
+	@Test
+	public void concurrentRequestsSurviveStreamFailure() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+		String name = InProcessServerBuilder.generateName();
+		Server server = InProcessServerBuilder.forName(name).directExecutor()
+				.addService(new TestGenerator()).build().start();
+		RemoteGeneratorClient client = new RemoteGeneratorClient(InProcessChannelBuilder.forName(name), key(), 2);
+
+		try {
+			List<CompletableFuture<List<WaveData>>> results = new ArrayList<>();
+			List<Thread> threads = new ArrayList<>();
+
+			for (int t = 0; t < 4; t++) {
+				int thread = t;
+				List<CompletableFuture<List<WaveData>>> submitted = new ArrayList<>();
+				results.add(null);
+
+				Thread th = new Thread(() -> {
+					for (int i = 0; i < 10; i++) {
+						submitted.add(client.generate("request-" + thread + "-" + i, "g", 3, w -> { }));
+					}
+
+					results.set(thread, CompletableFuture.allOf(submitted.toArray(CompletableFuture[]::new))
+							.thenApply(v -> submitted.stream().flatMap(f -> f.join().stream()).toList()));
+				});
+
+				threads.add(th);
+				th.start();
+			}
+
+			for (Thread t : threads) t.join();
+
+			for (CompletableFuture<List<WaveData>> r : results) {
+				Assert.assertEquals(30, r.get(10, TimeUnit.SECONDS).size());
+			}
+
+			Assert.assertEquals(0, client.getPendingCount());
+		} finally {
+			client.destroy();
+			server.shutdownNow();
+		}
+	}
+
+	@Test
+	public void timeout() throws IOException, InterruptedException {
+		String name = InProcessServerBuilder.generateName();
+		Server server = InProcessServerBuilder.forName(name).directExecutor()
+				.addService(new TestGenerator()).build().start();
+		RemoteGeneratorClient client = new RemoteGeneratorClient(InProcessChannelBuilder.forName(name), key(), 1);
+		client.setTimeout(200);
+
+		try {
+			client.generate("request", "silent", 1, w -> { }).get(10, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof TimeoutException);
+		} catch (TimeoutException e) {
+			Assert.fail("Request did not time out");
+		} finally {
+			client.destroy();
+			server.shutdownNow();
+		}
+	}
+}
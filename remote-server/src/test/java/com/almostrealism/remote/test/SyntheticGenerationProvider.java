@@ -0,0 +1,108 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.almostrealism.remote.test;
+
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.audio.notes.NoteAudioProvider;
+import org.almostrealism.audioml.IncrementalGenerationProvider;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.studio.generative.GeneratorStatus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link IncrementalGenerationProvider} which produces sine tones or noise without
+ * any model, after a configurable delay, for exercising the server.
+ */
+public class SyntheticGenerationProvider implements IncrementalGenerationProvider {
+	public static final int SAMPLE_RATE = 44100;
+
+	private final int samples;
+	private final long refreshLatency;
+	private final long generateLatency;
+	private final boolean noise;
+	private final Set<String> refreshed;
+
+	/**
+	 * @param  seconds  Duration of each result.
+	 * @param  refreshLatency  Time, in milliseconds, taken by each refresh.
+	 * @param  generateLatency  Time, in milliseconds, taken to produce each result.
+	 * @param  noise  Whether to produce noise rather than sine tones.
+	 */
+	public SyntheticGenerationProvider(double seconds, long refreshLatency, long generateLatency, boolean noise) {
+		this.samples = (int) (seconds * SAMPLE_RATE);
+		this.refreshLatency = refreshLatency;
+		this.generateLatency = generateLatency;
+		this.noise = noise;
+		this.refreshed = ConcurrentHashMap.newKeySet();
+	}
+
+	@Override
+	public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources) {
+		if (!sleep(refreshLatency)) return false;
+		refreshed.add(generatorId);
+		return true;
+	}
+
+	@Override
+	public GeneratorStatus getStatus(String id) {
+		return refreshed.contains(id) ? GeneratorStatus.READY : GeneratorStatus.NONE;
+	}
+
+	@Override
+	public boolean generate(String requestId, String generatorId, int count, Receiver output) {
+		for (int i = 0; i < count; i++) {
+			if (!sleep(generateLatency)) return false;
+			output.receive(i, audio(220.0 * (i + 1)));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Creates a result, which is a sine tone with the specified frequency unless this
+	 * provider produces noise.
+	 */
+	public NoteAudio audio(double frequency) {
+		double[] data = new double[samples];
+
+		for (int i = 0; i < data.length; i++) {
+			data[i] = noise ? Math.random() * 2 - 1 : 0.5 * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE);
+		}
+
+		PackedCollection collection = new PackedCollection(data.length);
+		collection.setMem(0, data);
+		return NoteAudioProvider.create(() -> collection);
+	}
+
+	@Override
+	public int getSampleRate() { return SAMPLE_RATE; }
+
+	private static boolean sleep(long millis) {
+		if (millis <= 0) return true;
+
+		try {
+			Thread.sleep(millis);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+}
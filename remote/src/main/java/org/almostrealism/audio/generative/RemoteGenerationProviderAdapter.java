@@ -5,23 +5,32 @@
 
 package org.almostrealism.audio.generative;
 
+import io.almostrealism.relation.Validity;
 import org.almostrealism.audio.notes.NoteAudio;
 import org.almostrealism.remote.RemoteAccessKey;
 import org.almostrealism.remote.RemoteGenerationProvider;
+import org.almostrealism.remote.ops.AudioHash;
 import org.almostrealism.remote.ops.GenerateRequest;
 import org.almostrealism.remote.ops.RefreshRequest;
 import org.almostrealism.remote.ops.RequestHistory;
+import org.almostrealism.remote.ops.RequestRetrier;
 import org.almostrealism.audio.line.OutputLine;
 import org.almostrealism.studio.generative.GenerationProvider;
 import org.almostrealism.studio.generative.GenerationResourceManager;
 import org.almostrealism.studio.generative.GeneratorStatus;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 public class RemoteGenerationProviderAdapter implements GenerationProvider {
+	private static final String SOURCE = "source:";
+
 	private GenerationResourceManager resources;
+	private final RequestRetrier retrier;
 
 	private String host;
 	private int port;
@@ -36,11 +45,13 @@ public class RemoteGenerationProviderAdapter implements GenerationProvider {
 		this.resources = resources;
 		this.history = history;
 		this.requestCallback = requestCallback;
+		this.retrier = new RequestRetrier();
 	}
 
-	public void setHost(String host, int port) {
+	public synchronized void setHost(String host, int port) {
 		if (remote != null) {
 			remote.destroy();
+			remote = null;
 		}
 
 		this.host = host;
@@ -53,23 +64,55 @@ public class RemoteGenerationProviderAdapter implements GenerationProvider {
 	public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources) {
 		ensureRemote();
 
-		RefreshRequest request = new RefreshRequest(requestId, generatorId, sources);
-		history.getRefreshRequests().add(request);
+		RefreshRequest request = new RefreshRequest(requestId, generatorId, store(sources));
+		history.add(request);
 		if (requestCallback != null) requestCallback.accept(history);
 
 		try {
 			boolean success = remote.refresh(requestId, generatorId, sources);
-			request.setComplete(true);
-			request.setError(!success);
+			history.update(request, true, !success);
 			if (requestCallback != null) requestCallback.accept(history);
 			return success;
 		} catch (Exception e) {
-			request.setError(true);
+			history.update(request, request.isComplete(), true);
 			if (requestCallback != null) requestCallback.accept(history);
 			return false;
 		}
 	}
 
+	/**
+	 * Stores the valid sources with the {@link GenerationResourceManager}, if they are not
+	 * already stored, so that the request can be retried without keeping the audio in the
+	 * {@link RequestHistory}, and returns their hashes.
+	 */
+	protected List<String> store(List<NoteAudio> sources) {
+		return sources.stream()
+				.filter(Validity::valid)
+				.map(NoteAudio::getWaveData)
+				.filter(Objects::nonNull)
+				.map(data -> {
+					String hash = AudioHash.sha256(data);
+					if (resources.getAudio(SOURCE + hash) == null) resources.storeAudio(SOURCE + hash, data);
+					return hash;
+				})
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the stored sources with the specified hashes, or null if any are missing.
+	 */
+	protected List<NoteAudio> sources(List<String> hashes) {
+		List<NoteAudio> sources = new ArrayList<>();
+
+		for (String hash : hashes) {
+			NoteAudio audio = resources.getAudio(SOURCE + hash);
+			if (audio == null) return null;
+			sources.add(audio);
+		}
+
+		return sources;
+	}
+
 	@Override
 	public GeneratorStatus getStatus(String id) {
 		ensureRemote();
@@ -81,48 +124,69 @@ public class RemoteGenerationProviderAdapter implements GenerationProvider {
 		ensureRemote();
 
 		GenerateRequest request = new GenerateRequest(requestId, generatorId, count);
-		history.getGenerateRequests().add(request);
+		history.add(request);
 		if (requestCallback != null) requestCallback.accept(history);
 
 		try {
 			List<NoteAudio> result = remote.generate(requestId, generatorId, count);
-			request.setComplete(true);
 			if (result == null || result.isEmpty()) throw new RuntimeException();
+			history.update(request, true, false);
 			if (requestCallback != null) requestCallback.accept(history);
 			return result;
 		} catch (Exception e) {
-			request.setError(true);
+			history.update(request, true, true);
 			if (requestCallback != null) requestCallback.accept(history);
 			return null;
 		}
 	}
 
+	/**
+	 * Retries, in the background, every refresh request which has not completed
+	 * successfully. The listener is notified for each request once it succeeds or
+	 * the {@link RequestRetrier} gives up on it.
+	 */
 	public void retryRefresh(BiConsumer<String, Boolean> success) {
 		ensureRemote();
 
-		history.getRefreshRequests().forEach(request -> {
-			if (!request.isComplete() || request.isError()) {
-				boolean result = remote.refresh(request.getRequestId(), request.getGeneratorId(), request.getSources());
-				success.accept(request.getGeneratorId(), result);
-				request.setComplete(true);
-				request.setError(!result);
-				if (requestCallback != null) requestCallback.accept(history);
-			}
-		});
+		history.getPendingRefreshRequests().forEach(request ->
+				retrier.submit(request.getRequestId(), () -> attemptRefresh(request), result -> result,
+						result -> success.accept(request.getGeneratorId(), result != null && result)));
 	}
 
+	/**
+	 * Retries, in the background, every generate request which has not completed
+	 * successfully. The listener is notified for each request once it succeeds or
+	 * the {@link RequestRetrier} gives up on it, in which case the results are null.
+	 */
 	public void retryGenerate(BiConsumer<String, List<NoteAudio>> results) {
 		ensureRemote();
 
-		history.getGenerateRequests().forEach(request -> {
-			if (!request.isComplete() || request.isError()) {
-				List<NoteAudio> result = remote.generate(request.getRequestId(), request.getGeneratorId(), request.getCount());
-				results.accept(request.getGeneratorId(), result);
-				request.setComplete(true);
-				request.setError(result == null || result.isEmpty());
-				if (requestCallback != null) requestCallback.accept(history);
-			}
-		});
+		history.getPendingGenerateRequests().forEach(request ->
+				retrier.submit(request.getRequestId(), () -> attemptGenerate(request), result -> !result.isEmpty(),
+						result -> results.accept(request.getGeneratorId(), result)));
+	}
+
+	protected Boolean attemptRefresh(RefreshRequest request) {
+		List<NoteAudio> sources = sources(request.getSourceHashes());
+
+		if (sources == null) {
+			// Retrying cannot bring the sources back, so the request has failed
+			history.update(request, true, true);
+			if (requestCallback != null) requestCallback.accept(history);
+			throw new RequestRetrier.NonRetryableException("Sources for " + request.getRequestId() + " are no longer available");
+		}
+
+		boolean result = remote.refresh(request.getRequestId(), request.getGeneratorId(), sources);
+		history.update(request, true, !result);
+		if (requestCallback != null) requestCallback.accept(history);
+		return result;
+	}
+
+	protected List<NoteAudio> attemptGenerate(GenerateRequest request) {
+		List<NoteAudio> result = remote.generate(request.getRequestId(), request.getGeneratorId(), request.getCount());
+		history.update(request, true, result == null || result.isEmpty());
+		if (requestCallback != null) requestCallback.accept(history);
+		return result;
 	}
 
 	private synchronized void ensureRemote() {
@@ -155,4 +219,16 @@ public class RemoteGenerationProviderAdapter implements GenerationProvider {
 	public int getSampleRate() {
 		return OutputLine.sampleRate;
 	}
+
+	/**
+	 * Stops retrying requests and closes the connection to the remote provider.
+	 */
+	public synchronized void destroy() {
+		retrier.shutdown();
+
+		if (remote != null) {
+			remote.destroy();
+			remote = null;
+		}
+	}
 }
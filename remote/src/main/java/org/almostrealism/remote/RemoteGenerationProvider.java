@@ -19,13 +19,15 @@ package org.almostrealism.remote;
 import org.almostrealism.studio.generative.GenerationProvider;
 import org.almostrealism.studio.generative.GenerationResourceManager;
 import org.almostrealism.studio.generative.GeneratorStatus;
+import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.notes.NoteAudio;
 import org.almostrealism.util.KeyUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class RemoteGenerationProvider implements GenerationProvider {
 	private final RemoteGeneratorClient client;
@@ -38,21 +40,14 @@ public class RemoteGenerationProvider implements GenerationProvider {
 
 	@Override
 	public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources) {
-		CountDownLatch latch = new CountDownLatch(1);
-		AtomicBoolean success = new AtomicBoolean(false);
-
-		boolean valid = client.refresh(requestId, generatorId, sources, s -> {
-			success.set(s);
-			latch.countDown();
-		}, () -> { while (latch.getCount() > 0) latch.countDown(); });
-
-		if (!valid) return false;
-
 		try {
 			System.out.println("Awaiting status...");
-			latch.await();
+			boolean success = client.refresh(requestId, generatorId, sources).get();
 			System.out.println("RemoteGenerationProvider: Done");
-			return success.get();
+			return success;
+		} catch (ExecutionException e) {
+			System.out.println("RemoteGenerationProvider: Refresh failed (" + e.getCause().getMessage() + ")");
+			return false;
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		}
@@ -65,23 +60,24 @@ public class RemoteGenerationProvider implements GenerationProvider {
 
 	@Override
 	public List<NoteAudio> generate(String requestId, String generatorId, int count) {
-		List<NoteAudio> results = new ArrayList<>();
-		CountDownLatch latch = new CountDownLatch(count);
+		List<NoteAudio> results = Collections.synchronizedList(new ArrayList<>());
 
-		client.generate(requestId, generatorId, count, wave -> {
+		CompletableFuture<List<WaveData>> generation = client.generate(requestId, generatorId, count, wave -> {
 			System.out.println("RemoteGeneratorProvider: Store result " + results.size());
 			results.add(resources.storeAudio(KeyUtils.generateKey(), wave));
-			latch.countDown();
-		}, () -> { while (latch.getCount() > 0) latch.countDown(); });
+		});
 
 		try {
 			System.out.println("Awaiting results...");
-			latch.await();
-			System.out.println("RemoteGenerationProvider: Returning " + results.size() + " results");
-			return results;
+			generation.get();
+		} catch (ExecutionException e) {
+			System.out.println("RemoteGenerationProvider: Generation ended early (" + e.getCause().getMessage() + ")");
 		} catch (InterruptedException e) {
 			throw new RuntimeException(e);
 		}
+
+		System.out.println("RemoteGenerationProvider: Returning " + results.size() + " results");
+		return new ArrayList<>(results);
 	}
 
 	@Override
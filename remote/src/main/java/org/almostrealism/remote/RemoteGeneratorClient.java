@@ -17,157 +17,412 @@
 package org.almostrealism.remote;
 
 import io.almostrealism.relation.Validity;
-import io.grpc.Channel;
+import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
 import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.remote.api.Generation;
 import org.almostrealism.remote.api.GeneratorGrpc;
 import org.almostrealism.remote.ops.GenerateRequestor;
 import org.almostrealism.remote.ops.RefreshRequestor;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * {@link RemoteGeneratorClient} submits refresh and generate requests to a remote generation
+ * server. Generate requests are spread across a small pool of long-lived streams and refresh
+ * requests share a single stream. If a stream fails, it is reopened and the requests which
+ * were outstanding on it are submitted again, up to {@link #maxAttempts} times; results
+ * which were already received are not delivered a second time. Each request fails with a
+ * {@link TimeoutException} if it does not complete within the client's timeout. Once the
+ * client is {@link #destroy() destroyed}, requests which are still pending fail and new
+ * requests fail immediately.
+ * <p>
+ * All methods may be called from any thread. Listeners are notified on gRPC threads.
+ *
+ * @author  Michael Murray
+ */
 public class RemoteGeneratorClient {
+	public static int defaultStreams = 4;
+	public static long defaultTimeout = 30 * 60 * 1000;
+	public static int maxAttempts = 3;
+	public static long reconnectDelay = 1000;
+
 	private final RemoteAccessKey key;
-	private final Channel channel;
+	private final ManagedChannel channel;
 	private final GeneratorGrpc.GeneratorStub generator;
 
-	private RefreshRequestor refresh;
-	private GenerateRequestor generate;
+	private final GenerateRequestor[] generateStreams;
+	private RefreshRequestor refreshStream;
+	private final AtomicInteger nextStream;
 
-	private final Map<String, Consumer<Boolean>> refreshListeners;
-	private final Map<String, Runnable> refreshEndListeners;
+	private final Map<String, GenerateCall> generates;
+	private final Map<String, RefreshCall> refreshes;
 
-	private final Map<String, Consumer<WaveData>> generateListeners;
-	private final Map<String, Runnable> generateEndListeners;
-
-	private final Map<String, AtomicInteger> completion;
+	private final ScheduledExecutorService scheduler;
+	private long timeout;
+	private volatile boolean destroyed;
 
 	public RemoteGeneratorClient(String host, int port, RemoteAccessKey key) {
 		this(ManagedChannelBuilder.forAddress(host, port).usePlaintext(), key);
 	}
 
 	public RemoteGeneratorClient(ManagedChannelBuilder<?> channelBuilder, RemoteAccessKey key) {
+		this(channelBuilder, key, defaultStreams);
+	}
+
+	public RemoteGeneratorClient(ManagedChannelBuilder<?> channelBuilder, RemoteAccessKey key, int streams) {
 		this.key = key;
 		this.channel = channelBuilder.build();
 		this.generator = GeneratorGrpc.newStub(channel);
-		this.refreshListeners = new HashMap<>();
-		this.refreshEndListeners = new HashMap<>();
-		this.generateListeners = new HashMap<>();
-		this.generateEndListeners = new HashMap<>();
-		this.completion = new HashMap<>();
+		this.generateStreams = new GenerateRequestor[streams];
+		this.nextStream = new AtomicInteger();
+		this.generates = new ConcurrentHashMap<>();
+		this.refreshes = new ConcurrentHashMap<>();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "RemoteGeneratorClient");
+			t.setDaemon(true);
+			return t;
+		});
+		this.timeout = defaultTimeout;
 	}
 
-	public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources, Consumer<Boolean> success, Runnable end) {
-		ensureRefresh();
+	/**
+	 * Sets the time, in milliseconds, after which a request which has not completed fails.
+	 */
+	public void setTimeout(long timeout) { this.timeout = timeout; }
 
-		List<WaveData> data = sources.stream()
-				.filter(Validity::valid)
-				.map(NoteAudio::getWaveData)
-				.filter(Objects::nonNull)
-				.collect(Collectors.toList());
+	public long getTimeout() { return timeout; }
 
+	/**
+	 * Returns the number of requests which have been submitted and have not completed.
+	 */
+	public int getPendingCount() { return generates.size() + refreshes.size(); }
+
+	public boolean refresh(String requestId, String generatorId, List<NoteAudio> sources, Consumer<Boolean> success, Runnable end) {
+		List<WaveData> data = waves(sources);
 		if (data.isEmpty()) return false;
 
-		System.out.println("RemoteGeneratorClient: Submitting refresh request " + requestId);
+		submitRefresh(requestId, generatorId, data).whenComplete((result, e) -> {
+			if (e == null) success.accept(result);
+			end.run();
+		});
 
-		refreshListeners.put(requestId, success);
-		refreshEndListeners.put(requestId, end);
-		completion.put(requestId, new AtomicInteger(1));
-		refresh.submit(requestId, generatorId, data);
 		return true;
 	}
 
+	/**
+	 * Submits a refresh request for the valid sources, returning a {@link CompletableFuture}
+	 * which completes with whether the refresh was successful. If there are no valid
+	 * sources, nothing is submitted and the result is false.
+	 */
+	public CompletableFuture<Boolean> refresh(String requestId, String generatorId, List<NoteAudio> sources) {
+		List<WaveData> data = waves(sources);
+		if (data.isEmpty()) return CompletableFuture.completedFuture(false);
+		return submitRefresh(requestId, generatorId, data);
+	}
+
+	private CompletableFuture<Boolean> submitRefresh(String requestId, String generatorId, List<WaveData> sources) {
+		RefreshCall call = new RefreshCall(requestId, generatorId, sources);
+		if (!start(refreshes, call)) return call.future;
+
+		System.out.println("RemoteGeneratorClient: Submitting refresh request " + requestId);
+		submit(call);
+		return call.future;
+	}
+
 	public void generate(String requestId, String generatorId, int count, Consumer<WaveData> output, Runnable end) {
-		ensureGenerate();
+		generate(requestId, generatorId, count, output).whenComplete((results, e) -> end.run());
+	}
 
-		System.out.println("RemoteGeneratorClient: Submitting generate request " + requestId);
+	/**
+	 * Submits a generate request, passing each result to the output {@link Consumer} as it
+	 * is received. The returned {@link CompletableFuture} completes with the results, in
+	 * order, once all of them have been received or the server reports that it has
+	 * finished, in which case there may be fewer results than requested. It completes
+	 * exceptionally if the server reports that generation failed, if the request times
+	 * out or if the request could not be delivered.
+	 */
+	public CompletableFuture<List<WaveData>> generate(String requestId, String generatorId, int count, Consumer<WaveData> output) {
+		GenerateCall call = new GenerateCall(requestId, generatorId, count, output,
+				Math.floorMod(nextStream.getAndIncrement(), generateStreams.length));
+		if (!start(generates, call)) return call.future;
 
-		generateListeners.put(requestId, output);
-		generateEndListeners.put(requestId, end);
-		completion.put(requestId, new AtomicInteger(count));
-		generate.submit(requestId, generatorId, count);
+		System.out.println("RemoteGeneratorClient: Submitting generate request " + requestId);
+		submit(call);
+		return call.future;
 	}
 
-	private void ensureRefresh() {
-		if (refresh == null) {
-			refresh = new RefreshRequestor(key, generator, this::deliver, this::refreshEnd);
+	private synchronized <T extends Call<?>> boolean start(Map<String, T> calls, T call) {
+		if (destroyed) {
+			call.future.completeExceptionally(new IllegalStateException("Client was destroyed"));
+			return false;
+		}
+
+		if (calls.putIfAbsent(call.requestId, call) != null) {
+			call.future.completeExceptionally(new IllegalStateException("Request " + call.requestId + " is already in progress"));
+			return false;
 		}
+
+		call.timeout = scheduler.schedule(() -> {
+			if (calls.remove(call.requestId, call)) {
+				System.out.println("RemoteGeneratorClient: Request " + call.requestId + " timed out");
+				call.future.completeExceptionally(new TimeoutException("Request " + call.requestId + " timed out"));
+			}
+		}, timeout, TimeUnit.MILLISECONDS);
+		return true;
 	}
 
-	private void refreshDone(String requestId) {
-		refreshListeners.remove(requestId);
-		refreshEndListeners.remove(requestId);
-		completion.remove(requestId);
-		System.out.println("RemoteGeneratorClient: Finished receiving results for " + requestId);
+	private void submit(RefreshCall call) {
+		if (destroyed || refreshes.get(call.requestId) != call) return;
+		refreshStream().submit(call.requestId, call.generatorId, call.sources);
 	}
 
-	private void refreshEnd() {
-		refresh = null;
+	private void submit(GenerateCall call) {
+		if (destroyed || generates.get(call.requestId) != call) return;
+		generateStream(call.stream).submit(call.requestId, call.generatorId, call.count);
+	}
 
-		List<String> all = new ArrayList<>();
-		all.addAll(refreshEndListeners.keySet());
+	private synchronized RefreshRequestor refreshStream() {
+		if (refreshStream == null) {
+			RefreshRequestor[] stream = new RefreshRequestor[1];
+			stream[0] = new RefreshRequestor(key, generator, this::deliver, () -> refreshEnd(stream[0]));
+			refreshStream = stream[0];
+		}
 
-		all.stream().map(refreshEndListeners::get).forEach(Runnable::run);
-		all.forEach(this::refreshDone);
+		return refreshStream;
 	}
 
-	private void ensureGenerate() {
-		if (generate == null) {
-			generate = new GenerateRequestor(key, generator, this::deliver, this::generateEnd);
+	private synchronized GenerateRequestor generateStream(int index) {
+		if (generateStreams[index] == null) {
+			GenerateRequestor[] stream = new GenerateRequestor[1];
+			stream[0] = new GenerateRequestor(key, generator, this::deliver, this::status, () -> generateEnd(index, stream[0]));
+			generateStreams[index] = stream[0];
 		}
+
+		return generateStreams[index];
 	}
 
-	private void generateDone(String requestId) {
-		generateListeners.remove(requestId);
-		generateEndListeners.remove(requestId);
-		completion.remove(requestId);
-		System.out.println("RemoteGeneratorClient: Finished receiving results for " + requestId);
+	private void refreshEnd(RefreshRequestor stream) {
+		synchronized (this) {
+			if (refreshStream == stream) refreshStream = null;
+		}
+
+		refreshes.values().forEach(call -> retry(refreshes, call, () -> submit(call)));
 	}
 
-	private void generateEnd() {
-		generate = null;
+	private void generateEnd(int index, GenerateRequestor stream) {
+		synchronized (this) {
+			if (generateStreams[index] == stream) generateStreams[index] = null;
+		}
+
+		generates.values().stream()
+				.filter(call -> call.stream == index)
+				.forEach(call -> retry(generates, call, () -> submit(call)));
+	}
 
-		List<String> all = new ArrayList<>();
-		all.addAll(generateEndListeners.keySet());
+	/**
+	 * Submits a request again, after a delay, if it has not been attempted too many times.
+	 */
+	private <T extends Call<?>> void retry(Map<String, T> calls, T call, Runnable submit) {
+		if (destroyed) {
+			fail(calls, call, "Client was destroyed");
+			return;
+		}
 
-		all.stream().map(generateEndListeners::get).forEach(Runnable::run);
-		all.forEach(this::generateDone);
+		if (call.attempts.incrementAndGet() >= maxAttempts) {
+			System.out.println("RemoteGeneratorClient: Request " + call.requestId + " failed after " + maxAttempts + " attempts");
+			fail(calls, call, "Stream for request " + call.requestId + " failed");
+			return;
+		}
+
+		System.out.println("RemoteGeneratorClient: Resubmitting request " + call.requestId);
+
+		try {
+			scheduler.schedule(submit, reconnectDelay * call.attempts.get(), TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			// The client was destroyed after the check above
+			fail(calls, call, "Client was destroyed");
+		}
+	}
+
+	private <T extends Call<?>> void fail(Map<String, T> calls, T call, String message) {
+		if (calls.remove(call.requestId, call)) {
+			call.end();
+			call.future.completeExceptionally(new IllegalStateException(message));
+		}
 	}
 
 	protected void deliver(String requestId, boolean success) {
-		if (!refreshListeners.containsKey(requestId)) {
+		RefreshCall call = refreshes.remove(requestId);
+
+		if (call == null) {
 			System.out.println("WARN: No listener for request " + requestId);
 			return;
 		}
 
-		refreshListeners.get(requestId).accept(success);
-		if (completion.get(requestId).decrementAndGet() <= 0) {
-			refreshDone(requestId);
+		call.end();
+		call.future.complete(success);
+		System.out.println("RemoteGeneratorClient: Finished receiving results for " + requestId);
+	}
+
+	/**
+	 * Handles progress for a generate request. Results which the server could not
+	 * produce are never delivered, so the request is ended once the server reports
+	 * that it has finished or failed, even if fewer results were received than were
+	 * requested.
+	 */
+	protected void status(Generation.Status status) {
+		String requestId = status.getRequestId();
+
+		if (status.getState() == Generation.State.IN_PROGRESS) {
+			System.out.println("RemoteGeneratorClient: Request " + requestId + " in progress (" +
+					status.getCompleted() + "/" + status.getTotal() + ")");
+			return;
+		}
+
+		GenerateCall call = generates.get(requestId);
+		if (call == null) return;
+
+		System.out.println("RemoteGeneratorClient: Request " + requestId + " " +
+				(status.getState() == Generation.State.FINISHED ? "finished" : "failed") + " with " +
+				status.getCompleted() + "/" + status.getTotal() + " results");
+
+		if (status.getState() == Generation.State.FINISHED) {
+			complete(call);
+		} else if (generates.remove(requestId, call)) {
+			call.end();
+			call.future.completeExceptionally(new IllegalStateException("Generation failed for request " + requestId));
 		}
 	}
 
 	protected void deliver(String requestId, int index, WaveData data) {
-		if (!generateListeners.containsKey(requestId)) {
+		GenerateCall call = generates.get(requestId);
+
+		if (call == null) {
 			System.out.println("WARN: No listener for request " + requestId);
 			return;
 		}
 
-		generateListeners.get(requestId).accept(data);
-		if (completion.get(requestId).decrementAndGet() <= 0) {
-			generateDone(requestId);
+		if (call.receive(index, data) && call.isComplete()) {
+			complete(call);
 		}
 	}
 
+	private void complete(GenerateCall call) {
+		if (!generates.remove(call.requestId, call)) return;
+
+		call.end();
+		call.future.complete(call.getResults());
+		System.out.println("RemoteGeneratorClient: Finished receiving results for " + call.requestId);
+	}
+
+	private static List<WaveData> waves(List<NoteAudio> sources) {
+		return sources.stream()
+				.filter(Validity::valid)
+				.map(NoteAudio::getWaveData)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Closes the streams and the channel. Every request which has not completed fails,
+	 * as does any request submitted afterwards.
+	 */
 	public void destroy() {
-		if (refresh != null) refresh.destroy();
-		if (generate != null) generate.destroy();
+		synchronized (this) {
+			if (destroyed) return;
+			destroyed = true;
+
+			if (refreshStream != null) refreshStream.destroy();
+			Arrays.stream(generateStreams).filter(Objects::nonNull).forEach(GenerateRequestor::destroy);
+		}
+
+		scheduler.shutdownNow();
+		channel.shutdown();
+
+		refreshes.values().forEach(call -> fail(refreshes, call, "Client was destroyed"));
+		generates.values().forEach(call -> fail(generates, call, "Client was destroyed"));
+	}
+
+	private abstract static class Call<T> {
+		protected final String requestId;
+		protected final String generatorId;
+		protected final CompletableFuture<T> future;
+		protected final AtomicInteger attempts;
+		protected ScheduledFuture<?> timeout;
+
+		Call(String requestId, String generatorId) {
+			this.requestId = requestId;
+			this.generatorId = generatorId;
+			this.future = new CompletableFuture<>();
+			this.attempts = new AtomicInteger();
+		}
+
+		void end() {
+			if (timeout != null) timeout.cancel(false);
+		}
+	}
+
+	private static class RefreshCall extends Call<Boolean> {
+		private final List<WaveData> sources;
+
+		RefreshCall(String requestId, String generatorId, List<WaveData> sources) {
+			super(requestId, generatorId);
+			this.sources = sources;
+		}
+	}
+
+	private static class GenerateCall extends Call<List<WaveData>> {
+		private final int count;
+		private final int stream;
+		private final Consumer<WaveData> output;
+		private final WaveData[] results;
+		private int received;
+
+		GenerateCall(String requestId, String generatorId, int count, Consumer<WaveData> output, int stream) {
+			super(requestId, generatorId);
+			this.count = count;
+			this.stream = stream;
+			this.output = output;
+			this.results = new WaveData[count];
+		}
+
+		/**
+		 * Records a result and passes it to the output, unless a result with the same
+		 * index was already received before the request was resubmitted.
+		 *
+		 * @return  True if the result was new.
+		 */
+		boolean receive(int index, WaveData data) {
+			synchronized (this) {
+				if (index < 0 || index >= count || results[index] != null) return false;
+				results[index] = data;
+				received++;
+			}
+
+			output.accept(data);
+			return true;
+		}
+
+		synchronized boolean isComplete() { return received >= count; }
+
+		synchronized List<WaveData> getResults() {
+			return Arrays.stream(results).filter(Objects::nonNull).collect(Collectors.toList());
+		}
 	}
 }
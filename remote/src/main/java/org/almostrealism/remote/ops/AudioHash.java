@@ -0,0 +1,103 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.ops;
+
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * {@link AudioHash} identifies audio by its content. The hash of a wave is the SHA-256
+ * digest of its samples written as little-endian float32 values, so the client and the
+ * server compute the same hash for a source regardless of the {@link
+ * org.almostrealism.remote.api.Generation.Encoding} that was used to transfer it (the
+ * lossy integer encodings excepted).
+ *
+ * @author  Michael Murray
+ */
+public class AudioHash {
+	private static final int CHUNK = 8192;
+
+	private AudioHash() { }
+
+	/**
+	 * Returns the hash of the samples of every channel, one channel after another, which
+	 * is the same as the hash of a {@link PackedCollection} holding the channels in the
+	 * shape used by {@link WaveData}.
+	 */
+	public static String sha256(WaveData data) {
+		if (data.getChannelCount() == 1) return sha256(data.getChannelData(0));
+
+		MessageDigest digest = digest();
+		ByteBuffer buf = ByteBuffer.allocate(4 * CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int c = 0; c < data.getChannelCount(); c++) {
+			PackedCollection channel = data.getChannelData(c);
+			update(digest, buf, channel.toArray(0, channel.getMemLength()));
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	public static String sha256(PackedCollection samples) {
+		return sha256(samples.toArray(0, samples.getMemLength()));
+	}
+
+	public static String sha256(double[] samples) {
+		MessageDigest digest = digest();
+		update(digest, ByteBuffer.allocate(4 * CHUNK).order(ByteOrder.LITTLE_ENDIAN), samples);
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static void update(MessageDigest digest, ByteBuffer buf, double[] samples) {
+		for (int i = 0; i < samples.length; i += CHUNK) {
+			int end = Math.min(samples.length, i + CHUNK);
+			for (int j = i; j < end; j++) buf.putFloat((float) samples[j]);
+
+			digest.update(buf.array(), 0, buf.position());
+			buf.clear();
+		}
+	}
+
+	/**
+	 * Returns the hash of a set of sources, which does not depend on their order.
+	 */
+	public static String sha256(Collection<String> hashes) {
+		MessageDigest digest = digest();
+		hashes.stream().sorted().forEach(h -> {
+			digest.update(h.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		});
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
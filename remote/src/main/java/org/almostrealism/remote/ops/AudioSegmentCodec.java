@@ -0,0 +1,308 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.ops;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.remote.api.Generation;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * {@link AudioSegmentCodec} converts between sample arrays and the payload of an
+ * {@link Generation.AudioSegment}. Segments with the {@link Generation.Encoding#DOUBLE}
+ * encoding carry their samples in the repeated data field, which is what older peers
+ * send and expect; every other encoding packs the samples into a single bytes field
+ * which is written and read in a single pass between the sample array and a
+ * {@link ByteBuffer}. The number of samples is stored in the segment, so that the
+ * length of a compressed segment is known without decompressing it.
+ * <p>
+ * A segment with more than one channel carries the same range of frames for every
+ * channel, arranged according to its {@link Generation.ChannelLayout}; the index and
+ * total samples of the segment count frames rather than individual samples.
+ *
+ * @author  Michael Murray
+ */
+public class AudioSegmentCodec {
+	public static final Generation.Encoding DEFAULT_ENCODING = Generation.Encoding.FLOAT32;
+
+	/**
+	 * Every encoding which can be decoded, in order of preference.
+	 */
+	public static final List<Generation.Encoding> SUPPORTED = List.of(
+			Generation.Encoding.FLOAT32, Generation.Encoding.FLOAT32_DEFLATE,
+			Generation.Encoding.PCM24, Generation.Encoding.PCM16, Generation.Encoding.DOUBLE);
+
+	private AudioSegmentCodec() { }
+
+	/**
+	 * Chooses the preferred encoding among those accepted by a peer. A peer which
+	 * does not list any encodings predates packed segments, so it receives
+	 * {@link Generation.Encoding#DOUBLE}.
+	 */
+	public static Generation.Encoding negotiate(List<Generation.Encoding> accepted) {
+		if (accepted.contains(DEFAULT_ENCODING)) return DEFAULT_ENCODING;
+		return accepted.stream()
+				.filter(e -> e != Generation.Encoding.UNRECOGNIZED)
+				.findFirst().orElse(Generation.Encoding.DOUBLE);
+	}
+
+	/**
+	 * Stores the specified range of samples in the builder using the specified encoding.
+	 */
+	public static Generation.AudioSegment.Builder encode(Generation.AudioSegment.Builder builder,
+														 double[] samples, int offset, int length,
+														 Generation.Encoding encoding) {
+		builder.setEncoding(encoding);
+		builder.setSampleCount(length);
+
+		if (encoding == Generation.Encoding.DOUBLE) {
+			for (int i = 0; i < length; i++) {
+				builder.addData(samples[offset + i]);
+			}
+
+			return builder;
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(length * bytesPerSample(encoding)).order(ByteOrder.LITTLE_ENDIAN);
+
+		switch (encoding) {
+			case FLOAT32:
+			case FLOAT32_DEFLATE:
+				for (int i = 0; i < length; i++) buf.putFloat(4 * i, (float) samples[offset + i]);
+				break;
+			case PCM16:
+				for (int i = 0; i < length; i++) buf.putShort(2 * i, (short) quantize(samples[offset + i], Short.MAX_VALUE));
+				break;
+			case PCM24:
+				byte[] b = buf.array();
+				for (int i = 0; i < length; i++) {
+					int v = quantize(samples[offset + i], 0x7FFFFF);
+					b[3 * i] = (byte) v;
+					b[3 * i + 1] = (byte) (v >> 8);
+					b[3 * i + 2] = (byte) (v >> 16);
+				}
+				break;
+			default:
+				throw new IllegalArgumentException(String.valueOf(encoding));
+		}
+
+		byte[] data = buf.array();
+		if (encoding == Generation.Encoding.FLOAT32_DEFLATE) data = deflate(data);
+
+		// The array is not retained anywhere else, so there is no need for a defensive copy
+		builder.setPackedData(UnsafeByteOperations.unsafeWrap(data));
+		return builder;
+	}
+
+	/**
+	 * Returns the number of channels carried by the specified segment.
+	 */
+	public static int channels(Generation.AudioSegment segment) {
+		return Math.max(1, segment.getChannels());
+	}
+
+	/**
+	 * Returns the number of samples carried by the specified segment, for all channels.
+	 * Only a compressed segment from a peer which does not record the number of samples
+	 * needs to be decompressed to find it.
+	 */
+	public static int length(Generation.AudioSegment segment) {
+		if (segment.getSampleCount() > 0) return segment.getSampleCount();
+
+		switch (segment.getEncoding()) {
+			case DOUBLE:
+				return segment.getDataCount();
+			case FLOAT32_DEFLATE:
+				return inflate(segment.getPackedData().toByteArray(), 0).length / 4;
+			default:
+				return segment.getPackedData().size() / bytesPerSample(segment.getEncoding());
+		}
+	}
+
+	/**
+	 * Returns the samples carried by the specified segment.
+	 */
+	public static double[] decode(Generation.AudioSegment segment) {
+		Generation.Encoding encoding = segment.getEncoding();
+
+		if (encoding == Generation.Encoding.DOUBLE) {
+			double[] out = new double[segment.getDataCount()];
+			for (int i = 0; i < out.length; i++) out[i] = segment.getData(i);
+			return out;
+		}
+
+		ByteString packed = segment.getPackedData();
+		ByteBuffer buf = encoding == Generation.Encoding.FLOAT32_DEFLATE ?
+				ByteBuffer.wrap(inflate(packed.toByteArray(), 4 * segment.getSampleCount())) :
+				packed.asReadOnlyByteBuffer();
+		buf.order(ByteOrder.LITTLE_ENDIAN);
+
+		int start = buf.position();
+		double[] out = new double[buf.remaining() / bytesPerSample(encoding)];
+
+		switch (encoding) {
+			case FLOAT32:
+			case FLOAT32_DEFLATE:
+				for (int i = 0; i < out.length; i++) out[i] = buf.getFloat(start + 4 * i);
+				break;
+			case PCM16:
+				for (int i = 0; i < out.length; i++) out[i] = buf.getShort(start + 2 * i) / (double) Short.MAX_VALUE;
+				break;
+			case PCM24:
+				for (int i = 0; i < out.length; i++) {
+					int p = start + 3 * i;
+					int v = (buf.get(p) & 0xFF) | ((buf.get(p + 1) & 0xFF) << 8) | (buf.get(p + 2) << 16);
+					out[i] = v / (double) 0x7FFFFF;
+				}
+				break;
+			default:
+				throw new IllegalArgumentException(String.valueOf(encoding));
+		}
+
+		return out;
+	}
+
+	/**
+	 * Decodes the samples carried by the specified segment into a destination which holds
+	 * the frames of each channel one channel after another, starting at the specified
+	 * frame, and returns the number of frames written.
+	 */
+	public static int decode(Generation.AudioSegment segment, PackedCollection destination, int offset) {
+		return decode(segment, destination, destination.getMemLength() / channels(segment), offset);
+	}
+
+	/**
+	 * Decodes the samples carried by the specified segment into a destination which holds
+	 * the specified number of frames for each channel, one channel after another, starting
+	 * at the specified frame, and returns the number of frames written.
+	 */
+	public static int decode(Generation.AudioSegment segment, PackedCollection destination, int frames, int offset) {
+		int channels = channels(segment);
+		double[] samples = decode(segment);
+		int length = samples.length / channels;
+
+		if (channels == 1) {
+			destination.setMem(offset, samples);
+		} else if (segment.getLayout() == Generation.ChannelLayout.INTERLEAVED) {
+			double[] channel = new double[length];
+
+			for (int c = 0; c < channels; c++) {
+				for (int i = 0; i < length; i++) channel[i] = samples[i * channels + c];
+				destination.setMem(c * frames + offset, channel);
+			}
+		} else {
+			for (int c = 0; c < channels; c++) {
+				destination.setMem(c * frames + offset, samples, c * length, length);
+			}
+		}
+
+		return length;
+	}
+
+	protected static int bytesPerSample(Generation.Encoding encoding) {
+		switch (encoding) {
+			case FLOAT32:
+			case FLOAT32_DEFLATE:
+				return 4;
+			case PCM16:
+				return 2;
+			case PCM24:
+				return 3;
+			default:
+				return 8;
+		}
+	}
+
+	private static int quantize(double value, int max) {
+		return (int) Math.round(Math.max(-1.0, Math.min(1.0, value)) * max);
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		deflater.setInput(data);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+		byte[] buf = new byte[8192];
+		while (!deflater.finished()) {
+			out.write(buf, 0, deflater.deflate(buf));
+		}
+
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decompresses the specified data, which is expected to produce the specified number
+	 * of bytes (or an unknown number if it is zero).
+	 */
+	private static byte[] inflate(byte[] data, int expected) {
+		Inflater inflater = new Inflater();
+		inflater.setInput(data);
+
+		if (expected > 0) {
+			byte[] out = new byte[expected];
+
+			try {
+				int n = 0;
+				while (n < expected && !inflater.finished()) {
+					int read = inflater.inflate(out, n, expected - n);
+					if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new IllegalArgumentException("Truncated audio segment");
+					}
+
+					n += read;
+				}
+
+				if (n < expected) throw new IllegalArgumentException("Truncated audio segment");
+				return out;
+			} catch (DataFormatException e) {
+				throw new IllegalArgumentException(e);
+			} finally {
+				inflater.end();
+			}
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+		byte[] buf = new byte[8192];
+
+		try {
+			while (!inflater.finished()) {
+				int n = inflater.inflate(buf);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IllegalArgumentException("Truncated audio segment");
+				}
+
+				out.write(buf, 0, n);
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalArgumentException(e);
+		} finally {
+			inflater.end();
+		}
+
+		return out.toByteArray();
+	}
+}
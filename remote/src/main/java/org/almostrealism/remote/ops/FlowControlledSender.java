@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.ops;
+
+import io.grpc.Status;
+import io.grpc.stub.CallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+
+/**
+ * {@link FlowControlledSender} writes messages to a gRPC stream only while the transport
+ * is ready for them. Messages are queued as {@link Iterator}s, which are advanced one
+ * message at a time as the stream's window allows, so a producer such as
+ * {@link WaveDataPublisher#segments(org.almostrealism.audio.data.WaveData, java.util.function.Function)}
+ * only creates a message when it can be sent instead of filling the transport's buffer
+ * with an entire result up front.
+ * <p>
+ * If the observer is a {@link CallStreamObserver}, the sender installs itself as the
+ * observer's on-ready handler; for servers this must happen before the service method
+ * returns and for clients in {@link io.grpc.stub.ClientResponseObserver#beforeStart}.
+ * Other observers are treated as always ready. All writes to the stream happen while
+ * holding the sender's lock, so it is safe to call {@link #send(Iterator)} from several
+ * threads. If a message cannot be produced or sent, the queued messages are dropped and
+ * the stream is ended with an error, so that the peer does not wait for the rest.
+ *
+ * @author  Michael Murray
+ */
+public class FlowControlledSender<T> {
+	private final StreamObserver<T> observer;
+	private final Deque<Iterator<? extends T>> pending;
+	private boolean completing, completed;
+
+	public FlowControlledSender(StreamObserver<T> observer) {
+		this.observer = observer;
+		this.pending = new ArrayDeque<>();
+
+		if (observer instanceof CallStreamObserver) {
+			((CallStreamObserver<T>) observer).setOnReadyHandler(this::drain);
+		}
+	}
+
+	/**
+	 * Sends a single message, after any which are already queued.
+	 */
+	public void send(T message) {
+		send(List.of(message).iterator());
+	}
+
+	/**
+	 * Queues the messages produced by the specified {@link Iterator} and sends as
+	 * many as the transport is ready for.
+	 */
+	public synchronized void send(Iterator<? extends T> messages) {
+		if (completing) {
+			System.out.println("FlowControlledSender: Stream is already completed");
+			return;
+		}
+
+		pending.add(messages);
+		drain();
+	}
+
+	/**
+	 * Completes the stream once all queued messages have been sent.
+	 */
+	public synchronized void complete() {
+		completing = true;
+		drain();
+	}
+
+	/**
+	 * Returns the number of message sources which have not been fully sent.
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the messages from a sequence of sources, each of
+	 * which is only created once the messages of the previous source have been consumed.
+	 */
+	public static <T> Iterator<T> concat(int count, IntFunction<Iterator<? extends T>> source) {
+		return new Iterator<>() {
+			private int index = -1;
+			private Iterator<? extends T> current = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!current.hasNext() && index < count - 1) {
+					index++;
+					current = source.apply(index);
+				}
+
+				return current.hasNext();
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return current.next();
+			}
+		};
+	}
+
+	protected boolean isReady() {
+		return !(observer instanceof CallStreamObserver) || ((CallStreamObserver<T>) observer).isReady();
+	}
+
+	protected synchronized void drain() {
+		if (completed) return;
+
+		try {
+			while (!pending.isEmpty() && isReady()) {
+				Iterator<? extends T> next = pending.peek();
+
+				if (next.hasNext()) {
+					observer.onNext(next.next());
+				} else {
+					pending.poll();
+				}
+			}
+
+			if (completing && pending.isEmpty()) {
+				completed = true;
+				observer.onCompleted();
+			}
+		} catch (RuntimeException e) {
+			System.out.println("FlowControlledSender: Unable to send (" + e.getMessage() + ")");
+			pending.clear();
+			completing = true;
+
+			// The stream is only ended here if it was not already being completed
+			if (!completed) {
+				completed = true;
+
+				try {
+					observer.onError(Status.fromThrowable(e).asRuntimeException());
+				} catch (RuntimeException ex) {
+					System.out.println("FlowControlledSender: Unable to end stream (" + ex.getMessage() + ")");
+				}
+			}
+		}
+	}
+}
@@ -16,41 +16,58 @@
 
 package org.almostrealism.remote.ops;
 
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.remote.RemoteAccessKey;
 import org.almostrealism.remote.api.Generation;
 import org.almostrealism.remote.api.GeneratorGrpc;
 
-public class GenerateRequestor implements StreamObserver<Generation.Output> {
+public class GenerateRequestor implements ClientResponseObserver<Generation.GeneratorRequest, Generation.Output> {
 	private final RemoteAccessKey key;
 	private final GeneratorGrpc.GeneratorStub generator;
 	private StreamObserver<Generation.GeneratorRequest> requestStream;
+	private FlowControlledSender<Generation.GeneratorRequest> sender;
 	private final Runnable end;
 
 	private final WaveDataAccumulator accumulator;
+	private final StatusReceiver status;
 
 	public GenerateRequestor(RemoteAccessKey key, GeneratorGrpc.GeneratorStub generator, Receiver deliver, Runnable end) {
+		this(key, generator, deliver, null, end);
+	}
+
+	public GenerateRequestor(RemoteAccessKey key, GeneratorGrpc.GeneratorStub generator,
+							 Receiver deliver, StatusReceiver status, Runnable end) {
 		this.key = key;
 		this.generator = generator;
 		this.accumulator = new WaveDataAccumulator((id, data) -> {
 			String[] k = id.split(":");
 			deliver.receive(k[0], Integer.parseInt(k[1]), data);
 		});
+		this.status = status;
 		this.end = end;
 	}
 
+	/**
+	 * Submits a request on this requestor's stream, which may be called from any thread.
+	 */
 	public void submit(String requestId, String generatorId, int count) {
-		ensureRequestStream();
+		FlowControlledSender<Generation.GeneratorRequest> sender = ensureRequestStream();
 
 		Generation.GeneratorRequest request = Generation.GeneratorRequest.newBuilder()
 				.setAccessKey(key())
 				.setRequestId(requestId)
 				.setGeneratorId(generatorId)
 				.setCount(count)
+				.addAcceptEncoding(AudioSegmentCodec.DEFAULT_ENCODING)
+				.addAcceptEncoding(Generation.Encoding.DOUBLE)
+				.setAcceptStatus(status != null)
+				.setAcceptMultichannel(true)
 				.build();
 
-		requestStream.onNext(request);
+		sender.send(request);
 	}
 
 	protected Generation.AccessKey key() {
@@ -61,23 +78,35 @@ public class GenerateRequestor implements StreamObserver<Generation.Output> {
 				.build();
 	}
 
-	protected synchronized void ensureRequestStream() {
+	@Override
+	public void beforeStart(ClientCallStreamObserver<Generation.GeneratorRequest> stream) {
+		sender = new FlowControlledSender<>(stream);
+	}
+
+	protected synchronized FlowControlledSender<Generation.GeneratorRequest> ensureRequestStream() {
 		if (requestStream == null) {
 			System.out.println("GenerateRequestor: Creating request stream...");
 			requestStream = generator.generate(this);
 			System.out.println("GenerateRequestor: Request stream created");
 		}
+
+		return sender;
 	}
 
 	@Override
 	public void onNext(Generation.Output output) {
+		if (output.hasStatus()) {
+			if (status != null) status.receive(output.getStatus());
+			return;
+		}
+
 		accumulator.process(output.getRequestId() + ":" + output.getIndex(), output.getSegment());
 	}
 
 	@Override
 	public void onError(Throwable e) {
-		e.printStackTrace();
-		requestStream = null;
+		System.out.println("GenerateRequestor: Stream failed (" + e.getMessage() + ")");
+		synchronized (this) { requestStream = null; }
 		System.out.println("GenerateRequestor: Running end callback");
 		end.run();
 	}
@@ -85,14 +114,14 @@ public class GenerateRequestor implements StreamObserver<Generation.Output> {
 	@Override
 	public void onCompleted() {
 		System.out.println("GenerateRequestor: Completed");
-		requestStream.onCompleted();
-		requestStream = null;
+		sender.complete();
+		synchronized (this) { requestStream = null; }
 		end.run();
 	}
 
-	public void destroy() {
+	public synchronized void destroy() {
 		if (requestStream != null) {
-			requestStream.onCompleted();
+			sender.complete();
 			requestStream = null;
 		}
 	}
@@ -100,4 +129,8 @@ public class GenerateRequestor implements StreamObserver<Generation.Output> {
 	public interface Receiver {
 		void receive(String requestId, int index, WaveData data);
 	}
+
+	public interface StatusReceiver {
+		void receive(Generation.Status status);
+	}
 }
@@ -16,23 +16,33 @@
 
 package org.almostrealism.remote.ops;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.almostrealism.audio.notes.NoteAudio;
 
+import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * A record of a refresh request. Sources are identified by their {@link AudioHash}, so
+ * that a {@link RequestHistory} does not need to keep the audio itself; the audio is
+ * only held by the {@link RefreshRequest} until it has been stored elsewhere.
+ */
 public class RefreshRequest {
 	private String requestId;
 	private String generatorId;
+	private List<String> sourceHashes;
 	private List<NoteAudio> sources;
 	private boolean complete;
 	private boolean error;
 
-	public RefreshRequest() { }
+	public RefreshRequest() {
+		this.sourceHashes = new ArrayList<>();
+	}
 
-	public RefreshRequest(String requestId, String generatorId, List<NoteAudio> sources) {
+	public RefreshRequest(String requestId, String generatorId, List<String> sourceHashes) {
 		this.requestId = requestId;
 		this.generatorId = generatorId;
-		this.sources = sources;
+		this.sourceHashes = sourceHashes;
 	}
 
 	public String getRequestId() { return requestId; }
@@ -41,7 +51,13 @@ public class RefreshRequest {
 	public String getGeneratorId() { return generatorId; }
 	public void setGeneratorId(String generatorId) { this.generatorId = generatorId; }
 
+	public List<String> getSourceHashes() { return sourceHashes; }
+	public void setSourceHashes(List<String> sourceHashes) { this.sourceHashes = sourceHashes; }
+
+	@JsonIgnore
 	public List<NoteAudio> getSources() { return sources; }
+
+	@JsonIgnore
 	public void setSources(List<NoteAudio> sources) { this.sources = sources; }
 
 	public boolean isComplete() { return complete; }
@@ -16,6 +16,8 @@
 
 package org.almostrealism.remote.ops;
 
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
 import io.grpc.stub.StreamObserver;
 import org.almostrealism.audio.data.WaveData;
 import org.almostrealism.remote.RemoteAccessKey;
@@ -23,15 +25,21 @@ import org.almostrealism.remote.api.Generation;
 import org.almostrealism.remote.api.GeneratorGrpc;
 import org.almostrealism.util.KeyUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
-public class RefreshRequestor implements StreamObserver<Generation.Status> {
+public class RefreshRequestor implements ClientResponseObserver<Generation.RefreshRequest, Generation.Status> {
 	private final RemoteAccessKey key;
 	private final GeneratorGrpc.GeneratorStub generator;
 	private StreamObserver<Generation.RefreshRequest> requestStream;
+	private FlowControlledSender<Generation.RefreshRequest> sender;
 	private final Runnable end;
 
-	private final WaveDataPublisher publisher;
 	private final Receiver deliver;
 
 	public RefreshRequestor(RemoteAccessKey key, GeneratorGrpc.GeneratorStub generator, Receiver deliver, Runnable end) {
@@ -40,38 +48,114 @@ public class RefreshRequestor implements StreamObserver<Generation.Status> {
 		this.end = end;
 
 		this.deliver = deliver;
-		this.publisher = new WaveDataPublisher();
 	}
 
+	/**
+	 * Submits the specified sources for a refresh. The server is first asked which of the
+	 * sources it already has, by hash, and those are sent as references rather than being
+	 * uploaded again. The reply also lists the encodings the server accepts, which are
+	 * negotiated with {@link AudioSegmentCodec#negotiate(List)} as for generated results.
+	 * Servers which do not support the query receive every source, in the encoding that
+	 * every server accepts.
+	 */
 	public void submit(String requestId, String generatorId, List<WaveData> sources) {
 		ensureRequestStream();
 
-		System.out.println("RefreshRequestor: Publishing " + sources.size() + " source waves");
-		for (int i = 0; i < sources.size(); i++) {
-			WaveData source = sources.get(i);
+		FlowControlledSender<Generation.RefreshRequest> sender = this.sender;
+		List<String> hashes = sources.stream().map(AudioHash::sha256).collect(Collectors.toList());
+
+		Generation.SourceQuery query = Generation.SourceQuery.newBuilder()
+				.setAccessKey(key())
+				.addAllHash(hashes)
+				.build();
+
+		generator.availableSources(query, new StreamObserver<>() {
+			private final Set<String> available = new HashSet<>();
+			private final List<Generation.Encoding> encodings = new ArrayList<>();
+			private boolean multichannel;
+
+			@Override
+			public void onNext(Generation.SourceAvailability value) {
+				available.addAll(value.getAvailableList());
+				encodings.addAll(value.getAcceptEncodingList());
+				multichannel = value.getAcceptMultichannel();
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				System.out.println("RefreshRequestor: Unable to query stored sources (" + t.getMessage() + ")");
+				submit(sender, publisher(Collections.emptyList(), false), requestId, generatorId, sources, hashes, Collections.emptySet());
+			}
+
+			@Override
+			public void onCompleted() {
+				submit(sender, publisher(encodings, multichannel), requestId, generatorId, sources, hashes, available);
+			}
+		});
+	}
+
+	/**
+	 * Creates the {@link WaveDataPublisher} for uploading sources, which only sends more
+	 * than one channel if the server has advertised that it accepts them.
+	 */
+	protected WaveDataPublisher publisher(List<Generation.Encoding> accepted, boolean multichannel) {
+		WaveDataPublisher publisher = new WaveDataPublisher(AudioSegmentCodec.negotiate(accepted));
+		publisher.setMultichannel(multichannel);
+		return publisher;
+	}
+
+	protected void submit(FlowControlledSender<Generation.RefreshRequest> sender, WaveDataPublisher publisher,
+						  String requestId, String generatorId,
+						  List<WaveData> sources, List<String> hashes, Set<String> available) {
+		long upload = hashes.stream().filter(h -> !available.contains(h)).count();
+		System.out.println("RefreshRequestor: Queueing " + sources.size() + " source waves (" +
+				upload + " to upload, " + publisher.getEncoding() + ")");
+
+		sender.send(FlowControlledSender.concat(sources.size(), i -> {
 			boolean last = i == sources.size() - 1;
 
-			publisher.publish(source, audio -> {
-				Generation.SourceData data = Generation.SourceData.newBuilder()
+			if (available.contains(hashes.get(i))) {
+				return List.of(reference(requestId, generatorId, hashes.get(i), last)).iterator();
+			}
+
+			return segments(publisher, requestId, generatorId, sources.get(i), hashes.get(i), last);
+		}));
+	}
+
+	protected Generation.RefreshRequest reference(String requestId, String generatorId, String hash, boolean last) {
+		return Generation.RefreshRequest.newBuilder()
+				.setAccessKey(key())
+				.setRequestId(requestId)
+				.setGeneratorId(generatorId)
+				.setSource(Generation.SourceData.newBuilder()
 						.setName("") // TODO
-						.setSourceId(KeyUtils.generateKey()) // TODO
-						.setSegment(audio)
-						.build();
-
-				Generation.RefreshRequest request = Generation.RefreshRequest.newBuilder()
-						.setAccessKey(key())
-						.setRequestId(requestId)
-						.setGeneratorId(generatorId)
-						.setSource(data)
-						.setIsFinal(last && audio.getIsFinal())
-						.build();
-
-				if (requestStream != null)
-					requestStream.onNext(request);
-			});
-		}
+						.setSourceId(hash)
+						.setHash(hash))
+				.setIsFinal(last)
+				.build();
+	}
 
-		System.out.println("RefreshRequestor: Done publishing source waves");
+	protected Iterator<Generation.RefreshRequest> segments(WaveDataPublisher publisher,
+														   String requestId, String generatorId,
+														   WaveData source, String hash, boolean last) {
+		String sourceId = KeyUtils.generateKey();
+
+		return publisher.segments(source, audio -> {
+			Generation.SourceData data = Generation.SourceData.newBuilder()
+					.setName("") // TODO
+					.setSourceId(sourceId)
+					.setHash(hash)
+					.setSegment(audio)
+					.build();
+
+			return Generation.RefreshRequest.newBuilder()
+					.setAccessKey(key())
+					.setRequestId(requestId)
+					.setGeneratorId(generatorId)
+					.setSource(data)
+					.setIsFinal(last && audio.getIsFinal())
+					.build();
+		});
 	}
 
 	protected Generation.AccessKey key() {
@@ -82,6 +166,11 @@ public class RefreshRequestor implements StreamObserver<Generation.Status> {
 				.build();
 	}
 
+	@Override
+	public void beforeStart(ClientCallStreamObserver<Generation.RefreshRequest> stream) {
+		sender = new FlowControlledSender<>(stream);
+	}
+
 	protected synchronized void ensureRequestStream() {
 		if (requestStream == null) {
 			System.out.println("RefreshRequestor: Creating request stream...");
@@ -112,14 +201,14 @@ public class RefreshRequestor implements StreamObserver<Generation.Status> {
 	@Override
 	public void onCompleted() {
 		System.out.println("RefreshRequestor: Completed");
-		requestStream.onCompleted();
+		sender.complete();
 		requestStream = null;
 		end.run();
 	}
 
 	public void destroy() {
 		if (requestStream != null) {
-			requestStream.onCompleted();
+			sender.complete();
 			requestStream = null;
 		}
 	}
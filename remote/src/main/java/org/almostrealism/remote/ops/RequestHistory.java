@@ -16,62 +16,306 @@
 
 package org.almostrealism.remote.ops;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * {@link RequestHistory} keeps track of the refresh and generate requests which have been
+ * made, so that failed requests can be retried and so that the status of each generator
+ * is known. The status of a generator is maintained in an index as requests are added
+ * and updated, so checking it does not depend on the size of the history.
+ * <p>
+ * If a log file is provided, every change is appended to it as a line of JSON and the
+ * history is restored from it on construction. Only the most recent successful requests
+ * for each generator are kept (unsuccessful ones are kept until they succeed), and the
+ * log is rewritten without superseded entries once enough of them have accumulated.
+ * <p>
+ * Requests must be changed using {@link #update(RefreshRequest, boolean, boolean)} and
+ * {@link #update(GenerateRequest, boolean, boolean)}, rather than their setters, so that
+ * the index and the log are kept up to date.
+ */
 public class RequestHistory {
+	public static int maxCompletedPerGenerator = 16;
+	public static int compactionThreshold = 1000;
+
+	private final File log;
+	private final ObjectMapper mapper;
 
-	private List<RefreshRequest> refreshRequests;
-	private List<GenerateRequest> generateRequests;
+	private final Map<String, RefreshRequest> refreshRequests;
+	private final Map<String, GenerateRequest> generateRequests;
+	private final Map<String, GeneratorIndex> generators;
+	private int logEntries;
 
 	public RequestHistory() {
-		refreshRequests = new ArrayList<>();
-		generateRequests = new ArrayList<>();
+		this(null);
 	}
 
-	public List<RefreshRequest> getRefreshRequests() { return refreshRequests; }
-	public void setRefreshRequests(List<RefreshRequest> refreshRequests) { this.refreshRequests = refreshRequests; }
+	/**
+	 * Creates a {@link RequestHistory} which is stored in the specified log file, loading
+	 * any requests which it already contains.
+	 */
+	public RequestHistory(File log) {
+		this.log = log;
+		this.mapper = new ObjectMapper();
+		this.refreshRequests = new LinkedHashMap<>();
+		this.generateRequests = new LinkedHashMap<>();
+		this.generators = new HashMap<>();
 
-	public List<GenerateRequest> getGenerateRequests() {
-		return generateRequests;
+		if (log != null && log.exists()) load();
 	}
-	public void setGenerateRequests(List<GenerateRequest> generateRequests) {
-		this.generateRequests = generateRequests;
+
+	public synchronized List<RefreshRequest> getRefreshRequests() { return new ArrayList<>(refreshRequests.values()); }
+
+	public synchronized void setRefreshRequests(List<RefreshRequest> refreshRequests) {
+		new ArrayList<>(this.refreshRequests.values()).forEach(r -> remove(r));
+		refreshRequests.forEach(this::add);
 	}
 
-	public boolean anyCompleted(String generatorId) {
-		for (RefreshRequest request : refreshRequests) {
-			if (request.getGeneratorId().equals(generatorId) && request.isComplete() && !request.isError()) {
-				return true;
+	public synchronized List<GenerateRequest> getGenerateRequests() { return new ArrayList<>(generateRequests.values()); }
+
+	public synchronized void setGenerateRequests(List<GenerateRequest> generateRequests) {
+		new ArrayList<>(this.generateRequests.values()).forEach(r -> remove(r));
+		generateRequests.forEach(this::add);
+	}
+
+	/**
+	 * Returns the refresh requests which have not completed successfully.
+	 */
+	@JsonIgnore
+	public synchronized List<RefreshRequest> getPendingRefreshRequests() {
+		return refreshRequests.values().stream().filter(r -> !r.isComplete() || r.isError()).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the generate requests which have not completed successfully.
+	 */
+	@JsonIgnore
+	public synchronized List<GenerateRequest> getPendingGenerateRequests() {
+		return generateRequests.values().stream().filter(r -> !r.isComplete() || r.isError()).collect(Collectors.toList());
+	}
+
+	public synchronized void add(RefreshRequest request) {
+		put(request);
+		append(new Entry(request));
+	}
+
+	public synchronized void add(GenerateRequest request) {
+		put(request);
+		append(new Entry(request));
+	}
+
+	public synchronized void update(RefreshRequest request, boolean complete, boolean error) {
+		remove(request);
+		request.setComplete(complete);
+		request.setError(error);
+		add(request);
+	}
+
+	public synchronized void update(GenerateRequest request, boolean complete, boolean error) {
+		remove(request);
+		request.setComplete(complete);
+		request.setError(error);
+		add(request);
+	}
+
+	public synchronized boolean anyCompleted(String generatorId) {
+		GeneratorIndex index = generators.get(generatorId);
+		return index != null && index.completed > 0;
+	}
+
+	public synchronized boolean anyRefreshing(String generatorId) {
+		GeneratorIndex index = generators.get(generatorId);
+		return index != null && index.refreshing > 0;
+	}
+
+	public synchronized boolean anyGenerating(String generatorId) {
+		GeneratorIndex index = generators.get(generatorId);
+		return index != null && index.generating > 0;
+	}
+
+	/**
+	 * Rewrites the log so that it contains only the current state of each request.
+	 */
+	public synchronized void compact() {
+		if (log == null) return;
+
+		File tmp = new File(log.getPath() + ".tmp");
+
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(tmp))) {
+			for (Entry e : entries()) {
+				out.write(mapper.writeValueAsString(e));
+				out.newLine();
 			}
+		} catch (IOException e) {
+			System.out.println("RequestHistory: Unable to compact " + log + " (" + e.getMessage() + ")");
+			return;
 		}
 
-		for (GenerateRequest request : generateRequests) {
-			if (request.getGeneratorId().equals(generatorId) && request.isComplete() && !request.isError()) {
-				return true;
-			}
+		try {
+			Files.move(tmp.toPath(), log.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			logEntries = refreshRequests.size() + generateRequests.size();
+		} catch (IOException e) {
+			System.out.println("RequestHistory: Unable to replace " + log + " (" + e.getMessage() + ")");
 		}
+	}
 
-		return false;
+	private List<Entry> entries() {
+		return Stream.concat(
+				refreshRequests.values().stream().map(Entry::new),
+				generateRequests.values().stream().map(Entry::new)).collect(Collectors.toList());
 	}
 
-	public boolean anyRefreshing(String generatorId) {
-		for (RefreshRequest request : refreshRequests) {
-			if (request.getGeneratorId().equals(generatorId) && (!request.isComplete() || request.isError())) {
-				return true;
+	private void load() {
+		File log = this.log;
+		List<Entry> entries = new ArrayList<>();
+
+		try (BufferedReader in = new BufferedReader(new FileReader(log))) {
+			String line;
+
+			while ((line = in.readLine()) != null) {
+				if (line.isBlank()) continue;
+
+				try {
+					entries.add(mapper.readValue(line, Entry.class));
+				} catch (IOException e) {
+					// An incomplete final line is expected if the process stopped while writing
+					System.out.println("RequestHistory: Skipping unreadable entry (" + e.getMessage() + ")");
+				}
 			}
+		} catch (IOException e) {
+			System.out.println("RequestHistory: Unable to load " + log + " (" + e.getMessage() + ")");
+			return;
 		}
 
-		return false;
+		for (Entry e : entries) {
+			if (e.getRefresh() != null) {
+				put(e.getRefresh());
+			} else if (e.getGenerate() != null) {
+				put(e.getGenerate());
+			}
+		}
+
+		logEntries = entries.size();
+		System.out.println("RequestHistory: Loaded " + (refreshRequests.size() + generateRequests.size()) +
+				" requests from " + logEntries + " entries");
 	}
 
-	public boolean anyGenerating(String generatorId) {
-		for (GenerateRequest request : generateRequests) {
-			if (request.getGeneratorId().equals(generatorId) && (!request.isComplete() || request.isError())) {
-				return true;
-			}
+	private void append(Entry entry) {
+		if (log == null) return;
+
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(log, true))) {
+			out.write(mapper.writeValueAsString(entry));
+			out.newLine();
+			logEntries++;
+		} catch (IOException e) {
+			System.out.println("RequestHistory: Unable to write to " + log + " (" + e.getMessage() + ")");
+			return;
 		}
 
-		return false;
+		int live = refreshRequests.size() + generateRequests.size();
+		if (logEntries > compactionThreshold && logEntries > 2 * live) compact();
+	}
+
+	private void put(RefreshRequest request) {
+		RefreshRequest previous = refreshRequests.put(request.getRequestId(), request);
+		if (previous != null) index(previous.getGeneratorId(), previous.isComplete(), previous.isError(), true, -1);
+		index(request.getGeneratorId(), request.isComplete(), request.isError(), true, 1);
+		completed(request.getGeneratorId(), request.getRequestId(), request.isComplete() && !request.isError());
+	}
+
+	private void put(GenerateRequest request) {
+		GenerateRequest previous = generateRequests.put(request.getRequestId(), request);
+		if (previous != null) index(previous.getGeneratorId(), previous.isComplete(), previous.isError(), false, -1);
+		index(request.getGeneratorId(), request.isComplete(), request.isError(), false, 1);
+		completed(request.getGeneratorId(), request.getRequestId(), request.isComplete() && !request.isError());
+	}
+
+	private void remove(RefreshRequest request) {
+		if (refreshRequests.remove(request.getRequestId(), request)) {
+			index(request.getGeneratorId(), request.isComplete(), request.isError(), true, -1);
+		}
+	}
+
+	private void remove(GenerateRequest request) {
+		if (generateRequests.remove(request.getRequestId(), request)) {
+			index(request.getGeneratorId(), request.isComplete(), request.isError(), false, -1);
+		}
+	}
+
+	/**
+	 * Records that a request has completed successfully, discarding the oldest successful
+	 * request for the same generator if there are now too many.
+	 */
+	private void completed(String generatorId, String requestId, boolean success) {
+		if (!success) return;
+
+		Deque<String> completed = generators.computeIfAbsent(generatorId, id -> new GeneratorIndex()).history;
+		completed.remove(requestId);
+		completed.addLast(requestId);
+
+		while (completed.size() > maxCompletedPerGenerator) {
+			String oldest = completed.removeFirst();
+			RefreshRequest refresh = refreshRequests.get(oldest);
+			if (refresh != null) remove(refresh);
+			GenerateRequest generate = generateRequests.get(oldest);
+			if (generate != null) remove(generate);
+		}
+	}
+
+	private void index(String generatorId, boolean complete, boolean error, boolean refresh, int delta) {
+		GeneratorIndex index = generators.computeIfAbsent(generatorId, id -> new GeneratorIndex());
+
+		if (complete && !error) {
+			index.completed += delta;
+		} else if (refresh) {
+			index.refreshing += delta;
+		} else {
+			index.generating += delta;
+		}
+	}
+
+	private static class GeneratorIndex {
+		private int completed;
+		private int refreshing;
+		private int generating;
+		private final Deque<String> history = new ArrayDeque<>();
+	}
+
+	/**
+	 * A line of the log, which holds the state of one request.
+	 */
+	public static class Entry {
+		private RefreshRequest refresh;
+		private GenerateRequest generate;
+
+		public Entry() { }
+
+		public Entry(RefreshRequest refresh) { this.refresh = refresh; }
+
+		public Entry(GenerateRequest generate) { this.generate = generate; }
+
+		public RefreshRequest getRefresh() { return refresh; }
+		public void setRefresh(RefreshRequest refresh) { this.refresh = refresh; }
+
+		public GenerateRequest getGenerate() { return generate; }
+		public void setGenerate(GenerateRequest generate) { this.generate = generate; }
 	}
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.ops;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * {@link RequestRetrier} retries requests in the background. At most a fixed number of
+ * attempts run at the same time, and after each unsuccessful attempt the delay before the
+ * next one doubles, up to a maximum, until the attempt limit is reached. A request which
+ * is already being retried is not accepted again.
+ *
+ * @author  Michael Murray
+ */
+public class RequestRetrier {
+	public static int defaultConcurrency = 2;
+	public static int maxAttempts = 5;
+	public static long initialDelay = 1000;
+	public static long maxDelay = 5 * 60 * 1000;
+
+	private final ScheduledThreadPoolExecutor executor;
+	private final Set<String> scheduled;
+
+	public RequestRetrier() {
+		this(defaultConcurrency);
+	}
+
+	public RequestRetrier(int concurrency) {
+		AtomicInteger count = new AtomicInteger();
+		this.executor = new ScheduledThreadPoolExecutor(concurrency, r -> {
+			Thread t = new Thread(r, "RequestRetrier-" + count.getAndIncrement());
+			t.setDaemon(true);
+			return t;
+		});
+		this.scheduled = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Returns the number of requests which are being retried.
+	 */
+	public int getPendingCount() { return scheduled.size(); }
+
+	/**
+	 * Starts retrying the request with the specified ID, unless it is already being retried.
+	 * The result of the last attempt is passed to the done {@link Consumer}, either once an
+	 * attempt succeeds or once there have been {@link #maxAttempts} attempts. An attempt
+	 * which throws an exception is treated as having produced a null result,
+	 * and an attempt which throws a {@link NonRetryableException} is not retried.
+	 *
+	 * @return  True if the request was accepted, false if it is already being retried or
+	 *          the retrier has been shut down.
+	 */
+	public <T> boolean submit(String requestId, Supplier<T> attempt, Predicate<T> succeeded, Consumer<T> done) {
+		if (executor.isShutdown() || !scheduled.add(requestId)) return false;
+		executor.execute(() -> attempt(requestId, 1, attempt, succeeded, done));
+		return true;
+	}
+
+	private <T> void attempt(String requestId, int n, Supplier<T> attempt, Predicate<T> succeeded, Consumer<T> done) {
+		T result = null;
+
+		try {
+			result = attempt.get();
+		} catch (NonRetryableException e) {
+			System.out.println("RequestRetrier: Giving up on " + requestId + " (" + e.getMessage() + ")");
+			scheduled.remove(requestId);
+			done.accept(null);
+			return;
+		} catch (Exception e) {
+			System.out.println("RequestRetrier: Attempt " + n + " for " + requestId + " failed (" + e.getMessage() + ")");
+		}
+
+		if ((result != null && succeeded.test(result)) || n >= maxAttempts || executor.isShutdown()) {
+			scheduled.remove(requestId);
+			done.accept(result);
+			return;
+		}
+
+		long delay = Math.min(maxDelay, initialDelay << Math.min(n - 1, 30));
+		System.out.println("RequestRetrier: Retrying " + requestId + " in " + delay + "ms");
+		executor.schedule(() -> attempt(requestId, n + 1, attempt, succeeded, done), delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops retrying. Attempts which are running are interrupted and pass their result to
+	 * the done {@link Consumer}; requests waiting for their next attempt are abandoned.
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Thrown by an attempt which failed in a way that another attempt cannot fix.
+	 */
+	public static class NonRetryableException extends RuntimeException {
+		public NonRetryableException(String message) {
+			super(message);
+		}
+	}
+}
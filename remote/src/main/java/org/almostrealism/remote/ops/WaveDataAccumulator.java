@@ -34,16 +34,26 @@ public class WaveDataAccumulator {
 	}
 
 	public void process(String id, Generation.AudioSegment segment) {
+		int channels = AudioSegmentCodec.channels(segment);
+
 		PackedCollection collection = data.get(id);
 		if (collection == null) {
-			collection = new PackedCollection(segment.getTotalSamples());
+			collection = allocate(channels, segment.getTotalSamples());
 			data.put(id, collection);
 		}
 
-		collection.setMem(segment.getIndex(), segment.getDataList().stream().mapToDouble(Double::doubleValue).toArray());
+		AudioSegmentCodec.decode(segment, collection, segment.getTotalSamples(), segment.getIndex());
 		if (segment.getIsFinal()) {
 			System.out.println("WaveDataAccumulator: Final segment received for " + id);
 			output.accept(id, new WaveData(data.remove(id), segment.getSampleRate()));
 		}
 	}
+
+	/**
+	 * Creates the destination for a wave with the specified number of channels, each
+	 * channel having the specified number of frames, in the shape used by {@link WaveData}.
+	 */
+	public static PackedCollection allocate(int channels, int frames) {
+		return channels == 1 ? new PackedCollection(frames) : new PackedCollection(channels, frames);
+	}
 }
@@ -21,43 +21,130 @@ import org.almostrealism.collect.PackedCollection;
 import org.almostrealism.io.ConsoleFeatures;
 import org.almostrealism.remote.api.Generation;
 
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 public class WaveDataPublisher implements ConsoleFeatures {
 	public static final int BATCH_SIZE = (int) Math.pow(2, 16);
 
+	private Generation.Encoding encoding;
+	private Generation.ChannelLayout layout;
+	private boolean multichannel;
+
 	public WaveDataPublisher() {
+		this(Generation.Encoding.DOUBLE);
+	}
 
+	public WaveDataPublisher(Generation.Encoding encoding) {
+		setEncoding(encoding);
+		setLayout(Generation.ChannelLayout.PLANAR);
+		setMultichannel(false);
 	}
 
+	/**
+	 * Sets the {@link Generation.Encoding} for published segments. Peers which
+	 * predate packed segments only understand {@link Generation.Encoding#DOUBLE}.
+	 */
+	public void setEncoding(Generation.Encoding encoding) { this.encoding = encoding; }
+
+	public Generation.Encoding getEncoding() { return encoding; }
+
+	/**
+	 * Sets the {@link Generation.ChannelLayout} for segments with more than one channel.
+	 */
+	public void setLayout(Generation.ChannelLayout layout) { this.layout = layout; }
+
+	public Generation.ChannelLayout getLayout() { return layout; }
+
+	/**
+	 * Sets whether segments may carry more than one channel. This is off by default,
+	 * so that peers which predate multichannel segments receive a mono mix of the
+	 * channels, and should only be enabled for a peer which advertises support.
+	 */
+	public void setMultichannel(boolean multichannel) { this.multichannel = multichannel; }
+
+	public boolean isMultichannel() { return multichannel; }
+
 	public void publish(WaveData data, Consumer<Generation.AudioSegment> segment) {
-		int index = 0;
+		segments(data, s -> s).forEachRemaining(segment);
+	}
+
+	/**
+	 * Returns an {@link Iterator} over the messages for the segments of the specified
+	 * {@link WaveData}. Each segment is read from the channel data and encoded only when
+	 * the iterator is advanced, so that the messages can be produced as fast as they are
+	 * sent rather than all at once. Every channel is carried in the same segments.
+	 *
+	 * @param message  Wraps each segment in the message that is to be sent.
+	 */
+	public <T> Iterator<T> segments(WaveData data, Function<Generation.AudioSegment, T> message) {
+		PackedCollection[] cd = new PackedCollection[data.getChannelCount()];
+		for (int c = 0; c < cd.length; c++) cd[c] = data.getChannelData(c);
 
-		if (data.getChannelCount() > 1) {
-			// TODO  This should be supported, but requires modification of AudioSegment
-			throw new IllegalArgumentException();
+		int total = cd[0].getMemLength();
+		int channels = multichannel ? cd.length : 1;
+		Generation.Encoding encoding = this.encoding;
+		Generation.ChannelLayout layout = this.layout;
+
+		if (channels < cd.length) {
+			warn("Mixing " + cd.length + " channels for a peer which only accepts one");
 		}
 
-		PackedCollection cd = data.getChannelData(0);
-		double[] samples = cd.toArray(0, cd.getMemLength());
+		log("Publishing " + total + " samples of " + channels + " channels (" + encoding + ")");
+
+		return new Iterator<>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() { return index < total; }
 
-		log("Publishing " + samples.length + " samples");
+			@Override
+			public T next() {
+				if (!hasNext()) throw new NoSuchElementException();
 
-		while (index < samples.length) {
-			Generation.AudioSegment.Builder builder = Generation.AudioSegment.newBuilder();
-			builder.setIndex(index);
-			builder.setSampleRate(data.getSampleRate());
-			builder.setTotalSamples(samples.length);
-			builder.setIsFinal(index + BATCH_SIZE >= samples.length);
+				int length = Math.min(BATCH_SIZE, total - index);
 
-			int length = Math.min(BATCH_SIZE, samples.length - index);
+				Generation.AudioSegment.Builder builder = Generation.AudioSegment.newBuilder();
+				builder.setIndex(index);
+				builder.setSampleRate(data.getSampleRate());
+				builder.setTotalSamples(total);
+				builder.setIsFinal(index + BATCH_SIZE >= total);
+				builder.setChannels(channels);
+				builder.setLayout(layout);
 
-			for (int i = 0; i < length; i++) {
-				builder.addData(samples[index + i]);
+				double[] samples = samples(cd, channels, layout, index, length);
+				AudioSegmentCodec.encode(builder, samples, 0, samples.length, encoding);
+
+				index += BATCH_SIZE;
+				return message.apply(builder.build());
 			}
+		};
+	}
 
-			segment.accept(builder.build());
-			index += BATCH_SIZE;
+	/**
+	 * Reads the specified range of frames from each channel and arranges them in the
+	 * specified layout, or mixes them if there is to be only one output channel.
+	 */
+	protected static double[] samples(PackedCollection[] cd, int channels, Generation.ChannelLayout layout,
+									  int index, int length) {
+		if (cd.length == 1) return cd[0].toArray(index, length);
+
+		double[] out = new double[length * channels];
+
+		for (int c = 0; c < cd.length; c++) {
+			double[] channel = cd[c].toArray(index, length);
+
+			if (channels == 1) {
+				for (int i = 0; i < length; i++) out[i] += channel[i] / cd.length;
+			} else if (layout == Generation.ChannelLayout.INTERLEAVED) {
+				for (int i = 0; i < length; i++) out[i * channels + c] = channel[i];
+			} else {
+				System.arraycopy(channel, 0, out, c * length, length);
+			}
 		}
+
+		return out;
 	}
 }
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.test;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.almostrealism.remote.api.Generation;
+import org.almostrealism.remote.ops.AudioHash;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class AudioHashTest {
+	private static double[] samples(int count, double frequency) {
+		double[] samples = new double[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = 0.5 * Math.sin(2 * Math.PI * frequency * i / 44100.0);
+		}
+
+		return samples;
+	}
+
+	@Test
+	public void float32TransferPreservesHash() throws InvalidProtocolBufferException {
+		double[] samples = samples(20000, 220);
+
+		Generation.AudioSegment.Builder builder = Generation.AudioSegment.newBuilder();
+		AudioSegmentCodec.encode(builder, samples, 0, samples.length, Generation.Encoding.FLOAT32);
+		Generation.AudioSegment segment = Generation.AudioSegment.parseFrom(builder.build().toByteArray());
+
+		Assert.assertEquals(AudioHash.sha256(samples), AudioHash.sha256(AudioSegmentCodec.decode(segment)));
+	}
+
+	@Test
+	public void distinctAudio() {
+		Assert.assertNotEquals(AudioHash.sha256(samples(1000, 220)), AudioHash.sha256(samples(1000, 330)));
+		Assert.assertNotEquals(AudioHash.sha256(samples(1000, 220)), AudioHash.sha256(samples(1001, 220)));
+	}
+
+	@Test
+	public void setHashIgnoresOrder() {
+		String a = AudioHash.sha256(samples(1000, 220));
+		String b = AudioHash.sha256(samples(1000, 330));
+		Assert.assertEquals(AudioHash.sha256(List.of(a, b)), AudioHash.sha256(List.of(b, a)));
+		Assert.assertNotEquals(AudioHash.sha256(List.of(a, b)), AudioHash.sha256(List.of(a)));
+	}
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.test;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.remote.api.Generation;
+import org.almostrealism.remote.ops.AudioHash;
+import org.almostrealism.remote.ops.AudioSegmentCodec;
+import org.almostrealism.remote.ops.WaveDataAccumulator;
+import org.almostrealism.remote.ops.WaveDataPublisher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AudioSegmentCodecTest {
+	private static double[] samples(int count) {
+		double[] samples = new double[count];
+		for (int i = 0; i < count; i++) {
+			samples[i] = 0.8 * Math.sin(2 * Math.PI * 440 * i / 44100.0);
+		}
+
+		return samples;
+	}
+
+	private static void roundTrip(Generation.Encoding encoding, double tolerance) throws InvalidProtocolBufferException {
+		double[] samples = samples(10000);
+
+		Generation.AudioSegment segment = AudioSegmentCodec.encode(
+				Generation.AudioSegment.newBuilder(), samples, 100, 5000, encoding).build();
+		Assert.assertEquals(5000, AudioSegmentCodec.length(segment));
+
+		double[] decoded = AudioSegmentCodec.decode(Generation.AudioSegment.parseFrom(segment.toByteString()));
+		Assert.assertEquals(5000, decoded.length);
+
+		for (int i = 0; i < decoded.length; i++) {
+			Assert.assertEquals(samples[100 + i], decoded[i], tolerance);
+		}
+
+		System.out.println("AudioSegmentCodecTest: " + encoding + " segment is " +
+				segment.getSerializedSize() + " bytes");
+	}
+
+	@Test
+	public void doubles() throws InvalidProtocolBufferException { roundTrip(Generation.Encoding.DOUBLE, 0.0); }
+
+	@Test
+	public void float32() throws InvalidProtocolBufferException { roundTrip(Generation.Encoding.FLOAT32, 1e-7); }
+
+	@Test
+	public void float32Deflate() throws InvalidProtocolBufferException { roundTrip(Generation.Encoding.FLOAT32_DEFLATE, 1e-7); }
+
+	@Test
+	public void pcm16() throws InvalidProtocolBufferException { roundTrip(Generation.Encoding.PCM16, 1.0 / Short.MAX_VALUE); }
+
+	@Test
+	public void pcm24() throws InvalidProtocolBufferException { roundTrip(Generation.Encoding.PCM24, 1.0 / 0x7FFFFF); }
+
+	@Test
+	public void legacyLength() throws InvalidProtocolBufferException {
+		double[] samples = samples(3000);
+
+		for (Generation.Encoding encoding : AudioSegmentCodec.SUPPORTED) {
+			Generation.AudioSegment segment = AudioSegmentCodec.encode(
+					Generation.AudioSegment.newBuilder(), samples, 0, samples.length, encoding).build();
+			Assert.assertEquals(samples.length, segment.getSampleCount());
+
+			// Peers which predate the sample count do not send it
+			Generation.AudioSegment legacy = segment.toBuilder().clearSampleCount().build();
+			Assert.assertEquals(samples.length, AudioSegmentCodec.length(legacy));
+			Assert.assertEquals(samples.length, AudioSegmentCodec.decode(legacy).length);
+		}
+	}
+
+	private static WaveData stereo(int frames) {
+		double[] left = samples(frames);
+		double[] right = new double[frames];
+		for (int i = 0; i < frames; i++) right[i] = -0.5 * left[i];
+
+		PackedCollection data = new PackedCollection(2, frames);
+		data.setMem(0, left);
+		data.setMem(frames, right);
+		return new WaveData(data, 44100);
+	}
+
+	private static WaveData transfer(WaveData wave, WaveDataPublisher publisher) {
+		List<WaveData> results = new ArrayList<>();
+		WaveDataAccumulator accumulator = new WaveDataAccumulator((id, data) -> results.add(data));
+		publisher.publish(wave, segment -> accumulator.process("stereo", segment));
+
+		Assert.assertEquals(1, results.size());
+		return results.get(0);
+	}
+
+	@Test
+	public void multichannel() {
+		int frames = 3 * WaveDataPublisher.BATCH_SIZE + 100;
+		WaveData wave = stereo(frames);
+
+		for (Generation.ChannelLayout layout : List.of(Generation.ChannelLayout.PLANAR, Generation.ChannelLayout.INTERLEAVED)) {
+			WaveDataPublisher publisher = new WaveDataPublisher(Generation.Encoding.FLOAT32);
+			publisher.setLayout(layout);
+			publisher.setMultichannel(true);
+
+			WaveData result = transfer(wave, publisher);
+			Assert.assertEquals(2, result.getChannelCount());
+			Assert.assertEquals(AudioHash.sha256(wave), AudioHash.sha256(result));
+
+			for (int c = 0; c < 2; c++) {
+				double[] expected = wave.getChannelData(c).toArray(0, frames);
+				double[] actual = result.getChannelData(c).toArray(0, frames);
+				for (int i = 0; i < frames; i++) Assert.assertEquals(expected[i], actual[i], 1e-7);
+			}
+		}
+	}
+
+	@Test
+	public void mixdown() {
+		int frames = 1000;
+		WaveData wave = stereo(frames);
+
+		WaveDataPublisher publisher = new WaveDataPublisher(Generation.Encoding.DOUBLE);
+		Assert.assertFalse(publisher.isMultichannel());
+
+		WaveData result = transfer(wave, publisher);
+		Assert.assertEquals(1, result.getChannelCount());
+
+		double[] left = wave.getChannelData(0).toArray(0, frames);
+		double[] mixed = result.getChannelData(0).toArray(0, frames);
+		for (int i = 0; i < frames; i++) Assert.assertEquals(0.25 * left[i], mixed[i], 1e-12);
+	}
+
+	@Test
+	public void negotiate() {
+		Assert.assertEquals(Generation.Encoding.DOUBLE, AudioSegmentCodec.negotiate(Collections.emptyList()));
+		Assert.assertEquals(AudioSegmentCodec.DEFAULT_ENCODING,
+				AudioSegmentCodec.negotiate(List.of(Generation.Encoding.DOUBLE, AudioSegmentCodec.DEFAULT_ENCODING)));
+		Assert.assertEquals(Generation.Encoding.PCM16,
+				AudioSegmentCodec.negotiate(List.of(Generation.Encoding.PCM16)));
+	}
+}
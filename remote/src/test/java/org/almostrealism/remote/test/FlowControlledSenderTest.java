@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.test;
+
+import io.grpc.Status;
+import io.grpc.stub.CallStreamObserver;
+import org.almostrealism.remote.ops.FlowControlledSender;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class FlowControlledSenderTest {
+	/**
+	 * A {@link CallStreamObserver} with a window of a fixed number of messages,
+	 * which is reopened by calling {@link #consume()}.
+	 */
+	private static class WindowObserver extends CallStreamObserver<Integer> {
+		private final int window;
+		private final List<Integer> received = new ArrayList<>();
+		private int outstanding;
+		private boolean completed;
+		private final List<Throwable> errors = new ArrayList<>();
+		private Runnable onReady;
+
+		WindowObserver(int window) { this.window = window; }
+
+		void consume() {
+			outstanding = 0;
+			onReady.run();
+		}
+
+		@Override
+		public boolean isReady() { return outstanding < window; }
+
+		@Override
+		public void setOnReadyHandler(Runnable onReadyHandler) { this.onReady = onReadyHandler; }
+
+		@Override
+		public void disableAutoInboundFlowControl() { }
+
+		@Override
+		public void request(int count) { }
+
+		@Override
+		public void setMessageCompression(boolean enable) { }
+
+		@Override
+		public void onNext(Integer value) {
+			Assert.assertTrue(isReady());
+			outstanding++;
+			received.add(value);
+		}
+
+		@Override
+		public void onError(Throwable t) { errors.add(t); }
+
+		@Override
+		public void onCompleted() { completed = true; }
+	}
+
+	@Test
+	public void producesOnlyWhenReady() {
+		WindowObserver observer = new WindowObserver(4);
+		FlowControlledSender<Integer> sender = new FlowControlledSender<>(observer);
+		AtomicInteger produced = new AtomicInteger();
+
+		sender.send(FlowControlledSender.concat(3, i ->
+				IntStream.range(0, 5).map(j -> 5 * i + j).peek(j -> produced.incrementAndGet()).iterator()));
+		sender.complete();
+
+		Assert.assertEquals(4, observer.received.size());
+		Assert.assertTrue(produced.get() <= 5);
+
+		while (!observer.completed) {
+			observer.consume();
+			Assert.assertTrue(produced.get() - observer.received.size() <= 1);
+		}
+
+		Assert.assertEquals(IntStream.range(0, 15).boxed().toList(), observer.received);
+	}
+
+	@Test
+	public void failingSourceEndsStream() {
+		WindowObserver observer = new WindowObserver(16);
+		FlowControlledSender<Integer> sender = new FlowControlledSender<>(observer);
+
+		sender.send(FlowControlledSender.concat(2, i -> {
+			if (i == 1) throw new IllegalStateException("Source failed");
+			return IntStream.range(0, 3).iterator();
+		}));
+
+		Assert.assertEquals(List.of(0, 1, 2), observer.received);
+		Assert.assertEquals(1, observer.errors.size());
+		Assert.assertEquals(Status.Code.UNKNOWN, Status.fromThrowable(observer.errors.get(0)).getCode());
+		Assert.assertEquals(0, sender.getPendingCount());
+
+		// Nothing more is written to the stream once it has failed
+		sender.send(7);
+		sender.complete();
+		observer.consume();
+		Assert.assertEquals(List.of(0, 1, 2), observer.received);
+		Assert.assertEquals(1, observer.errors.size());
+		Assert.assertFalse(observer.completed);
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.test;
+
+import org.almostrealism.remote.ops.GenerateRequest;
+import org.almostrealism.remote.ops.RefreshRequest;
+import org.almostrealism.remote.ops.RequestHistory;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+public class RequestHistoryTest {
+	@Test
+	public void status() {
+		RequestHistory history = new RequestHistory();
+
+		RefreshRequest refresh = new RefreshRequest("r1", "g", List.of("a", "b"));
+		history.add(refresh);
+		Assert.assertTrue(history.anyRefreshing("g"));
+		Assert.assertFalse(history.anyCompleted("g"));
+
+		history.update(refresh, true, false);
+		Assert.assertFalse(history.anyRefreshing("g"));
+		Assert.assertTrue(history.anyCompleted("g"));
+
+		GenerateRequest generate = new GenerateRequest("g1", "g", 4);
+		history.add(generate);
+		history.update(generate, true, true);
+		Assert.assertTrue(history.anyGenerating("g"));
+		Assert.assertEquals(1, history.getPendingGenerateRequests().size());
+		Assert.assertFalse(history.anyGenerating("other"));
+	}
+
+	@Test
+	public void persistence() throws IOException {
+		File log = Files.createTempFile("history", ".log").toFile();
+		log.delete();
+
+		RequestHistory history = new RequestHistory(log);
+		RefreshRequest refresh = new RefreshRequest("r1", "g", List.of("a", "b"));
+		history.add(refresh);
+		history.update(refresh, true, true);
+		history.add(new GenerateRequest("g1", "h", 2));
+
+		RequestHistory loaded = new RequestHistory(log);
+		Assert.assertEquals(1, loaded.getPendingRefreshRequests().size());
+		Assert.assertEquals(List.of("a", "b"), loaded.getPendingRefreshRequests().get(0).getSourceHashes());
+		Assert.assertTrue(loaded.anyRefreshing("g"));
+		Assert.assertTrue(loaded.anyGenerating("h"));
+		log.delete();
+	}
+
+	@Test
+	public void bounded() throws IOException {
+		File log = Files.createTempFile("history", ".log").toFile();
+		log.delete();
+
+		int max = RequestHistory.maxCompletedPerGenerator;
+		int threshold = RequestHistory.compactionThreshold;
+		RequestHistory.maxCompletedPerGenerator = 4;
+		RequestHistory.compactionThreshold = 20;
+
+		try {
+			RequestHistory history = new RequestHistory(log);
+
+			for (int i = 0; i < 50; i++) {
+				GenerateRequest request = new GenerateRequest("g" + i, "g", 1);
+				history.add(request);
+				history.update(request, true, false);
+			}
+
+			Assert.assertEquals(4, history.getGenerateRequests().size());
+			Assert.assertEquals("g49", history.getGenerateRequests().get(3).getRequestId());
+			Assert.assertTrue(history.anyCompleted("g"));
+			Assert.assertTrue(Files.readAllLines(log.toPath()).size() <= 20);
+
+			RequestHistory loaded = new RequestHistory(log);
+			Assert.assertEquals(4, loaded.getGenerateRequests().size());
+			Assert.assertTrue(loaded.anyCompleted("g"));
+		} finally {
+			RequestHistory.maxCompletedPerGenerator = max;
+			RequestHistory.compactionThreshold = threshold;
+			log.delete();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.remote.test;
+
+import org.almostrealism.remote.ops.RequestRetrier;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestRetrierTest {
+	@Test
+	public void nonRetryable() throws Exception {
+		RequestRetrier retrier = new RequestRetrier(1);
+		AtomicInteger attempts = new AtomicInteger();
+		CompletableFuture<Boolean> done = new CompletableFuture<>();
+
+		Assert.assertTrue(retrier.<Boolean>submit("r1", () -> {
+			attempts.incrementAndGet();
+			throw new RequestRetrier.NonRetryableException("gone");
+		}, result -> result, done::complete));
+
+		Assert.assertNull(done.get(10, TimeUnit.SECONDS));
+		Assert.assertEquals(1, attempts.get());
+		Assert.assertEquals(0, retrier.getPendingCount());
+		retrier.shutdown();
+	}
+}
@@ -1,22 +1,24 @@
 package org.almostrealism.audioml;
 
-import ai.djl.sentencepiece.SpTokenizer;
-import ai.djl.sentencepiece.SpVocabulary;
 import org.almostrealism.audioml.audio.AudioUtils;
 import org.almostrealism.audioml.model.DiffusionProcess;
 import org.almostrealism.audioml.model.ModelHandler;
+import org.almostrealism.audioml.model.PromptTokenizer;
 import org.tensorflow.TensorFlow;
 
+import java.util.SplittableRandom;
+
 public class AudioGen {
 	public static void main(String[] args) {
-		if (args.length != 3) {
-			System.err.println("Usage: java AudioGen <models_base_path> <prompt> <num_threads>");
+		if (args.length < 3 || args.length > 4) {
+			System.err.println("Usage: java AudioGen <models_base_path> <prompt> <num_threads> [num_variations]");
 			System.exit(1);
 		}
 
 		String modelsBasePath = args[0];
 		String prompt = args[1];
 		int numThreads = Integer.parseInt(args[2]);
+		int numVariations = args.length > 3 ? Integer.parseInt(args[3]) : 1;
 		String outputPath = "output.wav";
 		long seed = 99;
 
@@ -24,38 +26,49 @@ public class AudioGen {
 		System.out.println("Using models from: " + modelsBasePath);
 		System.out.println("Prompt: " + prompt);
 		System.out.println("Number of threads: " + numThreads);
+		System.out.println("Number of variations: " + numVariations);
 
 		// Configure TensorFlow to use specified number of threads
 		// Note: In full TensorFlow, this can be done with various configurations
 		System.setProperty("org.tensorflow.NativeLibrary.VERBOSE", "1");
 
-		try (ModelHandler modelHandler = new ModelHandler()) {
+		try (ModelHandler modelHandler = new ModelHandler();
+			 PromptTokenizer tokenizer = new PromptTokenizer(AudioGen.class.getClassLoader().getResourceAsStream("spiece.model"))) {
 			long startTime = System.currentTimeMillis();
 
 			// Step 1: Load models
 			System.out.println("Loading models...");
 			modelHandler.loadModels(modelsBasePath);
 
-			// Step 2: Initialize text tokenizer
-			System.out.println("Initializing tokenizer...");
-			SpTokenizer tokenizer = new SpTokenizer(AudioGen.class.getClassLoader().getResourceAsStream("spiece.model"));
-			SpVocabulary vocabulary = SpVocabulary.from(tokenizer);
-			long[] promptIds = tokenizer.tokenize(prompt).stream().mapToLong(vocabulary::getIndex).toArray();
+			// Step 2: Tokenize the prompt
+			long[] promptIds = tokenizer.tokenize(prompt);
 
 			// Step 3: Prepare attention mask
-			long[] attentionMask = new long[promptIds.length];
-			for (int i = 0; i < promptIds.length; i++) {
-				attentionMask[i] = 1;
-			}
+			long[] attentionMask = PromptTokenizer.attentionMask(promptIds);
 
-			// Step 4: Run diffusion process
+			// Step 4: Run diffusion process, generating every variation in one batch
 			System.out.println("Running diffusion process...");
+			// The first variation keeps the seed, so that it matches a single generation.
+			// The others are mixed rather than consecutive, because the noise for each
+			// step is seeded with the seed plus the step, and consecutive seeds would
+			// reuse each other's noise one step apart
+			long[] seeds = new long[numVariations];
+			SplittableRandom random = new SplittableRandom(seed);
+			for (int i = 0; i < numVariations; i++) {
+				seeds[i] = i == 0 ? seed : random.split().nextLong();
+			}
+
 			DiffusionProcess diffusion = new DiffusionProcess(modelHandler);
-			float[] audioData = diffusion.runDiffusion(promptIds, attentionMask, seed);
+			float[][] audioData = diffusion.runDiffusion(promptIds, attentionMask, seeds);
+
+			// Step 5: Save output as WAV files
+			for (int i = 0; i < audioData.length; i++) {
+				String path = audioData.length == 1 ? outputPath : "output-" + i + ".wav";
+				System.out.println("Saving output to " + path);
+				AudioUtils.saveAsWav(path, audioData[i]);
+			}
 
-			// Step 5: Save output as WAV file
-			System.out.println("Saving output to " + outputPath);
-			AudioUtils.saveAsWav(outputPath, audioData);
+			System.out.println(modelHandler.getConditioningCache());
 
 			long totalTime = System.currentTimeMillis() - startTime;
 			System.out.println("Total processing time: " + totalTime + " ms");
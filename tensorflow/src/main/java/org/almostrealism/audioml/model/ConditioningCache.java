@@ -0,0 +1,194 @@
+package org.almostrealism.audioml.model;
+
+import org.tensorflow.Tensor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the conditioning tensors for recently used prompts, so that generating several
+ * variations of the same prompt only runs the conditioner once. Entries are keyed by
+ * the token ids, attention mask and audio length, and the least recently used entry is
+ * evicted when the cache is full.
+ * <p>
+ * The tensors are reference counted: the cache holds one reference to each entry and
+ * every {@link Lease} holds another, so an entry which is evicted while it is in use is
+ * only closed once the last lease is closed.
+ */
+public class ConditioningCache {
+	public static int defaultCapacity = 16;
+
+	private final int capacity;
+	private final LinkedHashMap<Key, Entry> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public ConditioningCache() {
+		this(defaultCapacity);
+	}
+
+	public ConditioningCache(int capacity) {
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns a {@link Lease} on the conditioning for the specified prompt, computing it
+	 * if it is not already cached. The caller owns the lease and must close it, but must
+	 * not close the tensors themselves.
+	 */
+	public Lease get(long[] ids, long[] attentionMask, float audioLenSec, Supplier<Map<String, Tensor>> compute) {
+		Key key = new Key(ids, attentionMask, audioLenSec);
+
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits.incrementAndGet();
+				return entry.lease();
+			}
+		}
+
+		misses.incrementAndGet();
+
+		// The conditioner runs without holding the lock, so if two threads miss
+		// the same prompt at once the second result is discarded
+		Entry computed = new Entry(compute.get());
+		List<Entry> evicted = new ArrayList<>();
+		Lease lease;
+
+		synchronized (this) {
+			Entry existing = entries.get(key);
+
+			if (existing != null) {
+				evicted.add(computed);
+				lease = existing.lease();
+			} else {
+				entries.put(key, computed);
+				lease = computed.lease();
+
+				Iterator<Entry> itr = entries.values().iterator();
+				while (entries.size() > capacity && itr.hasNext()) {
+					evicted.add(itr.next());
+					itr.remove();
+				}
+			}
+		}
+
+		evicted.forEach(Entry::release);
+		return lease;
+	}
+
+	/**
+	 * Removes every entry, closing the tensors of those which are not in use.
+	 */
+	public void clear() {
+		List<Entry> evicted;
+
+		synchronized (this) {
+			evicted = new ArrayList<>(entries.values());
+			entries.clear();
+		}
+
+		evicted.forEach(Entry::release);
+	}
+
+	public synchronized int size() { return entries.size(); }
+
+	public long getHits() { return hits.get(); }
+
+	public long getMisses() { return misses.get(); }
+
+	/**
+	 * Returns the fraction of requests which were served from the cache.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0.0 : h / (double) total;
+	}
+
+	@Override
+	public String toString() {
+		return "ConditioningCache[size=" + size() + ", hits=" + getHits() +
+				", misses=" + getMisses() + ", hitRate=" + String.format("%.2f", getHitRate()) + "]";
+	}
+
+	/**
+	 * A reference to the tensors of one cached prompt, which is released when it is closed.
+	 */
+	public static class Lease implements AutoCloseable {
+		private final Entry entry;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Lease(Entry entry) {
+			this.entry = entry;
+		}
+
+		public Tensor get(String name) {
+			if (closed.get()) throw new IllegalStateException("Lease is closed");
+			return entry.tensors.get(name);
+		}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true)) entry.release();
+		}
+	}
+
+	private static class Entry {
+		private final Map<String, Tensor> tensors;
+		private int references;
+
+		Entry(Map<String, Tensor> tensors) {
+			this.tensors = tensors;
+			this.references = 1;
+		}
+
+		synchronized Lease lease() {
+			references++;
+			return new Lease(this);
+		}
+
+		void release() {
+			synchronized (this) {
+				if (--references > 0) return;
+			}
+
+			tensors.values().forEach(Tensor::close);
+		}
+	}
+
+	private static class Key {
+		private final long[] ids;
+		private final long[] attentionMask;
+		private final float audioLenSec;
+
+		Key(long[] ids, long[] attentionMask, float audioLenSec) {
+			this.ids = ids.clone();
+			this.attentionMask = attentionMask.clone();
+			this.audioLenSec = audioLenSec;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+
+			Key k = (Key) o;
+			return Arrays.equals(ids, k.ids) && Arrays.equals(attentionMask, k.attentionMask) &&
+					Float.compare(audioLenSec, k.audioLenSec) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Arrays.hashCode(ids) + Arrays.hashCode(attentionMask)) + Float.hashCode(audioLenSec);
+		}
+	}
+}
@@ -5,7 +5,7 @@ import org.tensorflow.Tensor;
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.types.TFloat32;
 
-import java.util.Random;
+import java.util.Arrays;
 
 public class DiffusionProcess {
 	// Constants from the C++ implementation
@@ -22,59 +22,115 @@ public class DiffusionProcess {
 	}
 
 	public float[] runDiffusion(long[] promptIds, long[] attentionMask, long seed) {
-		// Step 1: Run T5 model to get conditioning
-		var t5Output = modelHandler.runT5Model(promptIds, attentionMask, AUDIO_LEN_SEC);
-		Tensor crossAttn = t5Output.get("crossAttn");
-		Tensor globalCond = t5Output.get("globalCond");
+		return runDiffusion(promptIds, attentionMask, new long[] { seed })[0];
+	}
+
+	/**
+	 * Generates one sample for each of the specified seeds. The conditioning is computed
+	 * once and repeated along the batch dimension, so that each DiT step and the final
+	 * autoencoder pass run once for the whole batch rather than once per sample. Each
+	 * sample is the same as the one generated by a separate call with its seed.
+	 * <p>
+	 * The noise for each step is seeded with the sample's seed plus the step, so seeds
+	 * which are closer together than the number of steps share noise at different
+	 * steps and should not be used for variations of the same prompt.
+	 */
+	public float[][] runDiffusion(long[] promptIds, long[] attentionMask, long[] seeds) {
+		int batch = seeds.length;
+		if (batch == 0) return new float[0][];
+
+		// Step 1: Run T5 model to get conditioning, unless it is cached
+		try (ConditioningCache.Lease conditioning = modelHandler.conditioning(promptIds, attentionMask, AUDIO_LEN_SEC)) {
+			Tensor crossAttn = null;
+			Tensor globalCond = null;
+
+			try {
+				crossAttn = batch(conditioning.get("crossAttn"), batch);
+				globalCond = batch(conditioning.get("globalCond"), batch);
+				return diffuse(crossAttn, globalCond, seeds);
+			} finally {
+				// The cached conditioning itself stays open for later requests
+				if (batch > 1) {
+					if (crossAttn != null) crossAttn.close();
+					if (globalCond != null) globalCond.close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the diffusion steps and the autoencoder for the batch of seeds, with
+	 * conditioning which has already been repeated along the batch dimension.
+	 */
+	private float[][] diffuse(Tensor crossAttn, Tensor globalCond, long[] seeds) {
+		int batch = seeds.length;
 
 		// Step 2: Prepare for diffusion
 		long startTime = System.currentTimeMillis();
 
-		// Get DiT input dimensions from crossAttn shape
-		Shape crossAttnShape = crossAttn.shape();
-		Shape xShape = Shape.of(1, 32, 32); // This may need adjustment based on model requirements
+		// Each sample has the shape 1 x 32 x 32, which may need adjustment based on model requirements
+		Shape xShape = Shape.of(batch, 32, 32);
 
-		// Initialize x with random normal distribution
-		TFloat32 x = TensorUtils.createRandomNormalTensor(xShape, seed);
+		// Initialize x with random normal distribution, using the seed of each sample.
+		// The same tensor is fed to every DiT step and updated in place by the sampler
+		TFloat32 x = TensorUtils.createRandomNormalTensor(xShape, seeds);
 
-		// Calculate sigmas for diffusion steps
-		float[] sigmas = calculateSigmas(NUM_STEPS + 1);
+		// Time tensor, also updated in place for each step
+		TFloat32 tTensor = TFloat32.scalarOf(0.0f);
 
-		// Step 3: Run diffusion process
-		for (int i = 0; i < NUM_STEPS; i++) {
-			float currentT = sigmas[i];
-			float nextT = sigmas[i + 1];
+		try {
+			// Calculate sigmas for diffusion steps
+			float[] sigmas = calculateSigmas(NUM_STEPS + 1);
+			long[] stepSeeds = new long[batch];
 
-			// Create time tensor
-			TFloat32 tTensor = TFloat32.scalarOf(currentT);
+			// Step 3: Run diffusion process
+			ModelHandler.DitStep step = modelHandler.compileDit(x, tTensor, crossAttn, globalCond);
 
-			// Run DiT model
-			Tensor ditOutput = modelHandler.runDitModel(x, tTensor, crossAttn, globalCond);
+			for (int i = 0; i < NUM_STEPS; i++) {
+				float currentT = sigmas[i];
+				float nextT = sigmas[i + 1];
+				tTensor.setFloat(currentT);
 
-			// Update x with sampler ping-pong
-			x = samplerPingPong((TFloat32)ditOutput, x, currentT, nextT, i, seed + i + 4564);
+				// Run DiT model, closing its output once x has been updated
+				try (Tensor ditOutput = step.run()) {
+					for (int k = 0; k < batch; k++) stepSeeds[k] = seeds[k] + i + 4564;
 
-			// Close the temporary tensors
-			tTensor.close();
-			ditOutput.close();
-		}
+					// Update x with sampler ping-pong
+					TensorUtils.samplerPingPong((TFloat32) ditOutput, x, currentT, nextT, stepSeeds);
+				}
+			}
 
-		// Step 4: Run autoencoder to generate final audio
-		Tensor autoencoderOutput = modelHandler.runAutoencoderModel(x);
+			// Step 4: Run autoencoder to generate final audio
+			float[] audioData;
 
-		// Convert to float array
-		float[] audioData = TensorUtils.tensorToFloatArray((TFloat32)autoencoderOutput);
+			try (Tensor autoencoderOutput = modelHandler.runAutoencoderModel(x)) {
+				audioData = TensorUtils.tensorToFloatArray((TFloat32) autoencoderOutput);
+			}
 
-		// Clean up
-		crossAttn.close();
-		globalCond.close();
-		x.close();
-		autoencoderOutput.close();
+			// Convert to one float array per sample
+			int length = audioData.length / batch;
 
-		long endTime = System.currentTimeMillis();
-		System.out.println("DiT process completed in " + (endTime - startTime) + " ms");
+			float[][] samples = new float[batch][];
+			for (int k = 0; k < batch; k++) {
+				samples[k] = Arrays.copyOfRange(audioData, k * length, (k + 1) * length);
+			}
 
-		return audioData;
+			long endTime = System.currentTimeMillis();
+			System.out.println("DiT process completed in " + (endTime - startTime) + " ms (batch size " + batch + ")");
+
+			return samples;
+		} finally {
+			tTensor.close();
+			x.close();
+		}
+	}
+
+	/**
+	 * Repeats the conditioning tensor along the batch dimension.
+	 */
+	private Tensor batch(Tensor conditioning, int batch) {
+		if (batch == 1) return conditioning;
+		return TensorUtils.repeat((TFloat32) conditioning, batch);
 	}
 
 	private float[] calculateSigmas(int size) {
@@ -103,33 +159,4 @@ public class DiffusionProcess {
 
 		return sigmas;
 	}
-
-	private TFloat32 samplerPingPong(TFloat32 ditOutput, TFloat32 xInput, float curT, float nextT, int stepIdx, long seed) {
-		Shape shape = xInput.shape();
-		int size = (int)shape.size();
-
-		// Convert tensors to float arrays for easier manipulation
-		float[] outputArray = TensorUtils.tensorToFloatArray(ditOutput);
-		float[] xArray = TensorUtils.tensorToFloatArray(xInput);
-
-		// Step 1: Modify output data based on current state
-		for (int i = 0; i < size; i++) {
-			outputArray[i] = xArray[i] - (curT * outputArray[i]);
-		}
-
-		// Step 2: Generate new random noise
-		float[] noiseArray = new float[size];
-		Random random = new Random(seed);
-		for (int i = 0; i < size; i++) {
-			noiseArray[i] = (float)random.nextGaussian();
-		}
-
-		// Step 3: Update x
-		for (int i = 0; i < size; i++) {
-			xArray[i] = ((1.0f - nextT) * outputArray[i]) + (nextT * noiseArray[i]);
-		}
-
-		// Create new tensor from updated array
-		return TensorUtils.createTensorFromArray(xArray, shape);
-	}
 }
\ No newline at end of file
@@ -43,23 +43,21 @@ public class ModelHandler implements AutoCloseable {
 	private String autoencoderInputName;
 	private String autoencoderOutputName;
 
+	private final ConditioningCache conditioningCache = new ConditioningCache();
+
 	public void loadModels(String basePath) {
 		// Load models from SavedModel format
-		t5Model = SavedModelBundle.load(basePath + "/conditioners_float32", "serve");
-		ditModel = SavedModelBundle.load(basePath + "/dit_model", "serve");
-		autoencoderModel = SavedModelBundle.load(basePath + "/autoencoder_model", "serve");
+		loadT5Model(basePath + "/conditioners_float32");
+		loadDitModel(basePath + "/dit_model");
+		loadAutoencoderModel(basePath + "/autoencoder_model");
+	}
 
-		// Initialize signature names (may need to be adjusted based on actual models)
-		t5SignatureName = firstKey(t5Model.metaGraphDef().getSignatureDefMap());
-		ditSignatureName = firstKey(ditModel.metaGraphDef().getSignatureDefMap());
-		autoencoderSignatureName = firstKey(autoencoderModel.metaGraphDef().getSignatureDefMap());
+	// Signature names are the first in each model (may need to be adjusted based on actual models)
 
-		// Extract input/output tensor names from the models
-		initializeModelSignatures();
-	}
+	public void loadT5Model(String path) {
+		t5Model = SavedModelBundle.load(path, "serve");
+		t5SignatureName = firstKey(t5Model.metaGraphDef().getSignatureDefMap());
 
-	private void initializeModelSignatures() {
-		// Extract tensor names from SignatureDefs
 		// T5 model inputs
 		t5InputNames.put(T5_IDS_IN_IDX, getInputTensorName(t5Model, t5SignatureName, 0));
 		t5InputNames.put(T5_ATTNMASK_IN_IDX, getInputTensorName(t5Model, t5SignatureName, 1));
@@ -68,6 +66,11 @@ public class ModelHandler implements AutoCloseable {
 		// T5 model outputs
 		t5OutputNames.put(T5_CROSSATTN_OUT_IDX, getOutputTensorName(t5Model, t5SignatureName, 0));
 		t5OutputNames.put(T5_GLOBALCOND_OUT_IDX, getOutputTensorName(t5Model, t5SignatureName, 2));
+	}
+
+	public void loadDitModel(String path) {
+		ditModel = SavedModelBundle.load(path, "serve");
+		ditSignatureName = firstKey(ditModel.metaGraphDef().getSignatureDefMap());
 
 		// DiT model inputs
 		ditInputNames.put(DIT_CROSSATTN_IN_IDX, getInputTensorName(ditModel, ditSignatureName, 0));
@@ -77,6 +80,11 @@ public class ModelHandler implements AutoCloseable {
 
 		// DiT model output
 		ditOutputNames.put(DIT_OUT_IDX, getOutputTensorName(ditModel, ditSignatureName, 0));
+	}
+
+	public void loadAutoencoderModel(String path) {
+		autoencoderModel = SavedModelBundle.load(path, "serve");
+		autoencoderSignatureName = firstKey(autoencoderModel.metaGraphDef().getSignatureDefMap());
 
 		// Autoencoder model
 		autoencoderInputName = getInputTensorName(autoencoderModel, autoencoderSignatureName, 0);
@@ -124,6 +132,18 @@ public class ModelHandler implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * Returns the T5 conditioning for the specified prompt, running the model only if the
+	 * prompt is not in the {@link ConditioningCache}. The returned lease must be closed,
+	 * and the tensors it provides must not be.
+	 */
+	public ConditioningCache.Lease conditioning(long[] ids, long[] attentionMask, float audioLenSec) {
+		return conditioningCache.get(ids, attentionMask, audioLenSec,
+				() -> runT5Model(ids, attentionMask, audioLenSec));
+	}
+
+	public ConditioningCache getConditioningCache() { return conditioningCache; }
+
 	public Tensor runDitModel(Tensor x, Tensor t, Tensor crossAttn, Tensor globalCond) {
 		return ditModel.session().runner()
 				.feed(ditInputNames.get(DIT_X_IN_IDX), x)
@@ -135,6 +155,22 @@ public class ModelHandler implements AutoCloseable {
 				.get(0);
 	}
 
+	/**
+	 * Prepares the DiT model to be run repeatedly with the specified input tensors. The
+	 * feeds and fetch are resolved once, rather than for every step, so the contents of
+	 * the inputs can be updated in place between runs instead of creating new tensors.
+	 * Each run returns a new output tensor, which the caller must close.
+	 */
+	public DitStep compileDit(TFloat32 x, TFloat32 t, Tensor crossAttn, Tensor globalCond) {
+		Session.Runner runner = ditModel.session().runner()
+				.feed(ditInputNames.get(DIT_X_IN_IDX), x)
+				.feed(ditInputNames.get(DIT_T_IN_IDX), t)
+				.feed(ditInputNames.get(DIT_CROSSATTN_IN_IDX), crossAttn)
+				.feed(ditInputNames.get(DIT_GLOBALCOND_IN_IDX), globalCond)
+				.fetch(ditOutputNames.get(DIT_OUT_IDX));
+		return () -> runner.run().get(0);
+	}
+
 	public Tensor runAutoencoderModel(Tensor input) {
 		return autoencoderModel.session().runner()
 				.feed(autoencoderInputName, input)
@@ -145,11 +181,19 @@ public class ModelHandler implements AutoCloseable {
 
 	@Override
 	public void close() {
+		conditioningCache.clear();
 		if (t5Model != null) t5Model.close();
 		if (ditModel != null) ditModel.close();
 		if (autoencoderModel != null) autoencoderModel.close();
 	}
 
+	/**
+	 * A DiT model invocation prepared by {@link #compileDit(TFloat32, TFloat32, Tensor, Tensor)}.
+	 */
+	public interface DitStep {
+		Tensor run();
+	}
+
 	private static String firstKey(Map<String, SignatureDef> map) {
 		return map.keySet().iterator().next();
 	}
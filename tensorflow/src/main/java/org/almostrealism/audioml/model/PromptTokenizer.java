@@ -0,0 +1,96 @@
+package org.almostrealism.audioml.model;
+
+import ai.djl.sentencepiece.SpTokenizer;
+import ai.djl.sentencepiece.SpVocabulary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts prompts to the token ids expected by the T5 conditioner, keeping the ids of
+ * recently used prompts so that repeated prompts are not tokenized again. The least
+ * recently used prompt is evicted when the cache is full.
+ */
+public class PromptTokenizer implements AutoCloseable {
+	public static int defaultCapacity = 64;
+
+	private final SpTokenizer tokenizer;
+	private final SpVocabulary vocabulary;
+	private final Map<String, long[]> cache;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	public PromptTokenizer(InputStream model) throws IOException {
+		this(new SpTokenizer(model), defaultCapacity);
+	}
+
+	public PromptTokenizer(SpTokenizer tokenizer, int capacity) {
+		this.tokenizer = tokenizer;
+		this.vocabulary = SpVocabulary.from(tokenizer);
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the token ids for the specified prompt. The caller may modify the result.
+	 */
+	public long[] tokenize(String prompt) {
+		long[] ids;
+
+		synchronized (cache) {
+			ids = cache.get(prompt);
+		}
+
+		if (ids != null) {
+			hits.incrementAndGet();
+			return ids.clone();
+		}
+
+		misses.incrementAndGet();
+		ids = tokenizer.tokenize(prompt).stream().mapToLong(vocabulary::getIndex).toArray();
+
+		synchronized (cache) {
+			cache.put(prompt, ids);
+		}
+
+		return ids.clone();
+	}
+
+	/**
+	 * Returns the attention mask for the specified token ids, which attends to every token.
+	 */
+	public static long[] attentionMask(long[] ids) {
+		long[] mask = new long[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			mask[i] = 1;
+		}
+
+		return mask;
+	}
+
+	public long getHits() { return hits.get(); }
+
+	public long getMisses() { return misses.get(); }
+
+	/**
+	 * Returns the fraction of prompts which were served from the cache.
+	 */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0.0 : h / (double) total;
+	}
+
+	@Override
+	public void close() {
+		tokenizer.close();
+	}
+}
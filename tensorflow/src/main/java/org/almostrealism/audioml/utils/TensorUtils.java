@@ -2,6 +2,7 @@ package org.almostrealism.audioml.utils;
 
 import org.tensorflow.ndarray.Shape;
 import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.ndarray.buffer.FloatDataBuffer;
 import org.tensorflow.types.TFloat32;
 
 import java.util.Random;
@@ -22,6 +23,47 @@ public class TensorUtils {
 		return createTensorFromArray(data, shape);
 	}
 
+	/**
+	 * Creates a tensor in which each entry along the first dimension is filled with
+	 * random values from a normal distribution, using the corresponding seed. Each
+	 * entry matches the tensor which would be created for its seed alone.
+	 */
+	public static TFloat32 createRandomNormalTensor(Shape shape, long[] seeds) {
+		if (shape.size(0) != seeds.length) {
+			throw new IllegalArgumentException("Expected " + shape.size(0) + " seeds");
+		}
+
+		int size = (int)shape.size();
+		int sampleSize = size / seeds.length;
+		float[] data = new float[size];
+
+		for (int k = 0; k < seeds.length; k++) {
+			Random random = new Random(seeds[k]);
+			for (int i = k * sampleSize; i < (k + 1) * sampleSize; i++) {
+				data[i] = (float)random.nextGaussian();
+			}
+		}
+
+		return createTensorFromArray(data, shape);
+	}
+
+	/**
+	 * Creates a tensor containing the specified number of copies of a tensor, one after
+	 * another along the first dimension.
+	 */
+	public static TFloat32 repeat(TFloat32 tensor, int count) {
+		float[] data = tensorToFloatArray(tensor);
+		float[] repeated = new float[data.length * count];
+		for (int i = 0; i < count; i++) {
+			System.arraycopy(data, 0, repeated, i * data.length, data.length);
+		}
+
+		long[] dims = tensor.shape().asArray();
+		if (dims.length == 0) dims = new long[] { 1 };
+		dims[0] *= count;
+		return createTensorFromArray(repeated, Shape.of(dims));
+	}
+
 	/**
 	 * Creates a TFloat32 tensor from a float array with the specified shape.
 	 */
@@ -40,15 +82,38 @@ public class TensorUtils {
 	}
 
 	/**
-	 * Copies data from one tensor to another.
+	 * Copies data from one tensor to another, directly between their buffers.
 	 */
 	public static void copyTensorData(TFloat32 source, TFloat32 target) {
 		if (!source.shape().equals(target.shape())) {
 			throw new IllegalArgumentException("Source and target tensors must have the same shape");
 		}
 
-		float[] data = tensorToFloatArray(source);
-		target.copyFrom(DataBuffers.of(data));
+		source.copyTo(target);
+	}
+
+	/**
+	 * Performs one step of the ping-pong sampler, updating x in place from the output of
+	 * the DiT model. The entries of x along the first dimension each draw their noise
+	 * from the corresponding seed. The buffers of the tensors are accessed directly, so
+	 * no arrays or tensors are allocated.
+	 */
+	public static void samplerPingPong(TFloat32 ditOutput, TFloat32 x, float curT, float nextT, long[] seeds) {
+		FloatDataBuffer out = ditOutput.asRawTensor().data().asFloats();
+		FloatDataBuffer xb = x.asRawTensor().data().asFloats();
+
+		long size = x.shape().size();
+		long sampleSize = size / seeds.length;
+
+		for (int k = 0; k < seeds.length; k++) {
+			Random random = new Random(seeds[k]);
+
+			for (long i = k * sampleSize; i < (k + 1) * sampleSize; i++) {
+				float denoised = xb.getFloat(i) - (curT * out.getFloat(i));
+				float noise = (float) random.nextGaussian();
+				xb.setFloat(((1.0f - nextT) * denoised) + (nextT * noise), i);
+			}
+		}
 	}
 
 	/**
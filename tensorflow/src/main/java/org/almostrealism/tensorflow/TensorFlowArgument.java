@@ -1,5 +1,6 @@
 package org.almostrealism.tensorflow;
 
+import io.almostrealism.collect.TraversalPolicy;
 import io.almostrealism.relation.Evaluable;
 import io.almostrealism.scope.ArrayVariable;
 import io.almostrealism.uml.Multiple;
@@ -11,4 +12,12 @@ public class TensorFlowArgument<T> extends ArrayVariable<T> {
 							  Supplier<Evaluable<? extends Multiple<T>>> producer) {
 		super(name, producer);
 	}
+
+	/**
+	 * Returns the whole argument, with the specified shape, as an expression which can
+	 * be lowered to TensorFlow operations or assigned the result of one.
+	 */
+	public TensorFlowCollection collection(TraversalPolicy shape) {
+		return new TensorFlowCollection(this, shape);
+	}
 }
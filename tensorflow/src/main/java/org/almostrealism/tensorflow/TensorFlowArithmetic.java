@@ -0,0 +1,67 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.lang.LanguageOperations;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat64;
+
+/**
+ * An element-wise binary operation over two collections, which is lowered to a single
+ * TensorFlow operation regardless of the number of elements. The operands are broadcast
+ * against each other, so either may be a scalar.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowArithmetic extends TensorFlowExpression {
+	public enum Operator {
+		ADD, SUBTRACT, MULTIPLY, DIVIDE, POW, MAX, MIN
+	}
+
+	private final Operator operator;
+	private final TensorFlowExpression left, right;
+
+	public TensorFlowArithmetic(Operator operator, TensorFlowExpression left, TensorFlowExpression right) {
+		super(left, right);
+		this.operator = operator;
+		this.left = left;
+		this.right = right;
+	}
+
+	@Override
+	public String getExpression(LanguageOperations lang) {
+		return operator.name().toLowerCase() + "(" + left.getExpression(lang) + ", " + right.getExpression(lang) + ")";
+	}
+
+	@Override
+	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
+		Ops ops = tf.tf();
+		Operand<TFloat64> a = left.toOperand(tf);
+		Operand<TFloat64> b = right.toOperand(tf);
+
+		switch (operator) {
+			case ADD: return ops.math.add(a, b);
+			case SUBTRACT: return ops.math.sub(a, b);
+			case MULTIPLY: return ops.math.mul(a, b);
+			case DIVIDE: return ops.math.div(a, b);
+			case POW: return ops.math.pow(a, b);
+			case MAX: return ops.math.maximum(a, b);
+			case MIN: return ops.math.minimum(a, b);
+			default: throw new UnsupportedOperationException(String.valueOf(operator));
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.collect.TraversalPolicy;
+import io.almostrealism.lang.LanguageOperations;
+import org.tensorflow.Operand;
+import org.tensorflow.types.TFloat64;
+
+/**
+ * A whole collection, which is fed to the function as a single input of the shape
+ * described by its {@link TraversalPolicy}. Collections with the same name share
+ * one input. A collection for a {@link TensorFlowArgument} has the argument's name,
+ * so that it is fed from that argument when it is read and written to that argument
+ * when it is the destination of an assignment in a {@link io.almostrealism.scope.Scope}.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowCollection extends TensorFlowExpression {
+	private final String name;
+	private final TraversalPolicy shape;
+
+	public TensorFlowCollection(String name, TraversalPolicy shape) {
+		this.name = name;
+		this.shape = shape;
+	}
+
+	public TensorFlowCollection(TensorFlowArgument<?> argument, TraversalPolicy shape) {
+		// The reference to the argument is what makes it an argument of the scope
+		super(argument.valueAt(0));
+		this.name = argument.getName();
+		this.shape = shape;
+	}
+
+	public String getName() { return name; }
+
+	public TraversalPolicy getShape() { return shape; }
+
+	/**
+	 * Returns the name along with the shape, because the input is created with a fixed
+	 * shape and a function built for one shape cannot be used for another.
+	 */
+	@Override
+	public String getExpression(LanguageOperations lang) {
+		return name + TensorFlowMemory.shape(shape);
+	}
+
+	@Override
+	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
+		return tf.collection(name, shape).getInputOperand();
+	}
+}
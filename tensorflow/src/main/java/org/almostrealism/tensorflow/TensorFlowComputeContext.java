@@ -20,19 +20,31 @@ import io.almostrealism.lang.LanguageOperations;
 import io.almostrealism.scope.Scope;
 import org.almostrealism.hardware.ctx.AbstractComputeContext;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class TensorFlowComputeContext extends AbstractComputeContext {
+	private final LanguageOperations lang;
+	private final Map<String, TensorFlowInstructionSet> instructions;
+
 	public TensorFlowComputeContext() {
 		super(null);
+		this.lang = new TensorFlowLanguageOperations();
+		this.instructions = new ConcurrentHashMap<>();
 	}
 
 	@Override
 	public LanguageOperations getLanguage() {
-		return null;
+		return lang;
 	}
 
 	@Override
 	public TensorFlowInstructionSet deliver(Scope scope) {
-		return new TensorFlowInstructionSet(scope);
+		// Building the graph is the expensive part of delivering a scope,
+		// so the function is reused for any scope with the same signature
+		return instructions.compute(TensorFlowInstructionSet.signature(scope, lang),
+				(key, existing) -> existing == null || existing.isDestroyed() ?
+						new TensorFlowInstructionSet(scope, lang) : existing);
 	}
 
 	@Override
@@ -42,6 +54,7 @@ public class TensorFlowComputeContext extends AbstractComputeContext {
 
 	@Override
 	public void destroy() {
-		// TODO
+		instructions.values().forEach(TensorFlowInstructionSet::destroy);
+		instructions.clear();
 	}
 }
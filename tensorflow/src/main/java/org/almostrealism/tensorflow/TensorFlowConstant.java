@@ -6,7 +6,6 @@ import org.tensorflow.types.TFloat64;
 
 public class TensorFlowConstant extends TensorFlowExpression {
 	private final double value;
-	private TensorFlowInput input;
 
 	public TensorFlowConstant(double value) {
 		this.value = value;
@@ -19,8 +18,6 @@ public class TensorFlowConstant extends TensorFlowExpression {
 
 	@Override
 	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
-		input = tf.nextInput();
-		input.setValue(tf.valueOf(value));
-		return input.getInputOperand();
+		return tf.constant(value);
 	}
 }
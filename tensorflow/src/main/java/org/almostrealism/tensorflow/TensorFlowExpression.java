@@ -5,8 +5,12 @@ import org.tensorflow.Operand;
 import org.tensorflow.types.TFloat64;
 
 public abstract class TensorFlowExpression extends Expression<Double> {
-	public TensorFlowExpression() {
-		super(Double.class);
+	/**
+	 * @param children  The expressions this one is computed from, through which the
+	 *                  {@link io.almostrealism.scope.Scope} finds the arguments it uses.
+	 */
+	public TensorFlowExpression(Expression<?>... children) {
+		super(Double.class, children);
 		init();
 	}
 
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.lang.LanguageOperations;
+import org.tensorflow.Operand;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt32;
+
+import java.util.Arrays;
+
+/**
+ * Selects the entries of a collection at the specified indices along one axis, which
+ * is lowered to a single TensorFlow gather.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowGather extends TensorFlowExpression {
+	private final TensorFlowExpression input;
+	private final int[] indices;
+	private final int axis;
+
+	public TensorFlowGather(TensorFlowExpression input, int... indices) {
+		this(input, 0, indices);
+	}
+
+	public TensorFlowGather(TensorFlowExpression input, int axis, int... indices) {
+		super(input);
+		this.input = input;
+		this.axis = axis;
+		this.indices = indices;
+	}
+
+	@Override
+	public String getExpression(LanguageOperations lang) {
+		return input.getExpression(lang) + Arrays.toString(indices) + (axis == 0 ? "" : "@" + axis);
+	}
+
+	@Override
+	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
+		Operand<TInt32> i = tf.tf().constant(indices);
+		return tf.tf().gather(input.toOperand(tf), i, tf.tf().constant(axis));
+	}
+}
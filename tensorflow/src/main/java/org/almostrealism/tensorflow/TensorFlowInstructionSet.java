@@ -18,68 +18,105 @@ package org.almostrealism.tensorflow;
 
 import io.almostrealism.code.Execution;
 import io.almostrealism.code.InstructionSet;
+import io.almostrealism.lang.LanguageOperations;
 import io.almostrealism.scope.Argument;
 import io.almostrealism.scope.Scope;
+import org.almostrealism.collect.PackedCollection;
 import org.tensorflow.ConcreteFunction;
 import org.tensorflow.Result;
 import org.tensorflow.Signature;
 import org.tensorflow.Tensor;
-import org.tensorflow.ndarray.Shape;
-import org.tensorflow.ndarray.impl.dense.DoubleDenseNdArray;
 import org.tensorflow.types.TFloat64;
 
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * {@link TensorFlowInstructionSet} runs a {@link Scope} as a TensorFlow {@link ConcreteFunction}.
+ * The function is built once, when the instruction set is created, and the arguments of each
+ * execution are fed to it through {@link TensorFlowMemory}, shaped according to their
+ * {@link io.almostrealism.collect.TraversalPolicy}. Outputs are written back to the arguments
+ * of the same name.
+ */
 public class TensorFlowInstructionSet implements InstructionSet {
+	private final LanguageOperations lang;
 	private final ConcreteFunction func;
 	private List<Argument<?>> arguments;
 	private Collection<TensorFlowInput> variables;
+	private boolean destroyed;
 
-	public TensorFlowInstructionSet(Scope<?> scope) {
-		func = ConcreteFunction.create(tf -> operation(scope).apply(new TensorFlowManager(tf)));
+	public TensorFlowInstructionSet(Scope<?> scope, LanguageOperations lang) {
+		this.lang = lang;
+		this.func = ConcreteFunction.create(tf -> operation(scope).apply(new TensorFlowManager(tf, lang)));
 	}
 
+	public LanguageOperations getLanguage() { return lang; }
+
 	@Override
 	public Execution get(String function, int argCount) {
 		return (args, dependsOn) -> {
 			if (dependsOn != null) dependsOn.waitFor();
-			assignArgs(args, func.call(getArguments()));
+
+			Map<String, TensorFlowMemory> inputs = getArguments(args);
+
+			try (Result result = func.call(feeds(inputs))) {
+				assignArgs(args, result);
+			} finally {
+				inputs.values().forEach(TensorFlowMemory::close);
+			}
+
 			return null;
 		};
 	}
 
 	private void assignArgs(Object[] args, Result result) {
-		List<Tensor> outputs = arguments.stream()
-				.map(Argument::getName)
-				.map(result::get)
-				.map(Optional::get)
-				.collect(Collectors.toList());
-		IntStream.range(0, outputs.size()).forEach(i -> {
-			// ((MemoryData) args[i]).reassign(new TensorFlowMemory(outputs.get(i)));
-			System.out.println("Result: " + ((DoubleDenseNdArray) outputs.get(i)).get(0));
+		IntStream.range(0, Math.min(args.length, arguments.size())).forEach(i -> {
+			Optional<Tensor> output = result.get(arguments.get(i).getName());
+			if (output.isEmpty()) return;
+
+			if (!(args[i] instanceof PackedCollection)) {
+				throw new IllegalArgumentException("Output " + arguments.get(i).getName() +
+						" cannot be written to " + (args[i] == null ? null : args[i].getClass().getSimpleName()));
+			}
+
+			new TensorFlowMemory((TFloat64) output.get()).copyTo((PackedCollection) args[i], 0);
 		});
 	}
 
-	private Map<String, Tensor> getArguments() {
-		Map<String, Tensor> argMap = new HashMap<>();
-		variables.forEach(input -> {
-			argMap.put(input.getName(), input.getValue());
-		});
+	/**
+	 * Creates the tensors for the constant inputs of the function and for each
+	 * argument which is also an input of the function.
+	 */
+	private Map<String, TensorFlowMemory> getArguments(Object[] args) {
+		Set<String> inputs = func.signature().inputNames();
+		Map<String, TensorFlowMemory> argMap = new HashMap<>();
 
-		arguments.forEach(arg -> {
-			argMap.put(arg.getName(), Tensor.of(TFloat64.class, Shape.scalar()));
+		IntStream.range(0, Math.min(args.length, arguments.size())).forEach(i -> {
+			String name = arguments.get(i).getName();
+			if (inputs.contains(name) && args[i] instanceof PackedCollection) {
+				argMap.put(name, TensorFlowMemory.of((PackedCollection) args[i]));
+			}
 		});
 
 		return argMap;
 	}
 
+	private Map<String, Tensor> feeds(Map<String, TensorFlowMemory> arguments) {
+		Map<String, Tensor> feeds = new HashMap<>();
+		variables.stream().filter(input -> input.getValue() != null)
+				.forEach(input -> feeds.put(input.getName(), input.getValue()));
+		arguments.forEach((name, memory) -> feeds.put(name, memory.getTensor()));
+		return feeds;
+	}
+
 	private Function<TensorFlowManager, Signature> operation(Scope<?> scope) {
 		return tf -> {
 			arguments = scope.getArguments();
@@ -89,13 +126,31 @@ public class TensorFlowInstructionSet implements InstructionSet {
 		};
 	}
 
+	/**
+	 * Returns a key which identifies the function that would be built for the specified
+	 * {@link Scope}, so that scopes with the same content can share an instruction set.
+	 * The expression for each {@link TensorFlowCollection} includes its shape, so scopes
+	 * which differ only in the shapes of their inputs do not share a function.
+	 */
+	public static String signature(Scope<?> scope, LanguageOperations lang) {
+		return scope.getName() + "(" +
+				scope.getArguments().stream().map(Argument::getName).collect(Collectors.joining(",")) + "){" +
+				scope.getVariables().stream()
+						.map(v -> v.getDestination().getExpression(lang) + "=" + v.getExpression().getExpression(lang))
+						.collect(Collectors.joining(";")) + "}";
+	}
+
 	@Override
 	public boolean isDestroyed() {
-		return false;
+		return destroyed;
 	}
 
 	@Override
 	public void destroy() {
+		if (destroyed) return;
 
+		variables.stream().map(TensorFlowInput::getValue).filter(Objects::nonNull).forEach(Tensor::close);
+		func.close();
+		destroyed = true;
 	}
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.code.Accessibility;
+import io.almostrealism.code.Precision;
+import io.almostrealism.compute.PhysicalScope;
+import io.almostrealism.lang.DefaultLanguageOperations;
+
+/**
+ * {@link TensorFlowLanguageOperations} renders expressions which are lowered to TensorFlow
+ * operations rather than compiled to source code, so it is only used for the names and
+ * descriptions of expressions. Values are {@link org.tensorflow.types.TFloat64}, so the
+ * precision is {@link Precision#FP64}.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowLanguageOperations extends DefaultLanguageOperations {
+	public TensorFlowLanguageOperations() {
+		super(Precision.FP64, false);
+	}
+
+	@Override
+	public String kernelIndex(int index) { return "0"; }
+
+	@Override
+	public String nameForType(Class<?> type) { return ""; }
+
+	@Override
+	public String annotationForPhysicalScope(Accessibility access, PhysicalScope scope) { return ""; }
+}
@@ -17,47 +17,107 @@
 package org.almostrealism.tensorflow;
 
 import io.almostrealism.code.ExpressionAssignment;
+import io.almostrealism.collect.TraversalPolicy;
+import io.almostrealism.expression.Expression;
+import io.almostrealism.lang.LanguageOperations;
 import org.tensorflow.Operand;
 import org.tensorflow.Signature;
 import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Placeholder;
 import org.tensorflow.types.TFloat64;
 
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * {@link TensorFlowManager} lowers {@link TensorFlowExpression}s into the operations of a
+ * TensorFlow graph and collects the inputs and outputs of the resulting function. Whole
+ * collections are single inputs and operations over them are single vectorized operations,
+ * so the size of the graph does not depend on the number of elements.
+ */
 public class TensorFlowManager {
 	private final Ops tf;
+	private final LanguageOperations lang;
 	private final Map<String, TensorFlowInput> variables;
 	private long inputCount;
 	private final Signature.Builder signature;
 
 	public TensorFlowManager(Ops ops) {
+		this(ops, new TensorFlowLanguageOperations());
+	}
+
+	public TensorFlowManager(Ops ops, LanguageOperations lang) {
 		this.tf = ops;
+		this.lang = lang;
 		this.variables = new HashMap<>();
 		this.signature = Signature.builder();
 	}
 
 	public Ops tf() { return tf; }
 
+	public LanguageOperations getLanguage() { return lang; }
+
 	public Signature.Builder signature() { return signature; }
 
 	protected Collection<TensorFlowInput> getVariables() {
 		return variables.values();
 	}
 
+	/**
+	 * Lowers the value of the specified assignment and adds it as an output of the
+	 * function. The output of an assignment to a {@link TensorFlowCollection} has the
+	 * collection's name, so it is written to the argument of that name.
+	 */
 	public void addVariable(ExpressionAssignment<?> v) {
-		String name = v.getDestination().getExpression(null);
-		Operand dest = getVariable(name).getOutputOperand();
-		Operand src = ((TensorFlowConstant) v.getExpression()).toOperand(this);
-		System.out.println("Assigning " + dest + " to " + src);
+		Expression<?> destination = v.getDestination();
+		Expression<?> e = v.getExpression();
+
+		if (!(e instanceof TensorFlowExpression)) {
+			throw new UnsupportedOperationException("Cannot lower " + e.getClass().getSimpleName());
+		}
+
+		String name = destination instanceof TensorFlowCollection ?
+				((TensorFlowCollection) destination).getName() : destination.getExpression(lang);
+		output(name, (TensorFlowExpression) e);
+	}
+
+	/**
+	 * Lowers the specified expression and adds the result as an output of the function.
+	 */
+	public Operand<TFloat64> output(String name, TensorFlowExpression e) {
+		Operand<TFloat64> src = e.toOperand(this);
 		signature().output(name, src);
+		return src;
 	}
 
 	public TFloat64 valueOf(double value) {
 		return TFloat64.scalarOf(value);
 	}
 
+	/**
+	 * Returns an operand which is embedded in the graph, rather than fed as an input.
+	 */
+	public Operand<TFloat64> constant(double value) {
+		return tf.constant(value);
+	}
+
+	/**
+	 * Returns the input for the collection with the specified name, creating it with
+	 * the shape described by the specified {@link TraversalPolicy} if it does not exist.
+	 */
+	public TensorFlowInput collection(String name, TraversalPolicy shape) {
+		TensorFlowInput existing = variables.get(name);
+		if (existing != null) return existing;
+
+		TensorFlowInput input = new TensorFlowInput();
+		input.setName(name);
+		input.setInputOperand(tf.placeholder(TFloat64.class, Placeholder.shape(TensorFlowMemory.shape(shape))));
+		variables.put(name, input);
+		signature().input(input.getName(), input.getInputOperand());
+		return input;
+	}
+
 	public TensorFlowInput getVariable(String name) {
 		if (!variables.containsKey(name)) {
 			variables.put(name, input(name));
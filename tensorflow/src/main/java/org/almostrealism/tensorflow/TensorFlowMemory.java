@@ -0,0 +1,94 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.collect.TraversalPolicy;
+import org.almostrealism.collect.PackedCollection;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.ndarray.buffer.DataBuffers;
+import org.tensorflow.ndarray.buffer.DoubleDataBuffer;
+import org.tensorflow.types.TFloat64;
+
+/**
+ * {@link TensorFlowMemory} is the host buffer of a {@link TFloat64} tensor, shaped
+ * according to the {@link TraversalPolicy} of the data it holds. The buffer is used
+ * directly by TensorFlow when the tensor is fed to a function. Data moves between a
+ * {@link PackedCollection} and the buffer through an intermediate array, because the
+ * memory of a {@link PackedCollection} is only accessible as a copy, so there are two
+ * copies in each direction.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowMemory implements AutoCloseable {
+	private final TFloat64 tensor;
+
+	public TensorFlowMemory(TFloat64 tensor) {
+		this.tensor = tensor;
+	}
+
+	public TFloat64 getTensor() { return tensor; }
+
+	/**
+	 * Returns the host buffer of the tensor, without copying it.
+	 */
+	public DoubleDataBuffer getBuffer() {
+		return tensor.asRawTensor().data().asDoubles();
+	}
+
+	public int getMemLength() {
+		return (int) tensor.shape().size();
+	}
+
+	/**
+	 * Copies the contents of the tensor into the specified {@link PackedCollection},
+	 * starting at the specified offset.
+	 */
+	public void copyTo(PackedCollection destination, int offset) {
+		double[] values = new double[getMemLength()];
+		getBuffer().read(values);
+		destination.setMem(offset, values);
+	}
+
+	@Override
+	public void close() {
+		tensor.close();
+	}
+
+	/**
+	 * Creates a tensor with the shape and contents of the specified {@link PackedCollection}.
+	 */
+	public static TensorFlowMemory of(PackedCollection data) {
+		double[] values = data.toArray(0, data.getMemLength());
+
+		// The array is wrapped rather than copied again before
+		// it is written into the tensor's own buffer
+		return new TensorFlowMemory(TFloat64.tensorOf(shape(data.getShape()),
+				DataBuffers.of(values, true, false)));
+	}
+
+	/**
+	 * Returns the TensorFlow {@link Shape} corresponding to the specified {@link TraversalPolicy}.
+	 */
+	public static Shape shape(TraversalPolicy shape) {
+		long[] dims = new long[shape.getDimensions()];
+		for (int i = 0; i < dims.length; i++) {
+			dims[i] = shape.length(i);
+		}
+
+		return Shape.of(dims);
+	}
+}
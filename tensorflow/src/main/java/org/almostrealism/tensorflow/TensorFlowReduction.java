@@ -0,0 +1,78 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.lang.LanguageOperations;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat64;
+import org.tensorflow.types.TInt32;
+
+/**
+ * A reduction of a collection, either along one axis or over every element, which is
+ * lowered to a single TensorFlow reduction regardless of the number of elements.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowReduction extends TensorFlowExpression {
+	/** Reduces over every axis, producing a scalar. */
+	public static final int ALL = -1;
+
+	public enum Reduction {
+		SUM, PRODUCT, MAX, MIN, MEAN
+	}
+
+	private final Reduction reduction;
+	private final TensorFlowExpression input;
+	private final int axis;
+
+	public TensorFlowReduction(Reduction reduction, TensorFlowExpression input) {
+		this(reduction, input, ALL);
+	}
+
+	public TensorFlowReduction(Reduction reduction, TensorFlowExpression input, int axis) {
+		super(input);
+		this.reduction = reduction;
+		this.input = input;
+		this.axis = axis;
+	}
+
+	@Override
+	public String getExpression(LanguageOperations lang) {
+		return reduction.name().toLowerCase() + "(" + input.getExpression(lang) +
+				(axis == ALL ? "" : ", " + axis) + ")";
+	}
+
+	@Override
+	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
+		Ops ops = tf.tf();
+		Operand<TFloat64> x = input.toOperand(tf);
+
+		// The axes for a full reduction are computed from the rank at run
+		// time, so the graph does not depend on the shape of the input
+		Operand<TInt32> axes = axis == ALL ?
+				ops.range(ops.constant(0), ops.rank(x), ops.constant(1)) : ops.constant(axis);
+
+		switch (reduction) {
+			case SUM: return ops.reduceSum(x, axes);
+			case PRODUCT: return ops.reduceProd(x, axes);
+			case MAX: return ops.reduceMax(x, axes);
+			case MIN: return ops.reduceMin(x, axes);
+			case MEAN: return ops.math.mean(x, axes);
+			default: throw new UnsupportedOperationException(String.valueOf(reduction));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.almostrealism.tensorflow;
+
+import io.almostrealism.lang.LanguageOperations;
+import org.tensorflow.Operand;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat64;
+
+/**
+ * An element-wise function of a collection, which is lowered to a single TensorFlow
+ * operation regardless of the number of elements.
+ *
+ * @author  Michael Murray
+ */
+public class TensorFlowUnary extends TensorFlowExpression {
+	public enum Function {
+		NEGATE, ABS, EXP, LOG, SQRT, TANH
+	}
+
+	private final Function function;
+	private final TensorFlowExpression input;
+
+	public TensorFlowUnary(Function function, TensorFlowExpression input) {
+		super(input);
+		this.function = function;
+		this.input = input;
+	}
+
+	@Override
+	public String getExpression(LanguageOperations lang) {
+		return function.name().toLowerCase() + "(" + input.getExpression(lang) + ")";
+	}
+
+	@Override
+	public Operand<TFloat64> toOperand(TensorFlowManager tf) {
+		Ops ops = tf.tf();
+		Operand<TFloat64> x = input.toOperand(tf);
+
+		switch (function) {
+			case NEGATE: return ops.math.neg(x);
+			case ABS: return ops.math.abs(x);
+			case EXP: return ops.math.exp(x);
+			case LOG: return ops.math.log(x);
+			case SQRT: return ops.math.sqrt(x);
+			case TANH: return ops.math.tanh(x);
+			default: throw new UnsupportedOperationException(String.valueOf(function));
+		}
+	}
+}
@@ -1,27 +1,69 @@
 package org.almostrealism.wavenet;
 
+import org.tensorflow.EagerSession;
+import org.tensorflow.Operand;
 import org.tensorflow.op.Ops;
-import org.tensorflow.op.core.Placeholder;
-import org.tensorflow.types.TInt32;
+import org.tensorflow.types.TFloat32;
+import org.tensorflow.types.TInt64;
+
+import java.util.Arrays;
+import java.util.Random;
 
 public class WavenetApp {
 	public static boolean fastGeneration = true;
 
 	public static void main(String[] args) {
-		WavenetModel net = new WavenetModel();
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
 
+		try (EagerSession session = EagerSession.create()) {
+			new WavenetApp().run(Ops.create(session), samples);
+		}
 	}
 
-	public void run(Ops tf) {
-		WavenetModel net = new WavenetModel();
+	public long[] run(Ops tf, int samples) {
+		return run(tf, samples, new Random());
+	}
 
-		Placeholder<TInt32> samples = tf.placeholder(TInt32.class);
+	/**
+	 * Generates the specified number of samples from a model with weights drawn from the
+	 * specified {@link Random}, using {@link WavenetModel#incremental(int)} if
+	 * {@link #fastGeneration} is set and {@link WavenetModel#predictProba(Operand)} over
+	 * a sliding window of one receptive field otherwise.
+	 */
+	public long[] run(Ops tf, int samples, Random random) {
+		WavenetModel net = new WavenetModel(tf, 32, 32, new long[] { 1, 2, 4, 8, 16, 32, 64, 128 }, random);
+		long[] result = new long[samples];
 
 		if (fastGeneration) {
-			// next_sample = net.predictProbaIncremental(samples, args.gc_id);
+			WavenetModel.Incremental generator = net.incremental(1);
+			Operand<TFloat32> sample = tf.zeros(tf.constant(new int[] { 1, net.getChannels() }), TFloat32.class);
+
+			for (int i = 0; i < samples; i++) {
+				Operand<TFloat32> proba = generator.next(sample);
+				Operand<TInt64> next = tf.math.argMax(proba, tf.constant(1), TInt64.class);
+				result[i] = next.asTensor().getLong(0);
+				sample = tf.oneHot(next, tf.constant(net.getChannels()), tf.constant(1.0f), tf.constant(0.0f));
+			}
 		} else {
-			// next_sample = net.predictProba(samples, args.gc_id);
-			throw new UnsupportedOperationException();
+			// Every sample requires the entire receptive field to be evaluated again
+			int field = (int) net.getReceptiveField();
+			Operand<TFloat32> window = tf.zeros(tf.constant(new int[] { 1, field, net.getChannels() }), TFloat32.class);
+			Operand<TFloat32> sample = tf.zeros(tf.constant(new int[] { 1, 1, net.getChannels() }), TFloat32.class);
+
+			for (int i = 0; i < samples; i++) {
+				Operand<TFloat32> previous = tf.slice(window, tf.constant(new int[] { 0, 1, 0 }),
+						tf.constant(new int[] { -1, field - 1, -1 }));
+				window = tf.concat(Arrays.asList(previous, sample), tf.constant(1));
+
+				Operand<TFloat32> proba = tf.reshape(net.predictProba(window),
+						tf.constant(new int[] { 1, net.getOutputChannels() }));
+				Operand<TInt64> next = tf.math.argMax(proba, tf.constant(1), TInt64.class);
+				result[i] = next.asTensor().getLong(0);
+				sample = tf.reshape(tf.oneHot(next, tf.constant(net.getChannels()), tf.constant(1.0f), tf.constant(0.0f)),
+						tf.constant(new int[] { 1, 1, net.getChannels() }));
+			}
 		}
+
+		return result;
 	}
 }
@@ -1,4 +1,183 @@
 package org.almostrealism.wavenet;
 
+import org.tensorflow.Operand;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A stack of gated, dilated causal convolutions with residual connections, followed by a
+ * 1x1 projection to the output channels. Every dilated convolution has a filter width of
+ * 2, so the receptive field is the sum of the dilations plus one.
+ * <p>
+ * {@link #predictProba(Operand)} evaluates the whole input with
+ * {@link Operations#causalConvolution(Operand, Operand, long)}, which costs work
+ * proportional to the receptive field for every output. {@link #incremental(int)}
+ * instead produces one output per input sample using the approach of Fast WaveNet:
+ * each layer keeps a queue of its last inputs, as long as its dilation, so that the
+ * input from {@code dilation} steps ago is available without recomputing it.
+ */
 public class WavenetModel {
+	public static final int FILTER_WIDTH = 2;
+
+	private final Ops tf;
+	private final Operations ops;
+	private final int channels;
+	private final int outputChannels;
+	private final long[] dilations;
+
+	private final List<Operand<TFloat32>> filters;
+	private final List<Operand<TFloat32>> gates;
+	private final List<Operand<TFloat32>> residuals;
+	private final Operand<TFloat32> output;
+
+	public WavenetModel(Ops tf, int channels, int outputChannels, long[] dilations, Random random) {
+		this.tf = tf;
+		this.ops = new Operations(tf);
+		this.channels = channels;
+		this.outputChannels = outputChannels;
+		this.dilations = dilations;
+
+		this.filters = new ArrayList<>();
+		this.gates = new ArrayList<>();
+		this.residuals = new ArrayList<>();
+
+		double scale = 1.0 / Math.sqrt(channels);
+
+		for (int i = 0; i < dilations.length; i++) {
+			filters.add(weights(Shape.of(FILTER_WIDTH, channels, channels), scale, random));
+			gates.add(weights(Shape.of(FILTER_WIDTH, channels, channels), scale, random));
+			residuals.add(weights(Shape.of(1, channels, channels), scale, random));
+		}
+
+		this.output = weights(Shape.of(1, channels, outputChannels), scale, random);
+	}
+
+	public int getChannels() { return channels; }
+
+	public int getOutputChannels() { return outputChannels; }
+
+	public long[] getDilations() { return dilations; }
+
+	public long getReceptiveField() {
+		long field = 1;
+		for (long d : dilations) field += (FILTER_WIDTH - 1) * d;
+		return field;
+	}
+
+	/**
+	 * Returns the output distribution for every position of the input, which has the shape
+	 * (batch, time, channels), that has a complete receptive field. The result has the shape
+	 * (batch, time - receptive field + 1, output channels).
+	 */
+	public Operand<TFloat32> predictProba(Operand<TFloat32> input) {
+		Operand<TFloat32> x = input;
+
+		for (int i = 0; i < dilations.length; i++) {
+			Operand<TFloat32> f = ops.causalConvolution(x, filters.get(i), dilations[i]);
+			Operand<TFloat32> g = ops.causalConvolution(x, gates.get(i), dilations[i]);
+			Operand<TFloat32> z = tf.math.mul(tf.math.tanh(f), tf.math.sigmoid(g));
+
+			// The residual is aligned with the last input of each output
+			long width = f.shape().size(1);
+			Operand<TFloat32> current = tf.slice(x, ops.constantVector(0, (int) (x.shape().size(1) - width), 0),
+					ops.constantVector(-1, (int) width, -1));
+			x = tf.math.add(current, ops.conv1d(z, residuals.get(i), 1L, "VALID"));
+		}
+
+		return tf.nn.softmax(ops.conv1d(x, output, 1L, "VALID"));
+	}
+
+	/**
+	 * Returns an {@link Incremental} generator for the specified batch size, with every
+	 * layer's queue initially filled with silence (zeros).
+	 */
+	public Incremental incremental(int batch) {
+		return new Incremental(batch);
+	}
+
+	protected Operand<TFloat32> weights(Shape shape, double scale, Random random) {
+		TFloat32 w = TFloat32.tensorOf(shape);
+		w.scalars().forEach(s -> s.setFloat((float) (scale * random.nextGaussian())));
+		return tf.constant(w);
+	}
+
+	/**
+	 * Returns the tap of a filter with the shape (width, in, out) at the specified
+	 * position as a matrix with the shape (in, out).
+	 */
+	protected Operand<TFloat32> tap(Operand<TFloat32> filter, int position) {
+		Shape shape = filter.shape();
+		Operand<TFloat32> slice = tf.slice(filter, ops.constantVector(position, 0, 0), ops.constantVector(1, -1, -1));
+		return ops.reshape(slice, Shape.of(shape.size(1), shape.size(2)));
+	}
+
+	/**
+	 * Generates one output at a time, so that each sample costs work proportional to the
+	 * number of layers rather than to the receptive field. The queue of each layer holds
+	 * its inputs for the last {@code dilation} steps in a circular buffer: the oldest entry
+	 * is the input the dilated filter needs for the current step, and is replaced by the
+	 * current input once it has been read.
+	 */
+	public class Incremental {
+		private final List<Operand<TFloat32>[]> queues;
+		private final int[] heads;
+
+		private final List<Operand<TFloat32>> past, current, gatePast, gateCurrent, residual;
+		private final Operand<TFloat32> projection;
+
+		@SuppressWarnings("unchecked")
+		protected Incremental(int batch) {
+			this.queues = new ArrayList<>();
+			this.heads = new int[dilations.length];
+
+			this.past = new ArrayList<>();
+			this.current = new ArrayList<>();
+			this.gatePast = new ArrayList<>();
+			this.gateCurrent = new ArrayList<>();
+			this.residual = new ArrayList<>();
+
+			Operand<TFloat32> silence = tf.zeros(ops.constantVector(batch, channels), TFloat32.class);
+
+			for (int i = 0; i < dilations.length; i++) {
+				Operand<TFloat32>[] queue = new Operand[(int) dilations[i]];
+				for (int j = 0; j < queue.length; j++) queue[j] = silence;
+				queues.add(queue);
+
+				past.add(tap(filters.get(i), 0));
+				current.add(tap(filters.get(i), 1));
+				gatePast.add(tap(gates.get(i), 0));
+				gateCurrent.add(tap(gates.get(i), 1));
+				residual.add(tap(residuals.get(i), 0));
+			}
+
+			this.projection = tap(output, 0);
+		}
+
+		/**
+		 * Consumes the next input sample, with the shape (batch, channels), and returns the
+		 * output distribution for it, with the shape (batch, output channels).
+		 */
+		public Operand<TFloat32> next(Operand<TFloat32> sample) {
+			Operand<TFloat32> x = sample;
+
+			for (int i = 0; i < dilations.length; i++) {
+				Operand<TFloat32>[] queue = queues.get(i);
+				Operand<TFloat32> previous = queue[heads[i]];
+				queue[heads[i]] = x;
+				heads[i] = (heads[i] + 1) % queue.length;
+
+				Operand<TFloat32> f = tf.math.add(tf.linalg.matMul(previous, past.get(i)), tf.linalg.matMul(x, current.get(i)));
+				Operand<TFloat32> g = tf.math.add(tf.linalg.matMul(previous, gatePast.get(i)), tf.linalg.matMul(x, gateCurrent.get(i)));
+				Operand<TFloat32> z = tf.math.mul(tf.math.tanh(f), tf.math.sigmoid(g));
+				x = tf.math.add(x, tf.linalg.matMul(z, residual.get(i)));
+			}
+
+			return tf.nn.softmax(tf.linalg.matMul(x, projection));
+		}
+	}
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml.test;
+
+import org.almostrealism.audioml.model.ConditioningCache;
+import org.almostrealism.audioml.model.DiffusionProcess;
+import org.almostrealism.audioml.model.ModelHandler;
+import org.almostrealism.audioml.utils.TensorUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.types.TFloat32;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DiffusionProcessTest {
+	/**
+	 * Stands in for the exported models with simple functions which treat each entry
+	 * of the batch independently, and which depend on the conditioning of that entry.
+	 */
+	private static class TestModelHandler extends ModelHandler {
+		private int t5Calls;
+		private int ditCalls;
+		private int autoencoderCalls;
+
+		@Override
+		public Map<String, Tensor> runT5Model(long[] ids, long[] attentionMask, float audioLenSec) {
+			t5Calls++;
+
+			float[] crossAttn = new float[4 * 8];
+			for (int i = 0; i < crossAttn.length; i++) crossAttn[i] = (float) Math.sin(i + ids.length);
+
+			float[] globalCond = new float[8];
+			for (int i = 0; i < globalCond.length; i++) globalCond[i] = audioLenSec / (i + 1);
+
+			Map<String, Tensor> outputs = new HashMap<>();
+			outputs.put("crossAttn", TensorUtils.createTensorFromArray(crossAttn, Shape.of(1, 4, 8)));
+			outputs.put("globalCond", TensorUtils.createTensorFromArray(globalCond, Shape.of(1, 8)));
+			return outputs;
+		}
+
+		@Override
+		public Tensor runDitModel(Tensor x, Tensor t, Tensor crossAttn, Tensor globalCond) {
+			ditCalls++;
+
+			float[] in = TensorUtils.tensorToFloatArray((TFloat32) x);
+			float[] ca = TensorUtils.tensorToFloatArray((TFloat32) crossAttn);
+			float[] gc = TensorUtils.tensorToFloatArray((TFloat32) globalCond);
+			float time = ((TFloat32) t).getFloat();
+
+			long batch = x.shape().size(0);
+			Assert.assertEquals(batch, crossAttn.shape().size(0));
+			Assert.assertEquals(batch, globalCond.shape().size(0));
+
+			int size = (int) (in.length / batch);
+			int caSize = (int) (ca.length / batch);
+			int gcSize = (int) (gc.length / batch);
+
+			float[] out = new float[in.length];
+			for (int k = 0; k < batch; k++) {
+				for (int i = 0; i < size; i++) {
+					out[k * size + i] = (float) Math.tanh(in[k * size + i]) * time +
+							0.1f * ca[k * caSize + i % caSize] + 0.01f * gc[k * gcSize + i % gcSize];
+				}
+			}
+
+			return TensorUtils.createTensorFromArray(out, x.shape());
+		}
+
+		@Override
+		public DitStep compileDit(TFloat32 x, TFloat32 t, Tensor crossAttn, Tensor globalCond) {
+			return () -> runDitModel(x, t, crossAttn, globalCond);
+		}
+
+		@Override
+		public Tensor runAutoencoderModel(Tensor input) {
+			autoencoderCalls++;
+
+			float[] in = TensorUtils.tensorToFloatArray((TFloat32) input);
+			float[] out = new float[in.length * 2];
+			for (int i = 0; i < in.length; i++) {
+				out[2 * i] = in[i];
+				out[2 * i + 1] = -in[i];
+			}
+
+			return TensorUtils.createTensorFromArray(out, Shape.of(input.shape().size(0), 2, in.length / input.shape().size(0)));
+		}
+	}
+
+	@Test
+	public void batchMatchesSequential() {
+		long[] promptIds = { 5, 17, 42, 1 };
+		long[] attentionMask = { 1, 1, 1, 1 };
+		long[] seeds = { 99, 100, 7 };
+
+		TestModelHandler sequentialModels = new TestModelHandler();
+		DiffusionProcess sequential = new DiffusionProcess(sequentialModels);
+
+		float[][] expected = new float[seeds.length][];
+		for (int k = 0; k < seeds.length; k++) {
+			expected[k] = sequential.runDiffusion(promptIds, attentionMask, seeds[k]);
+		}
+
+		TestModelHandler batchModels = new TestModelHandler();
+		float[][] actual = new DiffusionProcess(batchModels).runDiffusion(promptIds, attentionMask, seeds);
+
+		Assert.assertEquals(seeds.length, actual.length);
+		for (int k = 0; k < seeds.length; k++) {
+			Assert.assertArrayEquals(expected[k], actual[k], 1e-6f);
+		}
+
+		Assert.assertEquals(seeds.length * batchModels.ditCalls, sequentialModels.ditCalls);
+		Assert.assertEquals(1, batchModels.autoencoderCalls);
+		Assert.assertFalse(Arrays.equals(actual[0], actual[1]));
+	}
+
+	@Test
+	public void conditioningIsCached() {
+		long[] attentionMask = { 1, 1, 1 };
+
+		TestModelHandler models = new TestModelHandler();
+		DiffusionProcess diffusion = new DiffusionProcess(models);
+
+		float[] first = diffusion.runDiffusion(new long[] { 3, 4, 5 }, attentionMask, 11);
+		float[] second = diffusion.runDiffusion(new long[] { 3, 4, 5 }, attentionMask, 11);
+		diffusion.runDiffusion(new long[] { 3, 4, 6 }, attentionMask, 11);
+
+		Assert.assertArrayEquals(first, second, 0.0f);
+		Assert.assertEquals(2, models.t5Calls);
+		Assert.assertEquals(1, models.getConditioningCache().getHits());
+		Assert.assertEquals(1.0 / 3.0, models.getConditioningCache().getHitRate(), 1e-9);
+		models.close();
+	}
+
+	@Test
+	public void evictedConditioningRemainsLeased() {
+		TestModelHandler models = new TestModelHandler();
+		ConditioningCache cache = new ConditioningCache(1);
+		long[] mask = { 1 };
+
+		try (ConditioningCache.Lease lease = cache.get(new long[] { 1 }, mask, 10.0f, () -> models.runT5Model(new long[] { 1 }, mask, 10.0f))) {
+			// Evicts the first prompt while its lease is still open
+			cache.get(new long[] { 2 }, mask, 10.0f, () -> models.runT5Model(new long[] { 2 }, mask, 10.0f)).close();
+			Assert.assertEquals(1, cache.size());
+
+			float[] globalCond = TensorUtils.tensorToFloatArray((TFloat32) lease.get("globalCond"));
+			Assert.assertEquals(10.0f, globalCond[0], 0.0f);
+		}
+
+		cache.clear();
+		Assert.assertEquals(0, cache.size());
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml.test;
+
+import org.almostrealism.audioml.model.ModelHandler;
+import org.almostrealism.audioml.utils.TensorUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.SavedModelBundle;
+import org.tensorflow.Session;
+import org.tensorflow.SessionFunction;
+import org.tensorflow.Signature;
+import org.tensorflow.Tensor;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.op.core.Placeholder;
+import org.tensorflow.op.math.Mean;
+import org.tensorflow.types.TFloat32;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Compares the cost of a DiT step when a new runner and new tensors are created for
+ * every step, as {@link org.almostrealism.audioml.model.DiffusionProcess} used to do,
+ * with the cost when the step is compiled once by {@link ModelHandler#compileDit} and
+ * x is updated in place. A small synthetic SavedModel stands in for the DiT, so that
+ * the per-step overhead is not hidden by the model itself. This is run by the failsafe
+ * plugin in the perf profile ({@code mvn -Pperf verify}) and can be configured with the
+ * system properties {@code perf.steps} and {@code perf.batch}.
+ */
+public class DiffusionStepBenchmarkIT {
+	private static final int steps = Integer.getInteger("perf.steps", 2000);
+	private static final int batch = Integer.getInteger("perf.batch", 4);
+
+	/**
+	 * Exports a model with the same inputs as the DiT, named so that they are listed in
+	 * the order {@link ModelHandler} expects.
+	 */
+	private static Path exportModel() throws IOException {
+		Path dir = Files.createTempDirectory("dit_model");
+
+		try (Graph graph = new Graph(); Session session = new Session(graph)) {
+			Ops tf = Ops.create(graph);
+
+			Placeholder<TFloat32> crossAttn = tf.withName("a_crossAttn").placeholder(TFloat32.class);
+			Placeholder<TFloat32> globalCond = tf.withName("b_globalCond").placeholder(TFloat32.class);
+			Placeholder<TFloat32> x = tf.withName("c_x").placeholder(TFloat32.class);
+			Placeholder<TFloat32> t = tf.withName("d_t").placeholder(TFloat32.class);
+
+			var ca = tf.math.mean(crossAttn, tf.constant(new int[] { 1, 2 }), Mean.keepDims(true));
+			var gc = tf.expandDims(tf.math.mean(globalCond, tf.constant(new int[] { 1 }), Mean.keepDims(true)), tf.constant(2));
+			var out = tf.withName("out").identity(
+					tf.math.add(tf.math.mul(tf.math.tanh(x), t), tf.math.add(ca, gc)));
+
+			Signature signature = Signature.builder()
+					.input("a_crossAttn", crossAttn)
+					.input("b_globalCond", globalCond)
+					.input("c_x", x)
+					.input("d_t", t)
+					.output("out", out)
+					.build();
+
+			SavedModelBundle.exporter(dir.toString())
+					.withFunction(SessionFunction.create(signature, session))
+					.export();
+		}
+
+		return dir;
+	}
+
+	/**
+	 * The sampler as it was before it updated x in place.
+	 */
+	private static TFloat32 samplerPingPong(TFloat32 ditOutput, TFloat32 xInput, float curT, float nextT, long seed) {
+		float[] outputArray = TensorUtils.tensorToFloatArray(ditOutput);
+		float[] xArray = TensorUtils.tensorToFloatArray(xInput);
+		int sampleSize = xArray.length / batch;
+
+		for (int i = 0; i < xArray.length; i++) {
+			outputArray[i] = xArray[i] - (curT * outputArray[i]);
+		}
+
+		float[] noiseArray = new float[xArray.length];
+		for (int k = 0; k < batch; k++) {
+			Random random = new Random(seed + k);
+			for (int i = k * sampleSize; i < (k + 1) * sampleSize; i++) {
+				noiseArray[i] = (float) random.nextGaussian();
+			}
+		}
+
+		for (int i = 0; i < xArray.length; i++) {
+			xArray[i] = ((1.0f - nextT) * outputArray[i]) + (nextT * noiseArray[i]);
+		}
+
+		return TensorUtils.createTensorFromArray(xArray, xInput.shape());
+	}
+
+	private static float time(int step) {
+		return 1.0f - step / (float) steps;
+	}
+
+	@Test
+	public void steps() throws IOException {
+		Path dir = exportModel();
+
+		try (ModelHandler models = new ModelHandler();
+			 TFloat32 crossAttn = TensorUtils.createRandomNormalTensor(Shape.of(batch, 4, 8), 1);
+			 TFloat32 globalCond = TensorUtils.createRandomNormalTensor(Shape.of(batch, 8), 2)) {
+			models.loadDitModel(dir.toString());
+
+			Shape shape = Shape.of(batch, 32, 32);
+			long[] seeds = new long[batch];
+
+			// Warm up both paths before measuring
+			float[] previous = null, compiled = null;
+
+			for (int round = 0; round < 2; round++) {
+				long start = System.nanoTime();
+				TFloat32 x = TensorUtils.createRandomNormalTensor(shape, 0);
+
+				for (int i = 0; i < steps; i++) {
+					TFloat32 t = TFloat32.scalarOf(time(i));
+					Tensor out = models.runDitModel(x, t, crossAttn, globalCond);
+					TFloat32 next = samplerPingPong((TFloat32) out, x, time(i), time(i + 1), i);
+
+					t.close();
+					out.close();
+					x.close();
+					x = next;
+				}
+
+				double perStep = (System.nanoTime() - start) / 1e3 / steps;
+				previous = TensorUtils.tensorToFloatArray(x);
+				x.close();
+
+				start = System.nanoTime();
+				x = TensorUtils.createRandomNormalTensor(shape, 0);
+				TFloat32 t = TFloat32.scalarOf(0.0f);
+				ModelHandler.DitStep step = models.compileDit(x, t, crossAttn, globalCond);
+
+				for (int i = 0; i < steps; i++) {
+					t.setFloat(time(i));
+					for (int k = 0; k < batch; k++) seeds[k] = i + k;
+
+					try (Tensor out = step.run()) {
+						TensorUtils.samplerPingPong((TFloat32) out, x, time(i), time(i + 1), seeds);
+					}
+				}
+
+				double perStepCompiled = (System.nanoTime() - start) / 1e3 / steps;
+				compiled = TensorUtils.tensorToFloatArray(x);
+				x.close();
+				t.close();
+
+				if (round > 0) {
+					System.out.println("DiffusionStepBenchmarkIT: " + steps + " steps, batch size " + batch);
+					System.out.printf("DiffusionStepBenchmarkIT: Runner per step  %.1f us/step%n", perStep);
+					System.out.printf("DiffusionStepBenchmarkIT: Compiled step    %.1f us/step (%.2fx)%n",
+							perStepCompiled, perStep / perStepCompiled);
+				}
+			}
+
+			Assert.assertArrayEquals(previous, compiled, 1e-5f);
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.tensorflow.test;
+
+import io.almostrealism.code.DefaultScopeInputManager;
+import io.almostrealism.collect.TraversalPolicy;
+import io.almostrealism.scope.Argument;
+import io.almostrealism.scope.Scope;
+import org.almostrealism.CodeFeatures;
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.tensorflow.TensorFlowArgument;
+import org.almostrealism.tensorflow.TensorFlowArithmetic;
+import org.almostrealism.tensorflow.TensorFlowCollection;
+import org.almostrealism.tensorflow.TensorFlowComputeContext;
+import org.almostrealism.tensorflow.TensorFlowExpression;
+import org.almostrealism.tensorflow.TensorFlowGather;
+import org.almostrealism.tensorflow.TensorFlowInstructionSet;
+import org.almostrealism.tensorflow.TensorFlowManager;
+import org.almostrealism.tensorflow.TensorFlowReduction;
+import org.almostrealism.tensorflow.TensorFlowUnary;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tensorflow.Graph;
+import org.tensorflow.op.Ops;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Compiles {@link Scope}s of lowered expressions with the {@link TensorFlowComputeContext}
+ * and compares the results with the same computations evaluated by the native backend.
+ */
+public class TensorFlowLoweringTest implements CodeFeatures {
+	private final TensorFlowComputeContext context = new TensorFlowComputeContext();
+
+	@After
+	public void destroy() {
+		context.destroy();
+	}
+
+	@Test
+	public void arithmetic() {
+		PackedCollection a = values(16, 1.0);
+		PackedCollection b = values(16, 0.5);
+
+		PackedCollection out = evaluate(new TraversalPolicy(16), (x, y) ->
+				new TensorFlowArithmetic(TensorFlowArithmetic.Operator.MULTIPLY,
+						new TensorFlowArithmetic(TensorFlowArithmetic.Operator.ADD, x, y), x), a, b);
+
+		assertMatches(cp(a).add(cp(b)).multiply(cp(a)).get().evaluate(), out);
+	}
+
+	@Test
+	public void sum() {
+		PackedCollection a = values(64, 0.25);
+		PackedCollection out = evaluate(new TraversalPolicy(1), (x, y) ->
+				new TensorFlowReduction(TensorFlowReduction.Reduction.SUM, x), a, null);
+
+		assertMatches(cp(a).sum().get().evaluate(), out);
+	}
+
+	@Test
+	public void exp() {
+		PackedCollection a = values(8, 0.1);
+		PackedCollection out = evaluate(new TraversalPolicy(8), (x, y) ->
+				new TensorFlowUnary(TensorFlowUnary.Function.EXP, x), a, null);
+
+		assertMatches(exp(cp(a)).get().evaluate(), out);
+	}
+
+	@Test
+	public void gather() {
+		PackedCollection a = values(10, 1.0);
+		int[] indices = { 9, 0, 4, 4 };
+		PackedCollection out = evaluate(new TraversalPolicy(indices.length), (x, y) ->
+				new TensorFlowGather(x, indices), a, null);
+
+		PackedCollection source = cp(a).get().evaluate();
+		for (int i = 0; i < indices.length; i++) {
+			Assert.assertEquals(source.toDouble(indices[i]), out.toDouble(i), 0.0);
+		}
+	}
+
+	@Test
+	public void graphSizeIsIndependentOfLength() {
+		Assert.assertEquals(operations(16), operations(4096));
+	}
+
+	@Test
+	public void signatureIncludesShape() {
+		Assert.assertEquals(signature(16), signature(16));
+		Assert.assertNotEquals(signature(16), signature(4096));
+	}
+
+	protected String signature(int length) {
+		TraversalPolicy shape = new TraversalPolicy(length);
+		TensorFlowCollection a = new TensorFlowCollection("a", shape);
+
+		Scope<?> scope = new Scope<>();
+		scope.getVariables().add(new TensorFlowCollection("out", shape)
+				.assign(new TensorFlowArithmetic(TensorFlowArithmetic.Operator.ADD, a, a)));
+		return TensorFlowInstructionSet.signature(scope, null);
+	}
+
+	protected long operations(int length) {
+		try (Graph graph = new Graph()) {
+			TensorFlowManager manager = new TensorFlowManager(Ops.create(graph));
+			TraversalPolicy shape = new TraversalPolicy(length);
+			TensorFlowCollection a = new TensorFlowCollection("a", shape);
+			TensorFlowCollection b = new TensorFlowCollection("b", shape);
+
+			manager.output("out", new TensorFlowReduction(TensorFlowReduction.Reduction.SUM,
+					new TensorFlowUnary(TensorFlowUnary.Function.EXP,
+							new TensorFlowArithmetic(TensorFlowArithmetic.Operator.MULTIPLY, a, b))));
+
+			long count = 0;
+			Iterator<?> it = graph.operations();
+			while (it.hasNext()) { it.next(); count++; }
+			return count;
+		}
+	}
+
+	/**
+	 * Builds a {@link Scope} which assigns the expression over the collections a and b
+	 * (if b is not null) to an output with the specified shape, delivers it to the
+	 * {@link TensorFlowComputeContext} and runs it.
+	 */
+	protected PackedCollection evaluate(TraversalPolicy outputShape,
+										BiFunction<TensorFlowCollection, TensorFlowCollection, TensorFlowExpression> expression,
+										PackedCollection a, PackedCollection b) {
+		DefaultScopeInputManager inputs = new DefaultScopeInputManager(
+				(name, input) -> new TensorFlowArgument<>(name, (Supplier) input));
+		PackedCollection out = new PackedCollection(outputShape);
+		Map<String, PackedCollection> values = new HashMap<>();
+
+		TensorFlowArgument<?> destination = argument(inputs, out, values);
+		TensorFlowCollection x = argument(inputs, a, values).collection(a.getShape());
+		TensorFlowCollection y = b == null ? null : argument(inputs, b, values).collection(b.getShape());
+
+		Scope<?> scope = new Scope<>();
+		scope.getVariables().add(destination.collection(outputShape).assign(expression.apply(x, y)));
+
+		Object[] args = scope.getArguments().stream().map(Argument::getName).map(values::get).toArray();
+		context.deliver(scope).get().accept(args);
+		return out;
+	}
+
+	protected TensorFlowArgument<?> argument(DefaultScopeInputManager inputs, PackedCollection value,
+											 Map<String, PackedCollection> values) {
+		TensorFlowArgument<?> argument = (TensorFlowArgument<?>) inputs.argumentForInput().apply(p(value));
+		values.put(argument.getName(), value);
+		return argument;
+	}
+
+	protected static void assertMatches(PackedCollection expected, PackedCollection actual) {
+		Assert.assertEquals(expected.getMemLength(), actual.getMemLength());
+		Assert.assertArrayEquals(expected.toArray(0, expected.getMemLength()),
+				actual.toArray(0, actual.getMemLength()), 1e-9);
+	}
+
+	protected static PackedCollection values(int length, double scale) {
+		PackedCollection c = new PackedCollection(length);
+		for (int i = 0; i < length; i++) c.setMem(i, scale * (i + 1));
+		return c;
+	}
+}
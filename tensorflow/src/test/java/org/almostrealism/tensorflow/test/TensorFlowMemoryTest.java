@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.tensorflow.test;
+
+import org.almostrealism.collect.PackedCollection;
+import org.almostrealism.tensorflow.TensorFlowMemory;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tensorflow.EagerSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat64;
+
+public class TensorFlowMemoryTest {
+	@Test
+	public void roundTrip() {
+		PackedCollection input = new PackedCollection(2, 3);
+		input.setMem(0, new double[] { 1, 2, 3, 4, 5, 6 });
+
+		try (TensorFlowMemory memory = TensorFlowMemory.of(input);
+			 EagerSession session = EagerSession.create()) {
+			Assert.assertEquals(Shape.of(2, 3), memory.getTensor().shape());
+			Assert.assertEquals(6.0, memory.getTensor().getDouble(1, 2), 0.0);
+
+			Ops tf = Ops.create(session);
+			TFloat64 doubled = tf.math.mul(tf.constant(memory.getTensor()), tf.constant(2.0)).asTensor();
+
+			PackedCollection output = new PackedCollection(2, 3);
+			new TensorFlowMemory(doubled).copyTo(output, 0);
+			Assert.assertArrayEquals(new double[] { 2, 4, 6, 8, 10, 12 }, output.toArray(0, 6), 0.0);
+		}
+	}
+}
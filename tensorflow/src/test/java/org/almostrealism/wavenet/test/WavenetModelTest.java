@@ -0,0 +1,103 @@
+package org.almostrealism.wavenet.test;
+
+import org.almostrealism.wavenet.WavenetApp;
+import org.almostrealism.wavenet.WavenetModel;
+import org.junit.Assert;
+import org.junit.Test;
+import org.tensorflow.EagerSession;
+import org.tensorflow.ndarray.Shape;
+import org.tensorflow.op.Ops;
+import org.tensorflow.types.TFloat32;
+
+import java.util.Random;
+
+public class WavenetModelTest {
+	@Test
+	public void fastGenerationMatchesWindow() {
+		boolean fast = WavenetApp.fastGeneration;
+
+		try (EagerSession session = EagerSession.create()) {
+			Ops tf = Ops.create(session);
+
+			WavenetApp.fastGeneration = true;
+			long[] incremental = new WavenetApp().run(tf, 8, new Random(3));
+
+			WavenetApp.fastGeneration = false;
+			long[] window = new WavenetApp().run(tf, 8, new Random(3));
+
+			Assert.assertArrayEquals(window, incremental);
+		} finally {
+			WavenetApp.fastGeneration = fast;
+		}
+	}
+
+	@Test
+	public void incrementalMatchesCausalConvolution() {
+		int channels = 4;
+		int outputChannels = 6;
+		int length = 40;
+
+		try (EagerSession session = EagerSession.create()) {
+			Ops tf = Ops.create(session);
+			WavenetModel model = new WavenetModel(tf, channels, outputChannels, new long[] { 1, 2, 4, 8 }, new Random(7));
+			int field = (int) model.getReceptiveField();
+			Assert.assertEquals(16, field);
+
+			Random random = new Random(11);
+			TFloat32 input = TFloat32.tensorOf(Shape.of(1, length, channels));
+			input.scalars().forEach(s -> s.setFloat((float) random.nextGaussian()));
+
+			TFloat32 full = model.predictProba(tf.constant(input)).asTensor();
+			Assert.assertEquals(Shape.of(1, length - field + 1, outputChannels), full.shape());
+
+			WavenetModel.Incremental generator = model.incremental(1);
+
+			for (int t = 0; t < length; t++) {
+				TFloat32 sample = TFloat32.tensorOf(Shape.of(1, channels));
+				for (int c = 0; c < channels; c++) sample.setFloat(input.getFloat(0, t, c), 0, c);
+
+				TFloat32 out = generator.next(tf.constant(sample)).asTensor();
+				if (t < field - 1) continue;
+
+				for (int c = 0; c < outputChannels; c++) {
+					Assert.assertEquals("Sample " + t + " channel " + c,
+							full.getFloat(0, t - field + 1, c), out.getFloat(0, c), 1e-5);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void silencePrefix() {
+		// Before the receptive field is filled, the queues behave as if the input
+		// had been preceded by silence
+		int channels = 3;
+		int length = 12;
+
+		try (EagerSession session = EagerSession.create()) {
+			Ops tf = Ops.create(session);
+			WavenetModel model = new WavenetModel(tf, channels, channels, new long[] { 1, 2, 4 }, new Random(3));
+			int field = (int) model.getReceptiveField();
+
+			Random random = new Random(5);
+			TFloat32 padded = TFloat32.tensorOf(Shape.of(1, field - 1 + length, channels));
+			for (int t = field - 1; t < field - 1 + length; t++) {
+				for (int c = 0; c < channels; c++) padded.setFloat((float) random.nextGaussian(), 0, t, c);
+			}
+
+			TFloat32 full = model.predictProba(tf.constant(padded)).asTensor();
+			WavenetModel.Incremental generator = model.incremental(1);
+
+			for (int t = 0; t < length; t++) {
+				TFloat32 sample = TFloat32.tensorOf(Shape.of(1, channels));
+				for (int c = 0; c < channels; c++) sample.setFloat(padded.getFloat(0, field - 1 + t, c), 0, c);
+
+				TFloat32 out = generator.next(tf.constant(sample)).asTensor();
+
+				for (int c = 0; c < channels; c++) {
+					Assert.assertEquals(full.getFloat(0, t, c), out.getFloat(0, c), 1e-5);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml;
+
+import io.almostrealism.relation.Validity;
+import org.almostrealism.audio.data.WaveData;
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.collect.PackedCollection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DatasetIndex} records which dataset each generator's current model was trained
+ * on, so that a refresh with the same set of sources can reuse an existing model instead
+ * of training a new one. A dataset is identified by the hash of the set of its sources,
+ * so the order in which sources are given does not matter. Sources and sets of sources
+ * are hashed the same way as by org.almostrealism.remote.ops.AudioHash (the SHA-256 of
+ * the samples of every channel as little-endian float32 values), so each source has the
+ * same hash the client computed for it; the digest is repeated here so that this module
+ * does not depend on the remote protocol.
+ * The index is kept in a properties file, so it survives restarts.
+ *
+ * @author  Michael Murray
+ */
+public class DatasetIndex {
+	private static final int CHUNK = 8192;
+
+	private final File file;
+	private final Properties generators;
+
+	public DatasetIndex(File file) {
+		this.file = file;
+		this.generators = new Properties();
+
+		if (file.exists()) {
+			try (InputStream in = new FileInputStream(file)) {
+				generators.load(in);
+			} catch (IOException e) {
+				System.out.println("DatasetIndex: Unable to load " + file + " (" + e.getMessage() + ")");
+			}
+		}
+	}
+
+	/**
+	 * Returns the dataset hash for the current model of the specified generator, or null.
+	 */
+	public synchronized String getDataset(String generatorId) {
+		return generators.getProperty(generatorId);
+	}
+
+	/**
+	 * Returns a generator whose current model was trained on the specified dataset, or null.
+	 */
+	public synchronized String findGenerator(String dataset) {
+		return generators.stringPropertyNames().stream()
+				.filter(id -> dataset.equals(generators.getProperty(id)))
+				.findFirst().orElse(null);
+	}
+
+	public synchronized void setDataset(String generatorId, String dataset) {
+		generators.setProperty(generatorId, dataset);
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		if (parent != null) parent.mkdirs();
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			generators.store(out, "Dataset hash for the current model of each generator");
+		} catch (IOException e) {
+			System.out.println("DatasetIndex: Unable to save " + file + " (" + e.getMessage() + ")");
+		}
+	}
+
+	/**
+	 * Returns the hash identifying the dataset made up of the valid sources in the list.
+	 */
+	public static String hash(List<NoteAudio> sources) {
+		return combine(sources.stream()
+				.filter(Validity::valid)
+				.map(s -> hash(s.getWaveData()))
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Returns the hash of the samples of every channel, one channel after another.
+	 */
+	public static String hash(WaveData data) {
+		MessageDigest digest = digest();
+		ByteBuffer buf = ByteBuffer.allocate(4 * CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int c = 0; c < data.getChannelCount(); c++) {
+			PackedCollection channel = data.getChannelData(c);
+			double[] samples = channel.toArray(0, channel.getMemLength());
+
+			for (int i = 0; i < samples.length; i += CHUNK) {
+				int end = Math.min(samples.length, i + CHUNK);
+				for (int j = i; j < end; j++) buf.putFloat((float) samples[j]);
+
+				digest.update(buf.array(), 0, buf.position());
+				buf.clear();
+			}
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Returns the hash of a set of source hashes, which does not depend on their order.
+	 */
+	public static String combine(Collection<String> hashes) {
+		MessageDigest digest = digest();
+		hashes.stream().sorted().forEach(h -> {
+			digest.update(h.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		});
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -16,7 +16,6 @@
 
 package org.almostrealism.audioml;
 
-import org.almostrealism.studio.generative.GenerationProvider;
 import org.almostrealism.studio.generative.GenerationResourceManager;
 import org.almostrealism.studio.generative.GeneratorStatus;
 import org.almostrealism.audio.line.OutputLine;
@@ -26,18 +25,20 @@ import org.almostrealism.audio.notes.NoteAudioProvider;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.IntConsumer;
 import java.util.stream.IntStream;
 
-public class DiffusionGenerationProvider implements GenerationProvider {
+public class DiffusionGenerationProvider implements IncrementalGenerationProvider {
 	public static final int SAMPLE_RATE = OutputLine.sampleRate;
 
 	private final TorchDiffusion model;
 	private final GenerationResourceManager resources;
+	private final DatasetIndex datasets;
 
 	public DiffusionGenerationProvider(GenerationResourceManager resources) {
 		this.model = new TorchDiffusion();
 		this.resources = resources;
+		this.datasets = new DatasetIndex(new File("models/datasets.properties"));
 	}
 
 	@Override
@@ -48,12 +49,29 @@ public class DiffusionGenerationProvider implements GenerationProvider {
 				return true;
 			}
 
-			model.clearDatasets();
-			model.clearModel();
+			String dataset = DatasetIndex.hash(sources);
 
-			model.loadAudio(sources);
-			model.train();
-			resources.storeModel(generatorId, requestId, new File("models/latest.zip"));
+			if (dataset.equals(datasets.getDataset(generatorId)) && resources.isModelAvailable(generatorId)) {
+				System.out.println("DiffusionGenerationProvider: Model for " + generatorId + " is already trained on this dataset");
+				return true;
+			}
+
+			String existing = datasets.findGenerator(dataset);
+
+			try (Workspace workspace = model.workspace(requestId)) {
+				if (existing != null && resources.isModelAvailable(existing)) {
+					System.out.println("DiffusionGenerationProvider: Reusing model of " + existing + " for " + generatorId);
+					resources.loadModel(existing, workspace.getModel());
+				} else {
+					model.loadAudio(workspace, sources);
+					model.train(workspace);
+				}
+
+				resources.storeModel(generatorId, requestId, workspace.getModel());
+			}
+
+			datasets.setDataset(generatorId, dataset);
+			model.unload(generatorId);
 			return true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -67,32 +85,88 @@ public class DiffusionGenerationProvider implements GenerationProvider {
 	}
 
 	@Override
-	public List<NoteAudio> generate(String requestId, String generatorId, int count) {
-		List<NoteAudio> existing = new ArrayList<>();
+	public boolean generate(String requestId, String generatorId, int count, Receiver output) {
+		return generate(List.of(requestId), new int[] { count }, generatorId, output);
+	}
+
+	/**
+	 * Generates the results for all of the requests which have not already been completed
+	 * with one call to the model, storing each result under the ID of its own request so
+	 * that the request is recognized as completed if it is retried, alone or with others.
+	 */
+	@Override
+	public boolean generate(List<String> requestIds, int[] counts, String generatorId, Receiver output) {
+		List<Integer> pending = new ArrayList<>();
+		int[] offsets = new int[requestIds.size()];
 
-		boolean available = true;
+		for (int r = 0, offset = 0; r < requestIds.size(); offset += counts[r], r++) {
+			offsets[r] = offset;
 
-		i: for (int i = 0; i < count; i++) {
-			NoteAudioProvider out = resources.getAudio(requestId + ":" + i);
-			if (out == null) {
-				available = false;
-				break;
+			List<NoteAudio> existing = getCompleted(requestIds.get(r), counts[r]);
+
+			if (existing == null) {
+				pending.add(r);
 			} else {
-				existing.add(out);
+				System.out.println("DiffusionGenerationProvider: Request " + requestIds.get(r) + " already completed");
+				int start = offset;
+				IntStream.range(0, existing.size()).forEach(i -> output.receive(start + i, existing.get(i)));
 			}
 		}
 
-		if (available) {
-			System.out.println("DiffusionGenerationProvider: Request " + requestId + " already completed");
-			return existing;
+		if (pending.isEmpty()) return true;
+
+		// Position of the first result of each pending request in the workspace
+		int[] starts = new int[pending.size() + 1];
+		for (int p = 0; p < pending.size(); p++) {
+			starts[p + 1] = starts[p] + counts[pending.get(p)];
+		}
+
+		try (Workspace workspace = model.workspace(requestIds.get(pending.get(0)))) {
+			IntConsumer completed = i -> {
+				int p = 0;
+				while (i >= starts[p + 1]) p++;
+
+				int r = pending.get(p);
+				int index = i - starts[p];
+				output.receive(offsets[r] + index,
+						resources.storeAudio(requestIds.get(r) + ":" + index, workspace.getOutput(i)));
+			};
+
+			int count = starts[pending.size()];
+
+			if (!TorchDiffusion.enableWorker) {
+				resources.loadModel(generatorId, workspace.getModel());
+				model.generate(workspace, count, completed);
+				return true;
+			}
+
+			// The worker handles one request at a time, and the model only
+			// needs to be extracted if the worker does not have it loaded
+			synchronized (model) {
+				if (!model.isLoaded(generatorId)) {
+					resources.loadModel(generatorId, workspace.getModel());
+				}
+
+				model.generate(generatorId, workspace, count, completed);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the stored results of the specified request, or null if any of them are missing.
+	 */
+	protected List<NoteAudio> getCompleted(String requestId, int count) {
+		List<NoteAudio> existing = new ArrayList<>();
+
+		for (int i = 0; i < count; i++) {
+			NoteAudioProvider out = resources.getAudio(requestId + ":" + i);
+			if (out == null) return null;
+			existing.add(out);
 		}
 
-		resources.loadModel(generatorId, new File("models/latest.zip"));
-		model.generate(count);
-		return IntStream.range(0, count)
-				.<NoteAudio>mapToObj(i ->
-					resources.storeAudio(requestId + ":" + i, new File("output/" + i + ".wav")))
-				.collect(Collectors.toList());
+		return existing;
 	}
 
 	@Override
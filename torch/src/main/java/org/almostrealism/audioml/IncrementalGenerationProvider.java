@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml;
+
+import org.almostrealism.audio.notes.NoteAudio;
+import org.almostrealism.studio.generative.GenerationProvider;
+import org.almostrealism.util.KeyUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * An {@link IncrementalGenerationProvider} is a {@link GenerationProvider} which can deliver
+ * each generated result as soon as it is available, rather than only once every result
+ * for a request has been produced.
+ *
+ * @author  Michael Murray
+ */
+public interface IncrementalGenerationProvider extends GenerationProvider {
+	/**
+	 * Generates the specified number of results, passing each to the {@link Receiver}
+	 * as soon as it is available. Results may be delivered on the calling thread or
+	 * another thread, but never concurrently, and this method does not return until
+	 * every result has been delivered.
+	 *
+	 * @return  True if every result was generated successfully.
+	 */
+	boolean generate(String requestId, String generatorId, int count, Receiver output);
+
+	/**
+	 * Generates the results for several requests with one call, passing the results for
+	 * each request to the {@link Receiver} with indices following those of the requests
+	 * before it. A provider which records results under the ID of the request they were
+	 * generated for should override this, so that each result is recorded under the ID
+	 * of its own request. By default, the batch is generated as a single new request.
+	 *
+	 * @return  True if every result was generated successfully.
+	 */
+	default boolean generate(List<String> requestIds, int[] counts, String generatorId, Receiver output) {
+		if (requestIds.size() == 1) return generate(requestIds.get(0), generatorId, counts[0], output);
+		return generate(KeyUtils.generateKey(), generatorId, IntStream.of(counts).sum(), output);
+	}
+
+	@Override
+	default List<NoteAudio> generate(String requestId, String generatorId, int count) {
+		List<NoteAudio> results = new ArrayList<>();
+		if (!generate(requestId, generatorId, count, (index, audio) -> results.add(audio))) return null;
+		return results;
+	}
+
+	interface Receiver {
+		void receive(int index, NoteAudio audio);
+	}
+}
@@ -0,0 +1,342 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link ModelWorker} manages a long-lived model process which keeps generators loaded
+ * between requests, so that interpreter start-up and weight loading are not paid for on
+ * every call. The process is started on first use, checked periodically with a ping,
+ * and restarted if it exits, stops responding or fails a request.
+ * <p>
+ * Messages in both directions are frames on the process's stdin and stdout, each of
+ * which is a 4 byte big-endian length followed by that many bytes of UTF-8 text. The
+ * text is a command followed by its arguments, separated by tabs. The worker must
+ * support the following requests:
+ * <ul>
+ *     <li>{@code PING}: respond {@code OK}.</li>
+ *     <li>{@code LOAD id path}: load the model at path as generator id and respond
+ *     {@code OK}. The file may be deleted once the response is sent.</li>
+ *     <li>{@code UNLOAD id}: release generator id and respond {@code OK}.</li>
+ *     <li>{@code GENERATE id count dir}: generate count results with generator id,
+ *     writing them to {@code dir/<index>.wav} and sending {@code OUTPUT index} as each
+ *     one is written, followed by {@code OK}.</li>
+ *     <li>{@code SHUTDOWN}: exit.</li>
+ * </ul>
+ * Any request may instead be answered with {@code ERROR message}. Anything the worker
+ * prints for diagnostics must go to stderr, which is inherited, and the worker should
+ * exit when its stdin is closed.
+ * <p>
+ * At most {@link #getCapacity()} generators are kept loaded; when another one is needed
+ * the least recently used is unloaded first. Requests are handled one at a time. If the
+ * calling thread is interrupted during a request, the worker is terminated, because
+ * there is no way to stop the request it is working on, and it will be restarted for
+ * the next request.
+ *
+ * @author  Michael Murray
+ */
+public class ModelWorker implements AutoCloseable {
+	public static long responseTimeout = 30 * 1000;
+	public static long generateTimeout = 30 * 60 * 1000;
+	public static long healthCheckInterval = 60 * 1000;
+
+	private static final String OK = "OK";
+	private static final String ERROR = "ERROR";
+	private static final String OUTPUT = "OUTPUT";
+	private static final Object EOF = new Object();
+
+	private final List<String> command;
+	private final int capacity;
+
+	private final LinkedHashSet<String> loaded;
+	private final ScheduledExecutorService health;
+
+	private Process process;
+	private DataOutputStream in;
+	private BlockingQueue<Object> responses;
+	private boolean started;
+	private int restarts;
+	private boolean closed;
+
+	public ModelWorker(List<String> command, int capacity) {
+		if (capacity < 1) throw new IllegalArgumentException();
+
+		this.command = new ArrayList<>(command);
+		this.capacity = capacity;
+		this.loaded = new LinkedHashSet<>();
+		this.health = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "ModelWorker Health");
+			t.setDaemon(true);
+			return t;
+		});
+
+		if (healthCheckInterval > 0) {
+			health.scheduleWithFixedDelay(this::healthCheck,
+					healthCheckInterval, healthCheckInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public int getCapacity() { return capacity; }
+
+	/**
+	 * Returns the number of times the worker process has been started after the first.
+	 */
+	public synchronized int getRestarts() { return restarts; }
+
+	/**
+	 * Returns the generators which are currently loaded, least recently used first.
+	 */
+	public synchronized List<String> getLoaded() { return new ArrayList<>(loaded); }
+
+	public synchronized boolean isLoaded(String generatorId) { return loaded.contains(generatorId); }
+
+	public synchronized boolean isAlive() { return process != null && process.isAlive(); }
+
+	/**
+	 * Ensures that the specified generator is loaded, using the model at the specified
+	 * path if it is not, and marks it as the most recently used.
+	 */
+	public synchronized void load(String generatorId, String modelPath) throws InterruptedException {
+		ensureStarted();
+
+		if (loaded.remove(generatorId)) {
+			loaded.add(generatorId);
+			return;
+		}
+
+		while (loaded.size() >= capacity) {
+			unload(loaded.iterator().next());
+		}
+
+		request(responseTimeout, null, "LOAD", generatorId, modelPath);
+		loaded.add(generatorId);
+	}
+
+	/**
+	 * Releases the specified generator, if it is loaded. This should be used when the
+	 * model for a generator has been replaced.
+	 */
+	public synchronized void unload(String generatorId) throws InterruptedException {
+		if (!loaded.remove(generatorId) || !isAlive()) return;
+		request(responseTimeout, null, "UNLOAD", generatorId);
+	}
+
+	/**
+	 * Generates a batch of results with the specified generator, which must already be
+	 * loaded, notifying the {@link IntConsumer} with the index of each result as the
+	 * worker reports that it has been written.
+	 */
+	public synchronized void generate(String generatorId, int count, String outputDir, IntConsumer completed) throws InterruptedException {
+		ensureStarted();
+
+		if (!loaded.contains(generatorId)) {
+			throw new IllegalStateException(generatorId + " is not loaded");
+		}
+
+		request(generateTimeout, completed, "GENERATE", generatorId, String.valueOf(count), outputDir);
+	}
+
+	/**
+	 * Pings the worker, if it is running, and stops it if it has exited or does not
+	 * respond, so that it will be restarted for the next request. If a request is in
+	 * progress, the check waits for it to finish.
+	 */
+	public synchronized void healthCheck() {
+		if (closed || process == null) return;
+
+		try {
+			if (!process.isAlive()) {
+				System.out.println("ModelWorker: Worker exited with " + process.exitValue());
+				stop();
+			} else {
+				request(responseTimeout, null, "PING");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (RuntimeException e) {
+			System.out.println("ModelWorker: Health check failed (" + e.getMessage() + ")");
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		closed = true;
+		health.shutdownNow();
+
+		if (isAlive()) {
+			try {
+				write("SHUTDOWN");
+				if (!process.waitFor(responseTimeout, TimeUnit.MILLISECONDS)) {
+					System.out.println("ModelWorker: Worker did not shut down");
+				}
+			} catch (IOException e) {
+				System.out.println("ModelWorker: Unable to shut down worker (" + e.getMessage() + ")");
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		stop();
+	}
+
+	protected void ensureStarted() {
+		if (closed) throw new IllegalStateException("Worker is closed");
+		if (isAlive()) return;
+		if (process != null) stop();
+
+		if (started) {
+			System.out.println("ModelWorker: Restarting worker");
+			restarts++;
+		}
+
+		started = true;
+
+		try {
+			process = new ProcessBuilder(command)
+					.redirectError(ProcessBuilder.Redirect.INHERIT)
+					.start();
+		} catch (IOException e) {
+			process = null;
+			throw new RuntimeException("Unable to start worker", e);
+		}
+
+		in = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+		responses = new LinkedBlockingQueue<>();
+
+		Thread reader = new Thread(() -> read(process, responses), "ModelWorker Reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Terminates the worker process, if there is one, forgetting which generators
+	 * were loaded.
+	 */
+	protected void stop() {
+		loaded.clear();
+		if (process == null) return;
+
+		Process p = process;
+		process = null;
+		in = null;
+		responses = null;
+
+		p.descendants().forEach(ProcessHandle::destroyForcibly);
+		p.destroyForcibly();
+
+		try {
+			p.waitFor(responseTimeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Sends a request and waits for its final response, passing the index of each
+	 * {@code OUTPUT} response before it to the specified {@link IntConsumer}. If the
+	 * worker fails, stops responding or the calling thread is interrupted, the worker
+	 * is stopped so that it will be restarted for the next request.
+	 */
+	private void request(long timeout, IntConsumer output, String... request) throws InterruptedException {
+		ensureStarted();
+
+		try {
+			write(request);
+
+			while (true) {
+				Object response = responses.poll(timeout, TimeUnit.MILLISECONDS);
+
+				if (response == null) {
+					throw new RuntimeException("No response to " + request[0] + " after " + timeout + "ms");
+				} else if (response == EOF) {
+					throw new RuntimeException("Worker exited during " + request[0]);
+				}
+
+				String[] fields = ((String) response).split("\t");
+
+				if (OUTPUT.equals(fields[0]) && output != null) {
+					output.accept(Integer.parseInt(fields[1]));
+				} else if (OK.equals(fields[0])) {
+					return;
+				} else if (ERROR.equals(fields[0])) {
+					// The worker reported the failure itself, so it is still usable
+					throw new ModelWorkerException(String.join(" ", Arrays.asList(fields).subList(1, fields.length)));
+				} else {
+					throw new RuntimeException("Unexpected response " + fields[0] + " to " + request[0]);
+				}
+			}
+		} catch (ModelWorkerException e) {
+			throw e;
+		} catch (InterruptedException e) {
+			System.out.println("ModelWorker: Terminating worker during " + request[0]);
+			stop();
+			throw e;
+		} catch (IOException | RuntimeException e) {
+			stop();
+			throw e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+		}
+	}
+
+	private void write(String... message) throws IOException {
+		byte[] data = String.join("\t", message).getBytes(StandardCharsets.UTF_8);
+		in.writeInt(data.length);
+		in.write(data);
+		in.flush();
+	}
+
+	private static void read(Process process, BlockingQueue<Object> responses) {
+		try (DataInputStream out = new DataInputStream(new BufferedInputStream(process.getInputStream()))) {
+			while (true) {
+				byte[] data = new byte[out.readInt()];
+				out.readFully(data);
+				responses.add(new String(data, StandardCharsets.UTF_8));
+			}
+		} catch (EOFException e) {
+			// The worker has exited
+		} catch (IOException e) {
+			System.out.println("ModelWorker: Unable to read from worker (" + e.getMessage() + ")");
+		} finally {
+			responses.add(EOF);
+		}
+	}
+
+	/**
+	 * Thrown when the worker reports that it could not complete a request.
+	 */
+	public static class ModelWorkerException extends RuntimeException {
+		public ModelWorkerException(String message) {
+			super(message);
+		}
+	}
+}
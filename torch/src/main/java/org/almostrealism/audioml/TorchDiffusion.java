@@ -22,46 +22,173 @@ import org.almostrealism.io.ConsoleFeatures;
 import org.almostrealism.util.ProcessFeatures;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public class TorchDiffusion implements ProcessFeatures, ConsoleFeatures {
 	public static boolean enableVirtualEnv = true;
 
-	private static final String AUDIO = "audio";
-	private static final String MODELS = "models";
+	/**
+	 * Generate with a {@link ModelWorker} instead of running the generation script for
+	 * every request. This requires the deployment to provide worker.sh (or worker_venv.sh)
+	 * alongside the other scripts, implementing the protocol described by {@link ModelWorker}.
+	 */
+	public static boolean enableWorker = false;
 
-	public void clearDatasets() {
-		Stream.of(new File(AUDIO).list()).forEach(run -> run("rm", "-rf", AUDIO + "/" + run));
-	}
+	public static int workerCapacity = 4;
+
+	public static long pollInterval = 500;
+
+	private static final String WORKSPACES = "workspaces";
+
+	private ModelWorker worker;
 
-	public void clearModel() {
-		run("rm", "-rf", MODELS + "/latest.zip");
-		run("rm", "-rf", MODELS + "/latest");
+	/**
+	 * Creates a new {@link Workspace} for the specified job, which should be closed
+	 * once the job is finished.
+	 */
+	public Workspace workspace(String job) {
+		return new Workspace(new File(WORKSPACES), job);
 	}
 
-	public void loadAudio(List<NoteAudio> sources) {
+	/**
+	 * Saves the valid sources to the audio directory of the {@link Workspace}.
+	 */
+	public void loadAudio(Workspace workspace, List<NoteAudio> sources) {
 		List<NoteAudio> audio = sources.stream()
 				.filter(Validity::valid)
 				.toList();
 		log("Saving " + audio.size() + " audio files");
-		IntStream.range(0, audio.size()).forEach(i ->
-				audio.get(i).getWaveData().save(new File("audio/" + i + ".wav")));
+		IntStream.range(0, audio.size()).parallel().forEach(i ->
+				audio.get(i).getWaveData().save(new File(workspace.getAudio(), i + ".wav")));
 		log("Done saving audio files");
 	}
 
-	public void train() {
-		if (!script(enableVirtualEnv ? "train_venv.sh" : "train.sh"))
+	/**
+	 * Trains a model on the audio in the {@link Workspace}, writing it to the
+	 * workspace's model file.
+	 */
+	public void train(Workspace workspace) {
+		if (!script(enableVirtualEnv ? "train_venv.sh" : "train.sh",
+				workspace.getAudio().getPath(), workspace.getModel().getPath()))
 			throw new RuntimeException();
 	}
 
-	public void generate(int count) {
-		if (!script("generate.sh", String.valueOf(count)))
-			throw new RuntimeException();
+	public void generate(Workspace workspace, int count) {
+		generate(workspace, count, i -> { });
+	}
+
+	/**
+	 * Runs the generation script with the model in the {@link Workspace}, notifying the
+	 * specified {@link IntConsumer} with the index of each output as it is completed.
+	 * The script writes its outputs in order, so an output is complete once the
+	 * following one has been started or the script has finished.
+	 */
+	public void generate(Workspace workspace, int count, IntConsumer completed) {
+		int[] next = { 0 };
+		IntPredicate available = i -> i < count && workspace.getOutput(i).exists();
+
+		boolean success = script(() -> {
+			while (available.test(next[0] + 1)) completed.accept(next[0]++);
+		}, "generate.sh", String.valueOf(count),
+				workspace.getModel().getPath(), workspace.getOutput().getPath());
+
+		if (!success) throw new RuntimeException();
+
+		while (available.test(next[0])) completed.accept(next[0]++);
+	}
+
+	/**
+	 * Generates results with the specified generator using the {@link ModelWorker},
+	 * which keeps recently used generators loaded between calls. The model in the
+	 * {@link Workspace} is only read if the generator is not already loaded, and the
+	 * results are written to the workspace's output directory.
+	 */
+	public void generate(String generatorId, Workspace workspace, int count, IntConsumer completed) {
+		try {
+			getWorker().load(generatorId, workspace.getModel().getPath());
+			getWorker().generate(generatorId, count, workspace.getOutput().getPath(), completed);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns true if the specified generator is loaded by the {@link ModelWorker}.
+	 */
+	public boolean isLoaded(String generatorId) {
+		return worker != null && worker.isLoaded(generatorId);
+	}
+
+	/**
+	 * Releases the specified generator from the {@link ModelWorker}, which should be
+	 * done whenever its model is replaced.
+	 */
+	public void unload(String generatorId) {
+		if (worker == null) return;
+
+		try {
+			worker.unload(generatorId);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	protected synchronized ModelWorker getWorker() {
+		if (worker == null) {
+			worker = new ModelWorker(List.of("sh", enableVirtualEnv ? "worker_venv.sh" : "worker.sh"), workerCapacity);
+		}
+
+		return worker;
+	}
+
+	public synchronized void destroy() {
+		if (worker != null) {
+			worker.close();
+			worker = null;
+		}
 	}
 
 	private boolean script(String script, String... args) {
-		return 0 == run(Stream.concat(Stream.of("sh", script), Stream.of(args)).toArray(String[]::new));
+		return script(() -> { }, script, args);
+	}
+
+	/**
+	 * Runs the specified script and waits for it to finish, running the poll
+	 * {@link Runnable} periodically while it does. If the calling thread is
+	 * interrupted while waiting, for example because the request that the script is
+	 * serving was cancelled, the script and any processes it started are terminated
+	 * and the interrupt status of the thread is restored.
+	 */
+	private boolean script(Runnable poll, String script, String... args) {
+		Process process;
+
+		try {
+			process = new ProcessBuilder(Stream.concat(Stream.of("sh", script), Stream.of(args)).toArray(String[]::new))
+					.inheritIO().start();
+		} catch (IOException e) {
+			warn("Unable to start " + script + " (" + e.getMessage() + ")");
+			return false;
+		}
+
+		try {
+			while (!process.waitFor(pollInterval, TimeUnit.MILLISECONDS)) {
+				poll.run();
+			}
+
+			return process.exitValue() == 0;
+		} catch (InterruptedException e) {
+			log("Terminating " + script);
+			process.descendants().forEach(ProcessHandle::destroyForcibly);
+			process.destroyForcibly();
+			Thread.currentThread().interrupt();
+			return false;
+		}
 	}
 }
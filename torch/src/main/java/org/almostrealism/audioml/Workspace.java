@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A {@link Workspace} is a private directory for a single training or generation job,
+ * containing the audio the job is trained on, the model it uses and the results it
+ * produces. Jobs with separate workspaces can run at the same time without affecting
+ * each other. The directory is deleted when the {@link Workspace} is closed, so anything
+ * which needs to outlive the job must be stored elsewhere before then.
+ *
+ * @author  Michael Murray
+ */
+public class Workspace implements AutoCloseable {
+	private final File root;
+
+	/**
+	 * Creates a new, empty {@link Workspace} for the specified job within the parent
+	 * directory. The job name is only used to make the directory easier to identify.
+	 */
+	public Workspace(File parent, String job) {
+		try {
+			Files.createDirectories(parent.toPath());
+			this.root = Files.createTempDirectory(parent.toPath(), job.replaceAll("[^A-Za-z0-9_.-]", "_") + "-").toFile();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		getAudio().mkdir();
+		getOutput().mkdir();
+	}
+
+	public File getRoot() { return root; }
+
+	/**
+	 * Returns the directory containing the audio to train on.
+	 */
+	public File getAudio() { return new File(root, "audio"); }
+
+	/**
+	 * Returns the model file which is produced by training or used for generation.
+	 */
+	public File getModel() { return new File(root, "model.zip"); }
+
+	/**
+	 * Returns the directory that generated results are written to.
+	 */
+	public File getOutput() { return new File(root, "output"); }
+
+	public File getOutput(int index) { return new File(getOutput(), index + ".wav"); }
+
+	@Override
+	public void close() {
+		if (!root.exists()) return;
+
+		try (Stream<Path> files = Files.walk(root.toPath())) {
+			files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		} catch (IOException e) {
+			System.out.println("Workspace: Unable to delete " + root + " (" + e.getMessage() + ")");
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml.test;
+
+import org.almostrealism.audioml.ModelWorker;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ModelWorkerTest {
+	@Test
+	public void generate() throws IOException, InterruptedException {
+		File dir = Files.createTempDirectory("worker").toFile();
+
+		try (ModelWorker worker = new ModelWorker(StubModelWorker.command(), 2)) {
+			List<Integer> completed = new ArrayList<>();
+
+			worker.load("a", "a.zip");
+			worker.generate("a", 3, dir.getPath(), completed::add);
+			Assert.assertEquals(List.of(0, 1, 2), completed);
+			Assert.assertTrue(new File(dir, "2.wav").exists());
+
+			// A second batch uses the same process
+			worker.load("a", "a.zip");
+			worker.generate("a", 2, dir.getPath(), i -> { });
+			Assert.assertEquals(0, worker.getRestarts());
+		}
+	}
+
+	@Test
+	public void leastRecentlyUsed() throws InterruptedException {
+		try (ModelWorker worker = new ModelWorker(StubModelWorker.command(), 2)) {
+			worker.load("a", "a.zip");
+			worker.load("b", "b.zip");
+			worker.load("a", "a.zip");
+			worker.load("c", "c.zip");
+			Assert.assertEquals(List.of("a", "c"), worker.getLoaded());
+		}
+	}
+
+	@Test
+	public void restart() throws IOException, InterruptedException {
+		File dir = Files.createTempDirectory("worker").toFile();
+
+		try (ModelWorker worker = new ModelWorker(StubModelWorker.command(), 2)) {
+			try {
+				worker.load("fail", "fail.zip");
+				Assert.fail();
+			} catch (ModelWorker.ModelWorkerException e) {
+				// A reported error does not require a restart
+				Assert.assertTrue(worker.isAlive());
+			}
+
+			worker.load("crash", "crash.zip");
+
+			try {
+				worker.generate("crash", 1, dir.getPath(), i -> { });
+				Assert.fail();
+			} catch (RuntimeException e) {
+				Assert.assertFalse(worker.isAlive());
+				Assert.assertTrue(worker.getLoaded().isEmpty());
+			}
+
+			worker.load("a", "a.zip");
+			worker.generate("a", 1, dir.getPath(), i -> { });
+			Assert.assertEquals(1, worker.getRestarts());
+		}
+	}
+
+	@Test
+	public void healthCheck() throws InterruptedException {
+		try (ModelWorker worker = new ModelWorker(StubModelWorker.command(), 1)) {
+			worker.load("a", "a.zip");
+			worker.healthCheck();
+			Assert.assertTrue(worker.isLoaded("a"));
+		}
+	}
+}
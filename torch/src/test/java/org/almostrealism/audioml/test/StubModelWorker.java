@@ -0,0 +1,109 @@
+/*
+ * Copyright 2026 Michael Murray
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.almostrealism.audioml.test;
+
+import org.almostrealism.audioml.ModelWorker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A {@link ModelWorker} process which does not load any model. Generated results are
+ * empty files. The generator "fail" reports an error for every request and the
+ * generator "crash" exits the process during generation.
+ */
+public class StubModelWorker {
+	public static List<String> command() {
+		String java = ProcessHandle.current().info().command().orElse("java");
+		return List.of(java, "-cp", System.getProperty("java.class.path"), StubModelWorker.class.getName());
+	}
+
+	public static void main(String[] args) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(System.in));
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+		Set<String> loaded = new HashSet<>();
+
+		while (true) {
+			byte[] data;
+
+			try {
+				data = new byte[in.readInt()];
+				in.readFully(data);
+			} catch (EOFException e) {
+				return;
+			}
+
+			String[] request = new String(data, StandardCharsets.UTF_8).split("\t");
+
+			switch (request[0]) {
+				case "PING":
+					write(out, "OK");
+					break;
+				case "LOAD":
+					if ("fail".equals(request[1])) {
+						write(out, "ERROR\tUnable to load " + request[2]);
+					} else {
+						loaded.add(request[1]);
+						write(out, "OK");
+					}
+					break;
+				case "UNLOAD":
+					loaded.remove(request[1]);
+					write(out, "OK");
+					break;
+				case "GENERATE":
+					if ("crash".equals(request[1])) System.exit(1);
+
+					if (!loaded.contains(request[1])) {
+						write(out, "ERROR\t" + request[1] + " is not loaded");
+						break;
+					}
+
+					File dir = new File(request[3]);
+					dir.mkdirs();
+
+					for (int i = 0; i < Integer.parseInt(request[2]); i++) {
+						new File(dir, i + ".wav").createNewFile();
+						write(out, "OUTPUT\t" + i);
+					}
+
+					write(out, "OK");
+					break;
+				case "SHUTDOWN":
+					return;
+				default:
+					write(out, "ERROR\tUnknown request " + request[0]);
+			}
+		}
+	}
+
+	private static void write(DataOutputStream out, String message) throws IOException {
+		byte[] data = message.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(data.length);
+		out.write(data);
+		out.flush();
+	}
+}